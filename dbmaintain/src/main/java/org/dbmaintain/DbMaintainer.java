@@ -50,4 +50,13 @@ public interface DbMaintainer {
      */
     void markDatabaseAsUpToDate();
 
+
+    /**
+     * This operation checks whether the database is up to date, without performing any updates. If the scripts did not
+     * change since the last successful update, this only takes a single query on the database.
+     *
+     * @return whether the database is up to date
+     */
+    boolean isDatabaseUpToDate();
+
 }
\ No newline at end of file
@@ -47,6 +47,10 @@ public class DbMaintainerFactory extends FactoryWithDatabase<DbMaintainer> {
         boolean updateSequencesEnabled = PropertyUtils.getBoolean(PROPERTY_UPDATE_SEQUENCES, getConfiguration());
         long maxNrOfCharsWhenLoggingScriptContent = PropertyUtils.getLong(PROPERTY_MAX_NR_CHARS_WHEN_LOGGING_SCRIPT_CONTENT, getConfiguration());
         ScriptIndexes baseLineRevision = factoryWithDatabaseContext.getBaselineRevision();
+        int checkSumParallelism = PropertyUtils.getInt(PROPERTY_CHECK_SUM_PARALLELISM, getConfiguration());
+        boolean calculateCheckSumWhileExecuting = PropertyUtils.getBoolean(PROPERTY_CALCULATE_CHECK_SUM_WHILE_EXECUTING, getConfiguration());
+        int databaseLaneParallelism = PropertyUtils.getInt(PROPERTY_DATABASE_LANE_PARALLELISM, getConfiguration());
+        int repeatableScriptParallelism = PropertyUtils.getInt(PROPERTY_REPEATABLE_SCRIPT_PARALLELISM, getConfiguration());
 
         MainFactory mainFactory = factoryWithDatabaseContext.getMainFactory();
         DBCleaner dbCleaner = mainFactory.createDBCleaner();
@@ -56,11 +60,14 @@ public class DbMaintainerFactory extends FactoryWithDatabase<DbMaintainer> {
         ScriptRunner scriptRunner = mainFactory.createScriptRunner();
         ScriptUpdatesFormatter scriptUpdatesFormatter = createScriptUpdatesFormatter();
         ExecutedScriptInfoSource executedScriptInfoSource = mainFactory.createExecutedScriptInfoSource();
+        executedScriptInfoSource.setRepositoryScripts(scriptRepository.getAllScripts());
 
 
         return new DefaultDbMaintainer(scriptRunner, scriptRepository, executedScriptInfoSource, fromScratchEnabled, useScriptFileLastModificationDates,
                 allowOutOfSequenceExecutionOfPatchScripts, cleanDbEnabled, disableConstraintsEnabled, updateSequencesEnabled, dbClearer, dbCleaner,
-                constraintsDisabler, sequenceUpdater, scriptUpdatesFormatter, getSqlHandler(), maxNrOfCharsWhenLoggingScriptContent, baseLineRevision);
+                constraintsDisabler, sequenceUpdater, scriptUpdatesFormatter, getSqlHandler(), maxNrOfCharsWhenLoggingScriptContent, baseLineRevision, checkSumParallelism,
+                calculateCheckSumWhileExecuting, getDatabases(), databaseLaneParallelism,
+                repeatableScriptParallelism);
     }
 
 
@@ -17,9 +17,11 @@ package org.dbmaintain;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.dbmaintain.database.Databases;
 import org.dbmaintain.database.SQLHandler;
 import org.dbmaintain.script.ExecutedScript;
 import org.dbmaintain.script.Script;
+import org.dbmaintain.script.analyzer.ScriptDependencyGraph;
 import org.dbmaintain.script.analyzer.ScriptUpdate;
 import org.dbmaintain.script.analyzer.ScriptUpdates;
 import org.dbmaintain.script.analyzer.ScriptUpdatesAnalyzer;
@@ -36,6 +38,15 @@ import org.dbmaintain.util.DbMaintainException;
 
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.lang.System.currentTimeMillis;
 import static org.dbmaintain.script.analyzer.ScriptUpdateType.REPEATABLE_SCRIPT_DELETED;
@@ -99,6 +110,23 @@ public class DefaultDbMaintainer implements DbMaintainer {
     /* The baseline revision. If set, all scripts with a lower revision will be ignored */
     protected ScriptIndexes baseLineRevision;
 
+    /* The nr of threads to use for calculating the check sums of all scripts before analyzing them, 1 to disable */
+    protected int checkSumParallelism;
+    /* If true, scripts are registered without check sum before being executed, the check sum is calculated while executing */
+    protected boolean calculateCheckSumWhileExecuting;
+    /* The configured databases, only used to determine the lane of a script when executing lanes in parallel */
+    protected Databases databases;
+    /* The nr of target databases of which the scripts are executed concurrently, 1 to execute all scripts one after another */
+    protected int databaseLaneParallelism;
+    /* The nr of repeatable scripts that are executed concurrently when their dependencies allow it, 1 to disable */
+    protected int repeatableScriptParallelism;
+
+    /* The worker threads that execute scripts concurrently during an update, null if none were started */
+    protected ExecutorService workerExecutorService;
+
+    /* Guards the executed scripts info source, which is updated by all scripts that are executed concurrently */
+    protected final Object executedScriptInfoSourceLock = new Object();
+
 
     /**
      * Creates a new instance
@@ -125,11 +153,24 @@ public class DefaultDbMaintainer implements DbMaintainer {
      * @param maxNrOfCharsWhenLoggingScriptContent
      *                                 The maximum length of a script that is logged in an exception, 0 to not log any script content
      * @param baseLineRevision         The baseline revision. If set, all scripts with a lower revision will be ignored
+     * @param checkSumParallelism      The nr of threads to use for calculating the check sums of all scripts before the scripts are
+     *                                 analyzed, 1 to calculate the check sums when needed during the analysis
+     * @param calculateCheckSumWhileExecuting
+     *                                 if true, a script is registered without check sum before it is executed. The check sum is
+     *                                 calculated on the content that is read for executing the script, so the script is only read once
+     * @param databases                The configured databases, only needed if the database lane parallelism is larger than 1
+     * @param databaseLaneParallelism  The nr of target databases of which the scripts are executed concurrently, 1 to execute
+     *                                 all scripts one after another
+     * @param repeatableScriptParallelism
+     *                                 The nr of repeatable scripts that are executed concurrently when their declared dependencies
+     *                                 allow it, 1 to execute all repeatable scripts one after another
      */
     public DefaultDbMaintainer(ScriptRunner scriptRunner, ScriptRepository scriptRepository, ExecutedScriptInfoSource executedScriptInfoSource,
                                boolean fromScratchEnabled, boolean useScriptFileLastModificationDates, boolean allowOutOfSequenceExecutionOfPatchScripts,
                                boolean cleanDb, boolean disableConstraints, boolean updateSequences, DBClearer dbClearer, DBCleaner dbCleaner, ConstraintsDisabler constraintsDisabler,
-                               SequenceUpdater sequenceUpdater, ScriptUpdatesFormatter scriptUpdatesFormatter, SQLHandler sqlHandler, long maxNrOfCharsWhenLoggingScriptContent, ScriptIndexes baseLineRevision) {
+                               SequenceUpdater sequenceUpdater, ScriptUpdatesFormatter scriptUpdatesFormatter, SQLHandler sqlHandler, long maxNrOfCharsWhenLoggingScriptContent, ScriptIndexes baseLineRevision, int checkSumParallelism,
+                               boolean calculateCheckSumWhileExecuting, Databases databases, int databaseLaneParallelism,
+                               int repeatableScriptParallelism) {
 
         this.scriptRunner = scriptRunner;
         this.scriptRepository = scriptRepository;
@@ -148,6 +189,11 @@ public class DefaultDbMaintainer implements DbMaintainer {
         this.sqlHandler = sqlHandler;
         this.maxNrOfCharsWhenLoggingScriptContent = maxNrOfCharsWhenLoggingScriptContent;
         this.baseLineRevision = baseLineRevision;
+        this.checkSumParallelism = checkSumParallelism;
+        this.calculateCheckSumWhileExecuting = calculateCheckSumWhileExecuting;
+        this.databases = databases;
+        this.databaseLaneParallelism = databaseLaneParallelism;
+        this.repeatableScriptParallelism = repeatableScriptParallelism;
     }
 
 
@@ -164,122 +210,205 @@ public class DefaultDbMaintainer implements DbMaintainer {
      */
     public boolean updateDatabase(boolean dryRun) {
         try {
-            ScriptUpdates scriptUpdates = getScriptUpdates();
-
-            if (!getIncrementalScriptsThatFailedDuringLastUpdate().isEmpty() && !scriptUpdates.hasIrregularScriptUpdates()) {
-                ExecutedScript failedExecutedScriptScript = getIncrementalScriptsThatFailedDuringLastUpdate().first();
-                throw new DbMaintainException("During the latest update, the execution of the following incremental script failed: " +
-                        failedExecutedScriptScript + ". \nThis problem must be fixed before any other " +
-                        "updates can be performed.\n" + getErrorScriptOptionsMessage(failedExecutedScriptScript.getScript()));
+            boolean updatesPerformed = performDatabaseUpdate(dryRun);
+            if (!dryRun) {
+                registerScriptsFingerprint();
             }
+            return updatesPerformed;
 
-            if (!getRepeatableScriptsThatFailedDuringLastUpdate().isEmpty() && !scriptUpdates.hasIrregularScriptUpdates()) {
-                ExecutedScript failedScript = getRepeatableScriptsThatFailedDuringLastUpdate().first();
-                if (!scriptUpdates.getRegularlyAddedOrModifiedScripts().contains(new ScriptUpdate(REPEATABLE_SCRIPT_UPDATED, failedScript.getScript()))
-                        && !scriptUpdates.getRegularlyDeletedRepeatableScripts().contains(new ScriptUpdate(REPEATABLE_SCRIPT_DELETED, failedScript.getScript()))) {
-                    throw new DbMaintainException("During the latest update, the execution of following repeatable script failed: " +
-                            getRepeatableScriptsThatFailedDuringLastUpdate().first() + ". \nThis problem must be fixed " +
-                            "before any other updates can be performed.");
-                }
-            }
+        } finally {
+            sqlHandler.closeAllConnections();
+            scriptRepository.close();
+        }
+    }
 
-            if (scriptUpdates.isEmpty()) {
-                logger.info("The database is up to date");
-                return false;
-            }
 
-            boolean recreateFromScratch = false;
-            if (fromScratchEnabled && isInitialDatabaseUpdate()) {
-                logger.info("The database is updated for the first time. The database is cleared to be sure that we start with a clean database");
-                recreateFromScratch = true;
-            }
+    /**
+     * Performs the actual database update, see {@link #updateDatabase}.
+     *
+     * @param dryRun if true, no updates have to be performed on the database
+     * @return whether updates were performed on the database
+     */
+    protected boolean performDatabaseUpdate(boolean dryRun) {
+        ScriptUpdates scriptUpdates = getScriptUpdates();
+
+        SortedSet<ExecutedScript> incrementalScriptsThatFailedDuringLastUpdate = getIncrementalScriptsThatFailedDuringLastUpdate();
+        if (!incrementalScriptsThatFailedDuringLastUpdate.isEmpty() && !scriptUpdates.hasIrregularScriptUpdates()) {
+            ExecutedScript failedExecutedScriptScript = incrementalScriptsThatFailedDuringLastUpdate.first();
+            throw new DbMaintainException("During the latest update, the execution of the following incremental script failed: " +
+                    failedExecutedScriptScript + ". \nThis problem must be fixed before any other " +
+                    "updates can be performed.\n" + getErrorScriptOptionsMessage(failedExecutedScriptScript.getScript()));
+        }
 
-            if (scriptUpdates.hasIrregularScriptUpdates()) {
-                if (fromScratchEnabled) {
-                    // Recreate the database from scratch
-                    logger.info("The database is recreated from scratch, since following irregular script updates were detected:\n" + scriptUpdatesFormatter.formatScriptUpdates(scriptUpdates.getIrregularScriptUpdates()));
-                    recreateFromScratch = true;
-                } else {
-                    throw new DbMaintainException("Following irregular script updates were detected:\n" + scriptUpdatesFormatter.formatScriptUpdates(scriptUpdates.getIrregularScriptUpdates()) +
-                            "\nBecause of this, dbmaintain can't perform the update. To solve this problem, you can do one of the following:\n" +
-                            "  1: Revert the irregular updates and use regular script updates instead\n" +
-                            "  2: Enable the fromScratch option so that the database is recreated from scratch (all data will be lost)\n" +
-                            "  3: Perform the updates manually on the database and invoke the markDatabaseAsUpToDate operation (error prone)\n");
-                }
+        SortedSet<ExecutedScript> repeatableScriptsThatFailedDuringLastUpdate = getRepeatableScriptsThatFailedDuringLastUpdate();
+        if (!repeatableScriptsThatFailedDuringLastUpdate.isEmpty() && !scriptUpdates.hasIrregularScriptUpdates()) {
+            ExecutedScript failedScript = repeatableScriptsThatFailedDuringLastUpdate.first();
+            if (!scriptUpdates.getRegularlyAddedOrModifiedScripts().contains(new ScriptUpdate(REPEATABLE_SCRIPT_UPDATED, failedScript.getScript()))
+                    && !scriptUpdates.getRegularlyDeletedRepeatableScripts().contains(new ScriptUpdate(REPEATABLE_SCRIPT_DELETED, failedScript.getScript()))) {
+                throw new DbMaintainException("During the latest update, the execution of following repeatable script failed: " +
+                        failedScript + ". \nThis problem must be fixed " +
+                        "before any other updates can be performed.");
             }
+        }
 
-            if (recreateFromScratch) {
-                if (baseLineRevision != null) {
-                    throw new DbMaintainException("Unable to recreate the database from scratch: a baseline revision is set.\n" +
-                            "After clearing the database only scripts starting from the baseline revision would have been executed. The other scripts would have been ignored resulting in an inconsistent database state.\n" +
-                            "Please clear the baseline revision if you want to perform a from scratch update.\n" +
-                            "Another option is to explicitly clear the database using the clear task and then performing the update.");
-                }
-                logger.info("The database is cleared, and all database scripts are executed.");
-                if (!dryRun) {
-                    dbClearer.clearDatabase();
-                    executedScriptInfoSource.resetCachedState();
-                    executeScripts(scriptRepository.getAllUpdateScripts());
-                }
+        if (!dryRun && !scriptUpdates.hasIrregularScriptUpdates()) {
+            updateCheckSumsOfExecutedScriptsRegisteredWithOtherAlgorithm();
+        }
+
+        if (scriptUpdates.isEmpty()) {
+            logger.info("The database is up to date");
+            return false;
+        }
+
+        boolean recreateFromScratch = false;
+        if (fromScratchEnabled && isInitialDatabaseUpdate()) {
+            logger.info("The database is updated for the first time. The database is cleared to be sure that we start with a clean database");
+            recreateFromScratch = true;
+        }
+
+        if (scriptUpdates.hasIrregularScriptUpdates()) {
+            if (fromScratchEnabled) {
+                // Recreate the database from scratch
+                logger.info("The database is recreated from scratch, since following irregular script updates were detected:\n" + scriptUpdatesFormatter.formatScriptUpdates(scriptUpdates.getIrregularScriptUpdates()));
+                recreateFromScratch = true;
             } else {
-                logger.info("The database is updated incrementally, since following regular script updates were detected:\n" + scriptUpdatesFormatter.formatScriptUpdates(scriptUpdates.getRegularScriptUpdates()));
-                if (!dryRun) {
-                    // If the disable constraints option is enabled, disable all FK and not null constraints
-                    if (disableConstraints) {
-                        constraintsDisabler.disableConstraints();
-                    }
-                    // If cleandb is enabled, remove all data from the database.
-                    if (cleanDb) {
-                        dbCleaner.cleanDatabase();
-                    }
-                    // If there are incremental patch scripts with a lower index and the option allowOutOfSequenceExecutionOfPatches
-                    // is enabled, execute them first
-                    executeScriptUpdates(scriptUpdates.getRegularlyAddedPatchScripts());
-                    // Execute all new incremental and all new or modified repeatable scripts
-                    executeScriptUpdates(scriptUpdates.getRegularlyAddedOrModifiedScripts());
-                    // If repeatable scripts were removed, also remove them from the executed scripts
-                    removeDeletedRepeatableScriptsFromExecutedScripts(scriptUpdates.getRegularlyDeletedRepeatableScripts());
-                    // If regular script renames were detected, update the executed script records to reflect this
-                    performRegularScriptRenamesInExecutedScripts(scriptUpdates.getRegularlyRenamedScripts());
-                }
-            }
-            if (scriptUpdates.noUpdatesOtherThanRepeatableScriptDeletionsOrRenames()) {
-                logger.info("No script updates were detected, except for repeatable script deletions and script renames. Therefore, actions such as the execution of postprocessing scripts and disabling the constraints are skipped.");
-                return false;
+                throw new DbMaintainException("Following irregular script updates were detected:\n" + scriptUpdatesFormatter.formatScriptUpdates(scriptUpdates.getIrregularScriptUpdates()) +
+                        "\nBecause of this, dbmaintain can't perform the update. To solve this problem, you can do one of the following:\n" +
+                        "  1: Revert the irregular updates and use regular script updates instead\n" +
+                        "  2: Enable the fromScratch option so that the database is recreated from scratch (all data will be lost)\n" +
+                        "  3: Perform the updates manually on the database and invoke the markDatabaseAsUpToDate operation (error prone)\n");
             }
+        }
 
+        if (recreateFromScratch) {
+            if (baseLineRevision != null) {
+                throw new DbMaintainException("Unable to recreate the database from scratch: a baseline revision is set.\n" +
+                        "After clearing the database only scripts starting from the baseline revision would have been executed. The other scripts would have been ignored resulting in an inconsistent database state.\n" +
+                        "Please clear the baseline revision if you want to perform a from scratch update.\n" +
+                        "Another option is to explicitly clear the database using the clear task and then performing the update.");
+            }
+            logger.info("The database is cleared, and all database scripts are executed.");
+            if (!dryRun) {
+                dbClearer.clearDatabase();
+                executedScriptInfoSource.resetCachedState();
+                executeScripts(scriptRepository.getAllUpdateScripts());
+            }
+        } else {
+            logger.info("The database is updated incrementally, since following regular script updates were detected:\n" + scriptUpdatesFormatter.formatScriptUpdates(scriptUpdates.getRegularScriptUpdates()));
             if (!dryRun) {
-                // Execute all post processing scripts
-                executePostprocessingScripts();
-
                 // If the disable constraints option is enabled, disable all FK and not null constraints
                 if (disableConstraints) {
                     constraintsDisabler.disableConstraints();
                 }
-                // the scripts could have added data, if cleandb is enabled, remove all data from the database.
+                // If cleandb is enabled, remove all data from the database.
                 if (cleanDb) {
                     dbCleaner.cleanDatabase();
                 }
-                // If the update sequences option is enabled, update all sequences to have a value equal to or higher than the configured threshold
-                if (updateSequences) {
-                    sequenceUpdater.updateSequences();
+                // If there are incremental patch scripts with a lower index and the option allowOutOfSequenceExecutionOfPatches
+                // is enabled, execute them first
+                executeScriptUpdates(scriptUpdates.getRegularlyAddedPatchScripts());
+                // Execute all new incremental and all new or modified repeatable scripts
+                executeScriptUpdates(scriptUpdates.getRegularlyAddedOrModifiedScripts());
+                // If repeatable scripts were removed, also remove them from the executed scripts and if regular
+                // script renames were detected, update the executed script records to reflect this
+                removeDeletedAndRenamedScriptsFromExecutedScripts(scriptUpdates.getRegularlyDeletedRepeatableScripts(), scriptUpdates.getRegularlyRenamedScripts());
+            }
+        }
+        if (scriptUpdates.noUpdatesOtherThanRepeatableScriptDeletionsOrRenames()) {
+            logger.info("No script updates were detected, except for repeatable script deletions and script renames. Therefore, actions such as the execution of postprocessing scripts and disabling the constraints are skipped.");
+            return false;
+        }
+
+        if (!dryRun) {
+            // Execute all post processing scripts
+            executePostprocessingScripts();
+
+            // If the disable constraints option is enabled, disable all FK and not null constraints
+            if (disableConstraints) {
+                constraintsDisabler.disableConstraints();
+            }
+            // the scripts could have added data, if cleandb is enabled, remove all data from the database.
+            if (cleanDb) {
+                dbCleaner.cleanDatabase();
+            }
+            // If the update sequences option is enabled, update all sequences to have a value equal to or higher than the configured threshold
+            if (updateSequences) {
+                sequenceUpdater.updateSequences();
+            }
+            logger.info("The database has been updated successfully.");
+        }
+        return true;
+    }
+
+
+    /**
+     * This operation checks whether the database is up to date, without performing any updates. If the check sums of all
+     * scripts are known without reading their content, e.g. from a script archive index or a check sum index, and the
+     * fingerprint of the scripts equals the fingerprint that was registered at the end of the last successful update,
+     * the database is up to date without analyzing the executed scripts. Otherwise, the script updates are calculated
+     * as during an update.
+     *
+     * @return whether the database is up to date
+     */
+    public boolean isDatabaseUpToDate() {
+        try {
+            if (executedScriptInfoSource.isScriptsFingerprintSupported() && scriptRepository.isFingerprintAvailable()) {
+                String registeredScriptsFingerprint = executedScriptInfoSource.getScriptsFingerprint();
+                if (registeredScriptsFingerprint != null && registeredScriptsFingerprint.equals(getScriptsFingerprint())) {
+                    logger.info("The database is up to date: the scripts did not change since the last update");
+                    return true;
                 }
-                logger.info("The database has been updated successfully.");
             }
-            return true;
+            if (!getScriptUpdates().isEmpty()) {
+                return false;
+            }
+            return getIncrementalScriptsThatFailedDuringLastUpdate().isEmpty() && getRepeatableScriptsThatFailedDuringLastUpdate().isEmpty();
 
         } finally {
             sqlHandler.closeAllConnections();
+            scriptRepository.close();
         }
     }
 
 
+    /**
+     * Registers the fingerprint of the scripts after a successful update, so that {@link #isDatabaseUpToDate} can
+     * find out without analyzing the executed scripts that the database is still up to date.
+     */
+    protected void registerScriptsFingerprint() {
+        if (!executedScriptInfoSource.isScriptsFingerprintSupported()) {
+            return;
+        }
+        if (!executedScriptInfoSource.registerScriptsFingerprint(getScriptsFingerprint())) {
+            logger.debug("The fingerprint of the scripts was not registered: the executed scripts were changed by another process.");
+        }
+    }
+
+
+    /**
+     * @return The fingerprint of all scripts, not null
+     */
+    protected String getScriptsFingerprint() {
+        if (checkSumParallelism > 1) {
+            scriptRepository.calculateCheckSums(checkSumParallelism);
+        }
+        return scriptRepository.getFingerprint();
+    }
+
+
     /**
      * This operation calcutes and logs which script updates have been performed since the last database update.
      *
      * @return the scripts that have been updated since the last database update
      */
     public ScriptUpdates getScriptUpdates() {
+        // When last modification dates are used, most check sums are never needed: only calculate them up front
+        // when all scripts are compared by content
+        if (checkSumParallelism > 1 && !useScriptFileLastModificationDates) {
+            long startTimeMs = currentTimeMillis();
+            scriptRepository.calculateCheckSums(checkSumParallelism);
+            logger.debug("Calculated the check sums of all scripts using " + checkSumParallelism + " threads (" + (currentTimeMillis() - startTimeMs) + " ms)");
+        }
         return new ScriptUpdatesAnalyzer(scriptRepository, executedScriptInfoSource, useScriptFileLastModificationDates,
                 allowOutOfSequenceExecutionOfPatchScripts).calculateScriptUpdates();
     }
@@ -317,25 +446,58 @@ public class DefaultDbMaintainer implements DbMaintainer {
 
     /**
      * Removes all executed scripts that indicate repeatable scripts that were removed since the last database update
+     * and updates the records in the DBMAINTAIN_SCRIPTS table for all scripts that were regularly renamed (i.e. renamed
+     * without changing the order of the incremental scripts). The already executed scripts are looked up only once
+     * and all deletions and renames are written to the DBMAINTAIN_SCRIPTS table in a single transaction.
      *
      * @param repeatableScriptDeletions The scripts that were removed since the last database updates
+     * @param regularScriptRenames      The scripts that were regularly renamed
      */
-    protected void removeDeletedRepeatableScriptsFromExecutedScripts(SortedSet<ScriptUpdate> repeatableScriptDeletions) {
+    protected void removeDeletedAndRenamedScriptsFromExecutedScripts(SortedSet<ScriptUpdate> repeatableScriptDeletions, SortedSet<ScriptUpdate> regularScriptRenames) {
+        if (repeatableScriptDeletions.isEmpty() && regularScriptRenames.isEmpty()) {
+            return;
+        }
+        Map<Script, ExecutedScript> alreadyExecutedScripts = getAlreadyExecutedScripts();
+
+        List<ExecutedScript> deletedExecutedScripts = new ArrayList<ExecutedScript>(repeatableScriptDeletions.size());
         for (ScriptUpdate deletedRepeatableScriptUpdate : repeatableScriptDeletions) {
-            executedScriptInfoSource.deleteExecutedScript(getAlreadyExecutedScripts().get(deletedRepeatableScriptUpdate.getScript()));
+            deletedExecutedScripts.add(alreadyExecutedScripts.remove(deletedRepeatableScriptUpdate.getScript()));
+        }
+        Map<ExecutedScript, Script> renamedExecutedScripts = new LinkedHashMap<ExecutedScript, Script>();
+        for (ScriptUpdate regularScriptRename : regularScriptRenames) {
+            ExecutedScript executedScript = alreadyExecutedScripts.remove(regularScriptRename.getScript());
+            renamedExecutedScripts.put(executedScript, regularScriptRename.getRenamedToScript());
         }
+        executedScriptInfoSource.deleteAndRenameExecutedScripts(deletedExecutedScripts, renamedExecutedScripts);
     }
 
 
     /**
-     * Updates the records in the DBMAINTAIN_SCRIPTS table for all scripts that were regularly renamed (i.e. renamed
-     * without changing the order of the incremental scripts.
-     *
-     * @param regularScriptRenames the scripts that were regularly renamed
+     * Rewrites the check sums in the DBMAINTAIN_SCRIPTS table that were calculated with another algorithm than the one
+     * that is currently configured, e.g. after switching from MD5 to MURMUR3-128. Only the records of successfully executed
+     * scripts of which the content did not change are rewritten. All records are updated in a single transaction, so that
+     * the old check sums only need to be recalculated once.
      */
-    protected void performRegularScriptRenamesInExecutedScripts(SortedSet<ScriptUpdate> regularScriptRenames) {
-        for (ScriptUpdate regularScriptRename : regularScriptRenames) {
-            executedScriptInfoSource.renameExecutedScript(getAlreadyExecutedScripts().get(regularScriptRename.getScript()), regularScriptRename.getRenamedToScript());
+    protected void updateCheckSumsOfExecutedScriptsRegisteredWithOtherAlgorithm() {
+        Map<String, Script> scriptNameScriptMap = new HashMap<String, Script>();
+        for (Script script : scriptRepository.getAllScripts()) {
+            scriptNameScriptMap.put(script.getFileName(), script);
+        }
+        List<ExecutedScript> executedScriptsToUpdate = new ArrayList<ExecutedScript>();
+        for (ExecutedScript executedScript : executedScriptInfoSource.getExecutedScripts()) {
+            Script script = scriptNameScriptMap.get(executedScript.getScript().getFileName());
+            if (script == null || !executedScript.isSuccessful()
+                    || script.getCheckSumAlgorithm().equalsIgnoreCase(executedScript.getScript().getCheckSumAlgorithm())) {
+                continue;
+            }
+            if (script.isScriptContentEqualTo(executedScript.getScript(), useScriptFileLastModificationDates)) {
+                executedScript.renameTo(script);
+                executedScriptsToUpdate.add(executedScript);
+            }
+        }
+        if (!executedScriptsToUpdate.isEmpty()) {
+            logger.info("Updating the check sums of " + executedScriptsToUpdate.size() + " executed scripts to the configured check sum algorithm.");
+            executedScriptInfoSource.updateExecutedScripts(executedScriptsToUpdate);
         }
     }
 
@@ -350,12 +512,16 @@ public class DefaultDbMaintainer implements DbMaintainer {
             executedScriptInfoSource.clearAllExecutedScripts();
 
             SortedSet<Script> allScripts = scriptRepository.getAllScripts();
+            List<ExecutedScript> executedScripts = new ArrayList<ExecutedScript>(allScripts.size());
             for (Script script : allScripts) {
-                executedScriptInfoSource.registerExecutedScript(new ExecutedScript(script, new Date(), true));
+                executedScripts.add(new ExecutedScript(script, new Date(), true));
             }
+            executedScriptInfoSource.registerExecutedScripts(executedScripts);
+            registerScriptsFingerprint();
             logger.info("The database has been marked as up-to-date");
         } finally {
             sqlHandler.closeAllConnections();
+            scriptRepository.close();
         }
     }
 
@@ -364,24 +530,270 @@ public class DefaultDbMaintainer implements DbMaintainer {
      * each successful script execution, the script execution is registered in the database and marked
      * as successful. If a script execution fails, the script execution is registered in the database
      * and marked as unsuccessful.
+     * <p/>
+     * If the database lane parallelism is larger than 1, the script updates are split in lanes per target database.
+     * The lanes are executed concurrently, the scripts of a lane are executed in their original order. Otherwise, if
+     * the repeatable script parallelism is larger than 1, consecutive repeatable scripts are executed concurrently
+     * as far as their dependencies allow it.
+     * <p/>
+     * Scripts that are executed concurrently run on worker threads that each use their own connections. Session state
+     * that a script sets up, e.g. an alter session statement or a temporary table, is therefore not visible to scripts
+     * that run on another thread. The worker threads are reused during the update and their connections are closed
+     * when the update ends.
      *
      * @param scriptUpdates the script updates to be executed
      */
     protected void executeScriptUpdates(SortedSet<ScriptUpdate> scriptUpdates) {
         scriptRunner.initialize();
         try {
+            Map<String, List<ScriptUpdate>> databaseLanes = null;
+            if (databaseLaneParallelism > 1) {
+                databaseLanes = getDatabaseLanes(scriptUpdates);
+            }
+            if (databaseLanes != null && databaseLanes.size() > 1) {
+                executeDatabaseLanes(databaseLanes);
+                return;
+            }
+            List<ScriptUpdate> repeatableScriptUpdates = new ArrayList<ScriptUpdate>();
             for (ScriptUpdate scriptUpdate : scriptUpdates) {
-                long startTimeMs = currentTimeMillis();
-                executeScript(scriptUpdate.getScript());
-                long durationMs = currentTimeMillis() - startTimeMs;
-                logger.info("Executed " + scriptUpdatesFormatter.formatScriptUpdate(scriptUpdate) + " (" + durationMs + " ms)");
+                if (repeatableScriptParallelism > 1 && scriptUpdate.getScript().isRepeatable()) {
+                    repeatableScriptUpdates.add(scriptUpdate);
+                    continue;
+                }
+                // the repeatable scripts before an incremental script are executed before the incremental script
+                executeRepeatableScriptUpdates(repeatableScriptUpdates);
+                executeScriptUpdate(scriptUpdate);
             }
+            executeRepeatableScriptUpdates(repeatableScriptUpdates);
         } finally {
+            shutdownWorkerExecutorService();
             scriptRunner.close();
         }
     }
 
 
+    /**
+     * Gets the worker threads that execute scripts concurrently. The threads are started the first time and are reused
+     * for the rest of the update. When a worker thread ends, the connections it used are closed.
+     *
+     * @param nrOfThreads The nr of threads to start if the worker threads were not started yet
+     * @return The executor service, not null
+     */
+    protected ExecutorService getWorkerExecutorService(int nrOfThreads) {
+        if (workerExecutorService == null) {
+            workerExecutorService = Executors.newFixedThreadPool(nrOfThreads, new ThreadFactory() {
+
+                private ThreadFactory defaultThreadFactory = Executors.defaultThreadFactory();
+
+                public Thread newThread(final Runnable runnable) {
+                    return defaultThreadFactory.newThread(new Runnable() {
+                        public void run() {
+                            try {
+                                runnable.run();
+                            } finally {
+                                sqlHandler.closeConnectionsOfCurrentThread();
+                            }
+                        }
+                    });
+                }
+            });
+        }
+        return workerExecutorService;
+    }
+
+
+    /**
+     * Stops the worker threads, if they were started. The scripts they executed have all finished at this point.
+     */
+    protected void shutdownWorkerExecutorService() {
+        if (workerExecutorService != null) {
+            workerExecutorService.shutdownNow();
+            workerExecutorService = null;
+        }
+    }
+
+
+    /**
+     * @param scriptUpdate The script update to execute, not null
+     */
+    protected void executeScriptUpdate(ScriptUpdate scriptUpdate) {
+        long startTimeMs = currentTimeMillis();
+        executeScript(scriptUpdate.getScript());
+        long durationMs = currentTimeMillis() - startTimeMs;
+        logger.info("Executed " + scriptUpdatesFormatter.formatScriptUpdate(scriptUpdate) + " (" + durationMs + " ms)");
+    }
+
+
+    /**
+     * Splits the given script updates in lanes per target database. Scripts without target database belong to the lane
+     * of the default database.
+     *
+     * @param scriptUpdates The script updates, not null
+     * @return The script updates per target database name, in the order of the given script updates, not null
+     */
+    protected Map<String, List<ScriptUpdate>> getDatabaseLanes(SortedSet<ScriptUpdate> scriptUpdates) {
+        String defaultDatabaseName = databases.getDefaultDatabase().getDatabaseName();
+        Map<String, List<ScriptUpdate>> databaseLanes = new LinkedHashMap<String, List<ScriptUpdate>>();
+        for (ScriptUpdate scriptUpdate : scriptUpdates) {
+            String databaseName = scriptUpdate.getScript().getTargetDatabaseName();
+            if (databaseName == null) {
+                databaseName = defaultDatabaseName;
+            }
+            List<ScriptUpdate> databaseLane = databaseLanes.get(databaseName);
+            if (databaseLane == null) {
+                databaseLane = new ArrayList<ScriptUpdate>();
+                databaseLanes.put(databaseName, databaseLane);
+            }
+            databaseLane.add(scriptUpdate);
+        }
+        return databaseLanes;
+    }
+
+
+    /**
+     * Executes the given lanes concurrently. If a script of a lane fails, the other lanes do not start any new scripts
+     * and the error of the first failing script is thrown once all running scripts have finished. Every lane uses its
+     * own connections, so the registration of a script never ends up in the transaction of a script of another lane.
+     *
+     * @param databaseLanes The script updates per target database name, not null
+     */
+    protected void executeDatabaseLanes(Map<String, List<ScriptUpdate>> databaseLanes) {
+        // the error of the first failing script, also signals the other lanes to stop
+        final AtomicReference<RuntimeException> firstFailure = new AtomicReference<RuntimeException>();
+        List<Callable<Void>> laneExecutions = new ArrayList<Callable<Void>>(databaseLanes.size());
+        for (final Map.Entry<String, List<ScriptUpdate>> databaseLane : databaseLanes.entrySet()) {
+            laneExecutions.add(new Callable<Void>() {
+                public Void call() {
+                    for (ScriptUpdate scriptUpdate : databaseLane.getValue()) {
+                        if (firstFailure.get() != null) {
+                            return null;
+                        }
+                        try {
+                            executeScriptUpdate(scriptUpdate);
+                        } catch (RuntimeException e) {
+                            firstFailure.compareAndSet(null, e);
+                            throw e;
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+        ExecutorService executorService = getWorkerExecutorService(Math.min(databaseLaneParallelism, databaseLanes.size()));
+        try {
+            // wait for all lanes, so that no script is still running when the update ends
+            executorService.invokeAll(laneExecutions);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbMaintainException("Interrupted while executing the scripts.", e);
+        }
+        RuntimeException failure = firstFailure.get();
+        if (failure instanceof DbMaintainException) {
+            throw failure;
+        }
+        if (failure != null) {
+            throw new DbMaintainException("Unable to execute the scripts.", failure);
+        }
+    }
+
+
+    /**
+     * Executes the given repeatable script updates concurrently, as far as the dependencies that are declared in the
+     * scripts allow it, and clears the list. A script is only started once the scripts it depends on were executed.
+     * If the dependencies contain a cycle, the scripts are executed one after another in their original order. If a
+     * script fails, no new scripts are started and the error is thrown once the running scripts have finished.
+     *
+     * @param scriptUpdates The repeatable script updates, in their original order, not null
+     */
+    protected void executeRepeatableScriptUpdates(List<ScriptUpdate> scriptUpdates) {
+        if (scriptUpdates.size() <= 1) {
+            for (ScriptUpdate scriptUpdate : scriptUpdates) {
+                executeScriptUpdate(scriptUpdate);
+            }
+            scriptUpdates.clear();
+            return;
+        }
+        Map<Script, ScriptUpdate> scriptUpdatesPerScript = new HashMap<Script, ScriptUpdate>();
+        List<Script> scripts = new ArrayList<Script>(scriptUpdates.size());
+        for (ScriptUpdate scriptUpdate : scriptUpdates) {
+            scriptUpdatesPerScript.put(scriptUpdate.getScript(), scriptUpdate);
+            scripts.add(scriptUpdate.getScript());
+        }
+        ScriptDependencyGraph scriptDependencyGraph = new ScriptDependencyGraph(scripts);
+        List<Script> scriptsInCycle = scriptDependencyGraph.getScriptsInCycle();
+        if (!scriptsInCycle.isEmpty()) {
+            logger.warn("The dependencies of following repeatable scripts contain a cycle: " + scriptsInCycle + ". The repeatable scripts are executed one after another.");
+            for (ScriptUpdate scriptUpdate : scriptUpdates) {
+                executeScriptUpdate(scriptUpdate);
+            }
+            scriptUpdates.clear();
+            return;
+        }
+
+        CompletionService<Script> completionService = new ExecutorCompletionService<Script>(getWorkerExecutorService(repeatableScriptParallelism));
+        Map<Script, Integer> nrOfPendingDependencies = new HashMap<Script, Integer>();
+        DbMaintainException scriptError = null;
+        int nrOfRunningScripts = 0;
+        try {
+            for (Script script : scripts) {
+                int nrOfDependencies = scriptDependencyGraph.getDependencies(script).size();
+                nrOfPendingDependencies.put(script, nrOfDependencies);
+                if (nrOfDependencies == 0) {
+                    submitScriptUpdate(completionService, scriptUpdatesPerScript.get(script));
+                    nrOfRunningScripts++;
+                }
+            }
+            while (nrOfRunningScripts > 0) {
+                Future<Script> scriptResult = completionService.take();
+                nrOfRunningScripts--;
+                Script script;
+                try {
+                    script = scriptResult.get();
+                } catch (ExecutionException e) {
+                    if (scriptError == null) {
+                        scriptError = e.getCause() instanceof DbMaintainException ? (DbMaintainException) e.getCause() : new DbMaintainException("Unable to execute the scripts.", e.getCause());
+                    }
+                    continue;
+                }
+                if (scriptError != null) {
+                    continue;
+                }
+                for (Script dependent : scriptDependencyGraph.getDependents(script)) {
+                    int nrOfDependencies = nrOfPendingDependencies.get(dependent) - 1;
+                    nrOfPendingDependencies.put(dependent, nrOfDependencies);
+                    if (nrOfDependencies == 0) {
+                        submitScriptUpdate(completionService, scriptUpdatesPerScript.get(dependent));
+                        nrOfRunningScripts++;
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbMaintainException("Interrupted while executing the repeatable scripts.", e);
+        }
+        if (scriptError != null) {
+            throw scriptError;
+        }
+        scriptUpdates.clear();
+    }
+
+
+    /**
+     * Starts the execution of the given script update on a thread of the given completion service.
+     *
+     * @param completionService The completion service, not null
+     * @param scriptUpdate      The script update, not null
+     */
+    protected void submitScriptUpdate(CompletionService<Script> completionService, final ScriptUpdate scriptUpdate) {
+        completionService.submit(new Callable<Script>() {
+            public Script call() {
+                executeScriptUpdate(scriptUpdate);
+                return scriptUpdate.getScript();
+            }
+        });
+    }
+
+
     /**
      * Executes the given scripts and updates the database execution registry appropriately. After
      * each successful script execution, the script execution is registered in the database and marked
@@ -412,24 +824,89 @@ public class DefaultDbMaintainer implements DbMaintainer {
      * @param script The script to execute, not null
      */
     protected void executeScript(Script script) {
+        ExecutedScript executedScript = null;
         try {
             // We register the script execution, but we indicate it to be unsuccessful. If anything goes wrong or if the update is
             // interrupted before being completed, this will be the final state and the DbMaintainer will do a from-scratch update the next time
-            ExecutedScript executedScript = new ExecutedScript(script, new Date(), false);
-            executedScriptInfoSource.registerExecutedScript(executedScript);
+            // If the check sum is calculated while executing, the script is registered without check sum: reading the script
+            // content only to register the check sum up front would double the amount of I/O
+            Script registeredScript = script;
+            if (calculateCheckSumWhileExecuting && !script.isCheckSumCalculated()) {
+                registeredScript = createScriptWithoutCheckSum(script);
+            }
+            executedScript = new ExecutedScript(registeredScript, new Date(), false);
+            registerExecutedScript(executedScript);
 
+            long startTimeMs = currentTimeMillis();
             scriptRunner.execute(script);
-            // We now register the previously registered script execution as being successful
+            // We now register the previously registered script execution as being successful, together with the check sum
+            // of the content that was executed
+            executedScript.renameTo(script);
             executedScript.setSuccessful(true);
-            executedScriptInfoSource.updateExecutedScript(executedScript);
+            executedScript.setExecutionTime(currentTimeMillis() - startTimeMs);
+            updateExecutedScript(executedScript);
 
         } catch (DbMaintainException e) {
+            if (executedScript != null && executedScript.getScript() != script) {
+                registerCheckSumOfFailedScript(executedScript, script);
+            }
             String message = getErrorMessage(script, e);
             throw new DbMaintainException(message, e.getCause());
         }
     }
 
 
+    /**
+     * @param script The script, not null
+     * @return A script without content and without check sum, with the same name and properties as the given script
+     */
+    protected Script createScriptWithoutCheckSum(Script script) {
+        return new Script(script.getFileName(), script.getScriptIndexes(), script.getTargetDatabaseName(), script.getFileLastModifiedAt(),
+                null, null, script.isPostProcessingScript(), script.isPatchScript(), script.isIgnored(), script.getQualifiers());
+    }
+
+
+    /**
+     * Registers the check sum of a script that was registered without check sum and of which the execution failed. This way,
+     * the next update can still find out whether the failed script was modified.
+     *
+     * @param executedScript The failed script execution, not null
+     * @param script         The script that failed, not null
+     */
+    protected void registerCheckSumOfFailedScript(ExecutedScript executedScript, Script script) {
+        try {
+            executedScript.renameTo(script);
+            updateExecutedScript(executedScript);
+        } catch (DbMaintainException e) {
+            logger.warn("Unable to register the check sum of failed script " + script.getFileName(), e);
+        }
+    }
+
+
+    /**
+     * Registers the given script execution. Script executions can be registered concurrently by several lanes.
+     *
+     * @param executedScript The script execution, not null
+     */
+    protected void registerExecutedScript(ExecutedScript executedScript) {
+        synchronized (executedScriptInfoSourceLock) {
+            executedScriptInfoSource.registerExecutedScript(executedScript);
+        }
+    }
+
+
+    /**
+     * Updates the given registered script execution. Script executions can be updated concurrently by several lanes.
+     *
+     * @param executedScript The script execution, not null
+     */
+    protected void updateExecutedScript(ExecutedScript executedScript) {
+        synchronized (executedScriptInfoSourceLock) {
+            executedScriptInfoSource.updateExecutedScript(executedScript);
+        }
+    }
+
+
     protected String getErrorMessage(Script script, DbMaintainException e) {
         String exceptionMessage = e.getMessage();
         Throwable cause = e.getCause();
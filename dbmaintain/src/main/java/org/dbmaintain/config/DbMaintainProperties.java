@@ -267,6 +267,18 @@ public class DbMaintainProperties {
     /* The key of the property that specifies the column in which is stored whether the last update succeeded. */
     public static final String PROPERTY_SUCCEEDED_COLUMN_NAME = "dbMaintainer.succeededColumnName";
 
+    /* The key of the property that specifies the column in which the script execution time is stored. */
+    public static final String PROPERTY_EXECUTION_TIME_COLUMN_NAME = "dbMaintainer.executionTimeColumnName";
+
+    /* The key of the property that specifies the layout version of the executed scripts table. */
+    public static final String PROPERTY_EXECUTED_SCRIPTS_TABLE_VERSION = "dbMaintainer.executedScriptsTableVersion";
+
+    /* The key of the property that specifies the table in which the change counter of the executed scripts table is stored. */
+    public static final String PROPERTY_EXECUTED_SCRIPTS_CHANGE_COUNTER_TABLE_NAME = "dbMaintainer.executedScriptsChangeCounterTableName";
+
+    /* The key of the property that specifies the nr of records that are fetched in one round trip when loading the executed scripts table. */
+    public static final String PROPERTY_EXECUTED_SCRIPTS_TABLE_FETCH_SIZE = "dbMaintainer.executedScriptsTableFetchSize";
+
     /* The key of the property that specifies whether the executed scripts table should be created automatically. */
     public static final String PROPERTY_AUTO_CREATE_DBMAINTAIN_SCRIPTS_TABLE = "dbMaintainer.autoCreateDbMaintainScriptsTable";
 
@@ -284,6 +296,11 @@ public class DbMaintainProperties {
 
     public static final String PROPERTY_IGNORE_CARRIAGE_RETURN_WHEN_CALCULATING_CHECK_SUM = "dbMaintainer.script.ignoreCarriageReturnsWhenCalculatingCheckSum";
 
+    /**
+     * Property key for the algorithm that is used to calculate the check sums of the scripts
+     */
+    public static final String PROPERTY_CHECK_SUM_ALGORITHM = "dbMaintainer.script.checkSumAlgorithm";
+
     /**
      * Property key for the directory in which the code script files are located
      */
@@ -301,6 +318,28 @@ public class DbMaintainProperties {
 
     public static final String PROPERTY_USESCRIPTFILELASTMODIFICATIONDATES = "dbMaintainer.useScriptFileLastModificationDates";
 
+    /**
+     * Property key that indicates whether the check sums of the scripts of a file system location are stored in a local
+     * index file, so that only touched scripts need to be read again
+     */
+    public static final String PROPERTY_USE_CHECK_SUM_INDEX = "dbMaintainer.script.useCheckSumIndex";
+
+    /**
+     * Property key for the nr of threads that is used to scan the directories of a file system script location
+     */
+    public static final String PROPERTY_SCRIPT_LOCATION_SCAN_PARALLELISM = "dbMaintainer.script.locationScanParallelism";
+
+    /**
+     * Property key for the nr of threads that is used to calculate the check sums of all scripts before they are analyzed
+     */
+    public static final String PROPERTY_CHECK_SUM_PARALLELISM = "dbMaintainer.script.checkSumParallelism";
+
+    /**
+     * Property key that indicates whether the check sum of a script is calculated while the script is read for executing it,
+     * instead of reading the script up front to register its check sum
+     */
+    public static final String PROPERTY_CALCULATE_CHECK_SUM_WHILE_EXECUTING = "dbMaintainer.script.calculateCheckSumWhileExecuting";
+
     public static final String PROPERTY_SCRIPT_ENCODING = "dbMaintainer.script.encoding";
 
     public static final String PROPERTY_SCRIPT_INDEX_REGEXP = "dbMaintainer.script.index.regexp";
@@ -309,6 +348,31 @@ public class DbMaintainProperties {
 
     public static final String PROPERTY_BACKSLASH_ESCAPING_ENABLED = "dbMaintainer.script.backSlashEscapingEnabled";
 
+    /**
+     * Property key for the max nr of consecutive DML statements of a script that are executed as a single JDBC batch
+     */
+    public static final String PROPERTY_STATEMENT_BATCH_SIZE = "dbMaintainer.script.statementBatchSize";
+
+    /**
+     * Property key for the max nr of statements of a script that are parsed ahead in a separate thread
+     */
+    public static final String PROPERTY_PARSER_QUEUE_SIZE = "dbMaintainer.script.parserQueueSize";
+
+    /**
+     * Property key for the max nr of statements of a parallel block in a script that are executed concurrently
+     */
+    public static final String PROPERTY_PARALLEL_BLOCK_PARALLELISM = "dbMaintainer.script.parallelBlockParallelism";
+
+    /**
+     * Property key for the nr of target databases of which the scripts are executed concurrently
+     */
+    public static final String PROPERTY_DATABASE_LANE_PARALLELISM = "dbMaintainer.script.databaseLaneParallelism";
+
+    /**
+     * Property key for the nr of repeatable scripts that are executed concurrently when their dependencies allow it
+     */
+    public static final String PROPERTY_REPEATABLE_SCRIPT_PARALLELISM = "dbMaintainer.script.repeatableScriptParallelism";
+
     public static final String PROPERTY_QUALIFIERS = "dbMaintainer.qualifiers";
 
     public static final String PROPERTY_EXCLUDED_QUALIFIERS = "dbMaintainer.excludedQualifiers";
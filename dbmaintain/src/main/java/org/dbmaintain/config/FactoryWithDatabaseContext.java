@@ -59,6 +59,18 @@ public class FactoryWithDatabaseContext extends FactoryContext {
         return getItemIdentifier(TABLE, defaultDatabase.getDefaultSchemaName(), executedScriptsTableName, defaultDatabase, true);
     }
 
+    /**
+     * @return The table with the change counter of the executed scripts table, null if no change counter is kept
+     */
+    public DbItemIdentifier getExecutedScriptsChangeCounterTable() {
+        String changeCounterTableName = getString(PROPERTY_EXECUTED_SCRIPTS_CHANGE_COUNTER_TABLE_NAME, null, getConfiguration());
+        if (changeCounterTableName == null) {
+            return null;
+        }
+        Database defaultDatabase = databases.getDefaultDatabase();
+        return getItemIdentifier(TABLE, defaultDatabase.getDefaultSchemaName(), changeCounterTableName, defaultDatabase, true);
+    }
+
     /**
      * @param propertyPreserveSchemas The preserve property name, not null
      * @return The configured set of schemas to preserve, not null
@@ -901,6 +901,24 @@ abstract public class Database {
         return "VARCHAR(" + length + ")";
     }
 
+    /**
+     * Gets the column type suitable to store values of the Java <code>java.sql.Timestamp</code> type.
+     *
+     * @return The column type, not null
+     */
+    public String getTimestampDataType() {
+        return "TIMESTAMP";
+    }
+
+    /**
+     * Gets the column type suitable to store values of the Java <code>java.lang.Boolean</code> type.
+     *
+     * @return The column type, not null
+     */
+    public String getBooleanDataType() {
+        return "BOOLEAN";
+    }
+
 
     /**
      * Qualifies the given database object name with the name of the default schema. Quotes are put around both
@@ -15,9 +15,11 @@
  */
 package org.dbmaintain.database;
 
+import org.apache.commons.dbutils.ResultSetHandler;
 import org.dbmaintain.util.DbMaintainException;
 
 import javax.sql.DataSource;
+import java.util.List;
 import java.util.Set;
 
 public interface SQLHandler {
@@ -39,6 +41,49 @@ public interface SQLHandler {
      */
     int executeUpdateAndCommit(String sql, DataSource dataSource);
 
+    /**
+     * Executes the given statement as a prepared statement with the given parameters and commits the changes to the
+     * database
+     *
+     * @param sql        The sql string with a ? for each parameter
+     * @param parameters The values of the parameters, not null
+     * @param dataSource The dataSource, not null
+     * @return The nr of updates
+     */
+    int executeUpdateAndCommit(String sql, Object[] parameters, DataSource dataSource);
+
+    /**
+     * Executes the given statement as a prepared statement with the given parameters. The changes are not committed:
+     * invoke this method in between {@link #startTransaction} and {@link #endTransactionAndCommit} to commit it
+     * together with other changes.
+     *
+     * @param sql        The sql string with a ? for each parameter
+     * @param parameters The values of the parameters, not null
+     * @param dataSource The dataSource, not null
+     * @return The nr of updates
+     */
+    int executeUpdate(String sql, Object[] parameters, DataSource dataSource);
+
+    /**
+     * Executes the given statement as a prepared statement once for every given set of parameters. The executions are
+     * sent to the database in batches. The changes are not committed: invoke this method in between
+     * {@link #startTransaction} and {@link #endTransactionAndCommit} to commit all changes at once.
+     *
+     * @param sql           The sql string with a ? for each parameter
+     * @param parameterSets The values of the parameters, one array for each execution, not null
+     * @param dataSource    The dataSource, not null
+     */
+    void executeBatch(String sql, List<Object[]> parameterSets, DataSource dataSource);
+
+    /**
+     * Executes the given statements as a single JDBC batch. The changes are not committed. If one of the statements
+     * fails, the thrown exception mentions the failing statement if the driver reports which one it was.
+     *
+     * @param statements The sql statements, not null
+     * @param dataSource The dataSource, not null
+     */
+    void executeBatch(List<String> statements, DataSource dataSource);
+
     /**
      * Returns the long extracted from the result of the given query. If no value is found, a {@link DbMaintainException}
      * is thrown.
@@ -68,6 +113,19 @@ public interface SQLHandler {
      */
     Set<String> getItemsAsStringSet(String sql, DataSource dataSource);
 
+    /**
+     * Executes the given query and passes the result set to the given handler. The records are fetched from the
+     * database while the handler iterates over the result set, in round trips of the given fetch size, so that large
+     * results do not have to be held in memory by the driver.
+     *
+     * @param sql              The sql string for retrieving the records
+     * @param fetchSize        The nr of records to fetch in one round trip, 0 to use the default of the driver
+     * @param resultSetHandler The handler that processes the records, not null
+     * @param dataSource       The dataSource, not null
+     * @return The value returned by the handler
+     */
+    Object executeQuery(String sql, int fetchSize, ResultSetHandler resultSetHandler, DataSource dataSource);
+
     /**
      * Returns true if the query returned a record.
      *
@@ -109,4 +167,11 @@ public interface SQLHandler {
      */
     void closeAllConnections();
 
+    /**
+     * Closes the connections that were created and cached by this SQLHandler for the current thread. Invoke this
+     * method when a worker thread that executed statements ends, so that its connections are not kept open until
+     * {@link #closeAllConnections} is invoked.
+     */
+    void closeConnectionsOfCurrentThread();
+
 }
\ No newline at end of file
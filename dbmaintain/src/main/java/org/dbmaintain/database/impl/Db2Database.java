@@ -296,4 +296,15 @@ public class Db2Database extends Database {
     public boolean supportsSetDatabaseDefaultSchema() {
         return true;
     }
+
+
+    /**
+     * Gets the column type suitable to store values of the Java <code>java.lang.Boolean</code> type.
+     *
+     * @return The column type, not null
+     */
+    @Override
+    public String getBooleanDataType() {
+        return "SMALLINT";
+    }
 }
\ No newline at end of file
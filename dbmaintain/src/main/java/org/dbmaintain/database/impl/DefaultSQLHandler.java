@@ -15,18 +15,24 @@
  */
 package org.dbmaintain.database.impl;
 
+import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.dbmaintain.database.DatabaseException;
 import org.dbmaintain.database.SQLHandler;
 
 import javax.sql.DataSource;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -45,6 +51,9 @@ public class DefaultSQLHandler implements SQLHandler {
     /* The logger instance for this class */
     private static Log logger = LogFactory.getLog(DefaultSQLHandler.class);
 
+    /* The maximum nr of executions that are sent to the database in a single batch */
+    private static final int MAX_BATCH_SIZE = 1000;
+
 
     /* 
      * Boolean that indicates whether database updates have to executed on the database or not. Setting this value
@@ -53,7 +62,8 @@ public class DefaultSQLHandler implements SQLHandler {
     private boolean doExecuteUpdates;
 
 
-    private Map<DataSource, Connection> cachedConnections = new HashMap<DataSource, Connection>();
+    /* The cached connections per thread: scripts that are executed concurrently each use their own connections */
+    private Map<Thread, Map<DataSource, Connection>> cachedConnections = new HashMap<Thread, Map<DataSource, Connection>>();
 
     /**
      * Constructs a new instance that connects to the given DataSource
@@ -119,6 +129,142 @@ public class DefaultSQLHandler implements SQLHandler {
     }
 
 
+    public int executeUpdateAndCommit(String sql, Object[] parameters, DataSource dataSource) {
+        logger.debug(sql + " " + Arrays.asList(parameters));
+
+        if (!doExecuteUpdates) {
+            // skip update
+            return 0;
+        }
+        PreparedStatement preparedStatement = null;
+        try {
+            Connection connection = getConnection(dataSource);
+            preparedStatement = connection.prepareStatement(sql);
+            setParameters(preparedStatement, parameters);
+            int nbChanges = preparedStatement.executeUpdate();
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+            return nbChanges;
+
+        } catch (Exception e) {
+            throw new DatabaseException("Error while performing database update:\n" + sql + "\nParameters: " + Arrays.asList(parameters), e);
+        } finally {
+            closeQuietly(preparedStatement);
+        }
+    }
+
+
+    public int executeUpdate(String sql, Object[] parameters, DataSource dataSource) {
+        logger.debug(sql + " " + Arrays.asList(parameters));
+
+        if (!doExecuteUpdates) {
+            // skip update
+            return 0;
+        }
+        PreparedStatement preparedStatement = null;
+        try {
+            preparedStatement = getConnection(dataSource).prepareStatement(sql);
+            setParameters(preparedStatement, parameters);
+            return preparedStatement.executeUpdate();
+
+        } catch (Exception e) {
+            throw new DatabaseException("Error while performing database update:\n" + sql + "\nParameters: " + Arrays.asList(parameters), e);
+        } finally {
+            closeQuietly(preparedStatement);
+        }
+    }
+
+
+    public void executeBatch(String sql, List<Object[]> parameterSets, DataSource dataSource) {
+        logger.debug(sql + " (" + parameterSets.size() + " executions)");
+
+        if (!doExecuteUpdates || parameterSets.isEmpty()) {
+            // skip update
+            return;
+        }
+        PreparedStatement preparedStatement = null;
+        try {
+            preparedStatement = getConnection(dataSource).prepareStatement(sql);
+            int batchSize = 0;
+            for (Object[] parameters : parameterSets) {
+                setParameters(preparedStatement, parameters);
+                preparedStatement.addBatch();
+                if (++batchSize == MAX_BATCH_SIZE) {
+                    preparedStatement.executeBatch();
+                    batchSize = 0;
+                }
+            }
+            if (batchSize > 0) {
+                preparedStatement.executeBatch();
+            }
+
+        } catch (Exception e) {
+            throw new DatabaseException("Error while performing database batch update:\n" + sql, e);
+        } finally {
+            closeQuietly(preparedStatement);
+        }
+    }
+
+
+    public void executeBatch(List<String> statements, DataSource dataSource) {
+        if (logger.isDebugEnabled()) {
+            for (String sql : statements) {
+                logger.debug(sql);
+            }
+        }
+
+        if (!doExecuteUpdates || statements.isEmpty()) {
+            // skip update
+            return;
+        }
+        Statement statement = null;
+        try {
+            statement = getConnection(dataSource).createStatement();
+            for (String sql : statements) {
+                statement.addBatch(sql);
+            }
+            statement.executeBatch();
+
+        } catch (BatchUpdateException e) {
+            String failedStatement = getFailedBatchStatement(statements, e.getUpdateCounts());
+            if (failedStatement == null) {
+                throw new DatabaseException("Could not perform batch of " + statements.size() + " database statements, starting with: " + statements.get(0), e);
+            }
+            throw new DatabaseException("Could not perform database statement: " + failedStatement, e);
+        } catch (Exception e) {
+            throw new DatabaseException("Could not perform batch of " + statements.size() + " database statements, starting with: " + statements.get(0), e);
+        } finally {
+            closeQuietly(statement);
+        }
+    }
+
+
+    /**
+     * Determines the failed statement of a batch from the update counts of the batch update exception. Drivers that
+     * stop at the first failure only return the update counts of the statements before it, other drivers mark the
+     * failed statements with {@link Statement#EXECUTE_FAILED}.
+     *
+     * @param statements   The statements of the batch, not null
+     * @param updateCounts The update counts reported by the driver, null if not available
+     * @return The failed statement, null if it cannot be determined
+     */
+    protected String getFailedBatchStatement(List<String> statements, int[] updateCounts) {
+        if (updateCounts == null) {
+            return null;
+        }
+        for (int i = 0; i < updateCounts.length && i < statements.size(); i++) {
+            if (updateCounts[i] == Statement.EXECUTE_FAILED) {
+                return statements.get(i);
+            }
+        }
+        if (updateCounts.length < statements.size()) {
+            return statements.get(updateCounts.length);
+        }
+        return null;
+    }
+
+
     public long getItemAsLong(String sql, DataSource dataSource) {
         logger.debug(sql);
 
@@ -183,6 +329,27 @@ public class DefaultSQLHandler implements SQLHandler {
     }
 
 
+    public Object executeQuery(String sql, int fetchSize, ResultSetHandler resultSetHandler, DataSource dataSource) {
+        logger.debug(sql);
+
+        Statement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = getConnection(dataSource).createStatement();
+            if (fetchSize > 0) {
+                statement.setFetchSize(fetchSize);
+            }
+            resultSet = statement.executeQuery(sql);
+            return resultSetHandler.handle(resultSet);
+
+        } catch (SQLException e) {
+            throw new DatabaseException("Error while executing statement: " + sql, e);
+        } finally {
+            closeQuietly(null, statement, resultSet);
+        }
+    }
+
+
     public boolean exists(String sql, DataSource dataSource) {
         logger.debug(sql);
 
@@ -259,6 +426,31 @@ public class DefaultSQLHandler implements SQLHandler {
         }
     }
 
+    /**
+     * Sets the given values as the parameters of the given statement. For a null value, the type of the parameter is
+     * taken from the parameter meta data. If the driver does not provide this meta data, it is set as a null varchar.
+     *
+     * @param preparedStatement The statement, not null
+     * @param parameters        The values of the parameters, not null
+     */
+    protected void setParameters(PreparedStatement preparedStatement, Object[] parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] == null) {
+                preparedStatement.setNull(i + 1, getParameterType(preparedStatement, i + 1));
+            } else {
+                preparedStatement.setObject(i + 1, parameters[i]);
+            }
+        }
+    }
+
+    private int getParameterType(PreparedStatement preparedStatement, int parameterIndex) {
+        try {
+            return preparedStatement.getParameterMetaData().getParameterType(parameterIndex);
+        } catch (Exception e) {
+            return Types.VARCHAR;
+        }
+    }
+
     private void reenableAutoCommit(Connection connection) {
         try {
             connection.setAutoCommit(true);
@@ -272,31 +464,50 @@ public class DefaultSQLHandler implements SQLHandler {
      * Closes all connections that were created and cached by this SQLHandler. This method must always be invoked before
      * disposing this object.
      */
-    public void closeAllConnections() {
-        for (Connection connection : cachedConnections.values()) {
-            closeQuietly(connection);
+    public synchronized void closeAllConnections() {
+        for (Map<DataSource, Connection> threadConnections : cachedConnections.values()) {
+            for (Connection connection : threadConnections.values()) {
+                closeQuietly(connection);
+            }
         }
         cachedConnections.clear();
     }
 
 
+    public synchronized void closeConnectionsOfCurrentThread() {
+        Map<DataSource, Connection> threadConnections = cachedConnections.remove(Thread.currentThread());
+        if (threadConnections == null) {
+            return;
+        }
+        for (Connection connection : threadConnections.values()) {
+            closeQuietly(connection);
+        }
+    }
+
+
     /**
      * Returns a Connection to the given DataSource. The first time a Connection is requested, a new one is created
-     * using the given DataSource. All subsequent calls with the same DataSource as parameter will return the same
-     * Connection instance.
+     * using the given DataSource. All subsequent calls with the same DataSource as parameter on the same thread will
+     * return the same Connection instance. Another thread gets its own Connection, so that scripts that are executed
+     * concurrently, e.g. in parallel lanes, never share a transaction.
      *
      * @param dataSource provides access to the database
      * @return a Connection to the database for the given DataSource.
      */
-    protected Connection getConnection(DataSource dataSource) {
-        Connection connection = cachedConnections.get(dataSource);
+    protected synchronized Connection getConnection(DataSource dataSource) {
+        Map<DataSource, Connection> threadConnections = cachedConnections.get(Thread.currentThread());
+        if (threadConnections == null) {
+            threadConnections = new HashMap<DataSource, Connection>();
+            cachedConnections.put(Thread.currentThread(), threadConnections);
+        }
+        Connection connection = threadConnections.get(dataSource);
         if (connection == null) {
             try {
                 connection = dataSource.getConnection();
             } catch (SQLException e) {
                 throw new DatabaseException("Error while creating connection", e);
             }
-            cachedConnections.put(dataSource, connection);
+            threadConnections.put(dataSource, connection);
         }
         return connection;
     }
@@ -317,4 +317,13 @@ public class DerbyDatabase extends Database {
     }
 
 
+    /**
+     * Gets the column type suitable to store values of the Java <code>java.lang.Boolean</code> type.
+     *
+     * @return The column type, not null
+     */
+    @Override
+    public String getBooleanDataType() {
+        return "SMALLINT";
+    }
 }
\ No newline at end of file
@@ -444,4 +444,24 @@ public class MsSqlDatabase extends Database {
         return true;
     }
 
+
+    /**
+     * Gets the column type suitable to store values of the Java <code>java.sql.Timestamp</code> type.
+     *
+     * @return The column type, not null
+     */
+    @Override
+    public String getTimestampDataType() {
+        return "DATETIME";
+    }
+
+    /**
+     * Gets the column type suitable to store values of the Java <code>java.lang.Boolean</code> type.
+     *
+     * @return The column type, not null
+     */
+    @Override
+    public String getBooleanDataType() {
+        return "BIT";
+    }
 }
@@ -267,4 +267,14 @@ public class MySqlDatabase extends Database {
         return true;
     }
 
+
+    /**
+     * Gets the column type suitable to store values of the Java <code>java.sql.Timestamp</code> type.
+     *
+     * @return The column type, not null
+     */
+    @Override
+    public String getTimestampDataType() {
+        return "DATETIME";
+    }
 }
\ No newline at end of file
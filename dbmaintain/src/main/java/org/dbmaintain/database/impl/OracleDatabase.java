@@ -458,6 +458,16 @@ public class OracleDatabase extends Database {
         return "VARCHAR2(" + length + ")";
     }
 
+    /**
+     * Gets the column type suitable to store values of the Java <code>java.lang.Boolean</code> type.
+     *
+     * @return The column type, not null
+     */
+    @Override
+    public String getBooleanDataType() {
+        return "NUMBER(1)";
+    }
+
 
     /**
      * Synonyms are supported
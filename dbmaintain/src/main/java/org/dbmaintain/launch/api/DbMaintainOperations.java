@@ -57,6 +57,16 @@ public class DbMaintainOperations {
         dbMaintainer.updateDatabase(false);
     }
 
+    /**
+     * Checks whether the database is up to date, without performing any updates.
+     *
+     * @return whether the database is up to date
+     */
+    public static boolean isDatabaseUpToDate() {
+        DbMaintainer dbMaintainer = getMainFactory().createDbMaintainer();
+        return dbMaintainer.isDatabaseUpToDate();
+    }
+
     /**
      * Marks the database as up-to-date, without executing any script. You can use this operation to prepare
      * an existing database to be managed by DbMaintain, or after having manually fixed a problem.
@@ -26,6 +26,8 @@ public class ExecutedScript implements Comparable<ExecutedScript> {
     private Script script;
     private Date executedAt;
     private Boolean successful;
+    /* The time it took to execute the script in milliseconds, null if unknown */
+    private Long executionTime;
 
 
     public ExecutedScript(Script script, Date executedAt, Boolean successful) {
@@ -51,6 +53,14 @@ public class ExecutedScript implements Comparable<ExecutedScript> {
         this.successful = successful;
     }
 
+    public Long getExecutionTime() {
+        return executionTime;
+    }
+
+    public void setExecutionTime(Long executionTime) {
+        this.executionTime = executionTime;
+    }
+
 
     /**
      * Registers the fact that the script that was originally executed has been renamed. This means the script is replaced
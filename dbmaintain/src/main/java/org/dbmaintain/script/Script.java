@@ -17,6 +17,7 @@ package org.dbmaintain.script;
 
 import org.dbmaintain.script.executedscriptinfo.ScriptIndexes;
 import org.dbmaintain.script.qualifier.Qualifier;
+import org.dbmaintain.util.CheckSumUtils;
 
 import java.util.Set;
 
@@ -132,15 +133,58 @@ public class Script implements Comparable<Script> {
     }
 
     /**
-     * @return Checksum calculated for the content of the script, not null
+     * @return Checksum calculated for the content of the script, null only if the script has no content and
+     *         the check sum is unknown (e.g. the script execution was interrupted before the check sum was registered)
      */
     public String getCheckSum() {
-        if (checkSum == null) {
+        if (checkSum == null && scriptContentHandle != null) {
             checkSum = scriptContentHandle.getCheckSum();
         }
         return checkSum;
     }
 
+    /**
+     * @param algorithm The check sum algorithm, not null
+     * @return Checksum calculated for the content of the script using the given algorithm, null if the script has no
+     *         content and the check sum was calculated with another algorithm
+     */
+    public String getCheckSum(String algorithm) {
+        if (algorithm.equalsIgnoreCase(getCheckSumAlgorithm())) {
+            return getCheckSum();
+        }
+        if (scriptContentHandle == null) {
+            return null;
+        }
+        return scriptContentHandle.getCheckSum(algorithm);
+    }
+
+    /**
+     * @return The algorithm that was used to calculate the check sum of this script, null if the check sum is unknown
+     */
+    public String getCheckSumAlgorithm() {
+        if (checkSum != null) {
+            return CheckSumUtils.getCheckSumAlgorithm(checkSum);
+        }
+        if (scriptContentHandle != null) {
+            return scriptContentHandle.getCheckSumAlgorithm();
+        }
+        return null;
+    }
+
+    /**
+     * @return True if the check sum of this script is known without having to read the content
+     */
+    public boolean isCheckSumCalculated() {
+        return checkSum != null || scriptContentHandle != null && scriptContentHandle.isCheckSumCalculated();
+    }
+
+    /**
+     * @return True if the check sum of this script is known or can be calculated
+     */
+    public boolean isCheckSumAvailable() {
+        return checkSum != null || scriptContentHandle != null;
+    }
+
     /**
      * @return Handle that provides access to the content of the script. May be null! If so, this
      *         object is not suitable for being executed. The checksum however cannot be null, so we can always
@@ -168,7 +212,33 @@ public class Script implements Comparable<Script> {
      */
     public boolean isScriptContentEqualTo(Script other, boolean useLastModificationDates) {
         return useLastModificationDates && this.getFileLastModifiedAt().equals(other.getFileLastModifiedAt())
-                || this.getCheckSum().equals(other.getCheckSum());
+                || isCheckSumEqualTo(other);
+    }
+
+    /**
+     * Compares the check sums of both scripts. If the check sums were calculated with a different algorithm, e.g.
+     * because the check sum of the other script was registered before the algorithm was changed, the check sum is
+     * recalculated with the algorithm of the other script. This requires the content of one of both scripts.
+     *
+     * @param other Another script, not null
+     * @return True if the check sums are equal, false if they differ or cannot be compared
+     */
+    public boolean isCheckSumEqualTo(Script other) {
+        if (!isCheckSumAvailable() || !other.isCheckSumAvailable()) {
+            return false;
+        }
+        String checkSumAlgorithm = getCheckSumAlgorithm();
+        String otherCheckSumAlgorithm = other.getCheckSumAlgorithm();
+        if (checkSumAlgorithm.equalsIgnoreCase(otherCheckSumAlgorithm)) {
+            return getCheckSum().equals(other.getCheckSum());
+        }
+        if (scriptContentHandle != null) {
+            return other.getCheckSum().equals(getCheckSum(otherCheckSumAlgorithm));
+        }
+        if (other.scriptContentHandle != null) {
+            return getCheckSum().equals(other.getCheckSum(checkSumAlgorithm));
+        }
+        return false;
     }
 
 
@@ -15,14 +15,20 @@
  */
 package org.dbmaintain.script;
 
+import org.dbmaintain.util.CheckSumUtils;
 import org.dbmaintain.util.DbMaintainException;
 import org.dbmaintain.util.ReaderInputStream;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.dbmaintain.util.CheckSumUtils.DEFAULT_CHECK_SUM_ALGORITHM;
 
 /**
  * A handle for getting the script content as a stream.
@@ -33,7 +39,15 @@ import static org.apache.commons.io.IOUtils.closeQuietly;
  */
 public abstract class ScriptContentHandle {
 
-    protected MessageDigest scriptDigest;
+    /* The size of the buffer that is used when reading the script content for calculating the check sum */
+    protected static final int CHECK_SUM_BUFFER_SIZE = 64 * 1024;
+
+    /* The check sum of the script content, null if not yet calculated */
+    protected String checkSum;
+    /* The algorithm that is used for calculating the check sum */
+    protected String checkSumAlgorithm;
+    /* Check sums that were calculated with another algorithm, e.g. to compare with a previously registered check sum */
+    protected Map<String, String> otherAlgorithmCheckSums;
     protected Reader scriptReader;
     protected String encoding;
     /* If true, carriage return chars will be ignored when calculating check sums */
@@ -46,8 +60,19 @@ public abstract class ScriptContentHandle {
      *                 If true, carriage return chars will be ignored when calculating check sums
      */
     protected ScriptContentHandle(String encoding, boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
+        this(encoding, ignoreCarriageReturnsWhenCalculatingCheckSum, DEFAULT_CHECK_SUM_ALGORITHM);
+    }
+
+    /**
+     * @param encoding          The encoding of the script, not null
+     * @param ignoreCarriageReturnsWhenCalculatingCheckSum
+     *                          If true, carriage return chars will be ignored when calculating check sums
+     * @param checkSumAlgorithm The algorithm to use for calculating the check sum, not null
+     */
+    protected ScriptContentHandle(String encoding, boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSumAlgorithm) {
         this.encoding = encoding;
         this.ignoreCarriageReturnsWhenCalculatingCheckSum = ignoreCarriageReturnsWhenCalculatingCheckSum;
+        this.checkSumAlgorithm = checkSumAlgorithm;
     }
 
     /**
@@ -58,49 +83,134 @@ public abstract class ScriptContentHandle {
      * @return The content stream, not null
      */
     public Reader openScriptContentReader() {
+        InputStream scriptInputStream = getScriptInputStream();
+        if (checkSum == null && isCheckSumCalculatedWhileReading()) {
+            // calculate the check sum on the same bytes, so that the content does not have to be read a second time
+            scriptInputStream = new CheckSumCalculatingInputStream(scriptInputStream, CheckSumUtils.createMessageDigest(checkSumAlgorithm));
+        }
         try {
-            scriptReader = new InputStreamReader(getScriptInputStream(), encoding);
+            scriptReader = new InputStreamReader(scriptInputStream, encoding);
         } catch (UnsupportedEncodingException e) {
+            closeQuietly(scriptInputStream);
             throw new DbMaintainException("Unsupported encoding " + encoding, e);
         }
         return scriptReader;
     }
 
+    /**
+     * @return True if the check sum can be calculated on the bytes of {@link #getScriptInputStream} while the content
+     *         is being read through {@link #openScriptContentReader}
+     */
+    protected boolean isCheckSumCalculatedWhileReading() {
+        return true;
+    }
+
 
+    /**
+     * @return The check sum of the script content, calculated with the configured algorithm, not null
+     */
     public String getCheckSum() {
-        try {
-            MessageDigest scriptDigest = getScriptDigest();
-            return getHexPresentation(scriptDigest.digest());
-        } catch (IOException e) {
-            throw new DbMaintainException(e);
+        if (checkSum == null) {
+            checkSum = CheckSumUtils.toCheckSum(checkSumAlgorithm, getScriptDigest(checkSumAlgorithm).digest());
+        }
+        return checkSum;
+    }
+
+    /**
+     * Gets the check sum of the script content, calculated with the given algorithm. This makes it possible to compare
+     * the content with a check sum that was registered using another algorithm.
+     *
+     * @param algorithm The algorithm, not null
+     * @return The check sum, not null
+     */
+    public String getCheckSum(String algorithm) {
+        if (checkSumAlgorithm.equalsIgnoreCase(algorithm)) {
+            return getCheckSum();
         }
+        if (otherAlgorithmCheckSums == null) {
+            otherAlgorithmCheckSums = new HashMap<String, String>();
+        }
+        String otherAlgorithmCheckSum = otherAlgorithmCheckSums.get(algorithm);
+        if (otherAlgorithmCheckSum == null) {
+            otherAlgorithmCheckSum = CheckSumUtils.toCheckSum(algorithm, getScriptDigest(algorithm).digest());
+            otherAlgorithmCheckSums.put(algorithm, otherAlgorithmCheckSum);
+        }
+        return otherAlgorithmCheckSum;
+    }
+
+    /**
+     * @return True if the check sum was already calculated, e.g. while the content was read
+     */
+    public boolean isCheckSumCalculated() {
+        return checkSum != null;
     }
 
-    protected MessageDigest getScriptDigest() throws IOException {
-        if (scriptDigest != null) {
+    /**
+     * @return The algorithm that is used for calculating the check sum, not null
+     */
+    public String getCheckSumAlgorithm() {
+        return checkSumAlgorithm;
+    }
+
+    protected MessageDigest getScriptDigest(String algorithm) {
+        MessageDigest scriptDigest = CheckSumUtils.createMessageDigest(algorithm);
+        try {
+            updateScriptDigest(scriptDigest);
             return scriptDigest;
+        } catch (Exception e) {
+            throw new DbMaintainException("Unable to calculate digest for script.", e);
         }
+    }
 
+    /**
+     * Feeds the content of the script to the given digest. The content is read in blocks of
+     * {@link #CHECK_SUM_BUFFER_SIZE} bytes instead of byte per byte.
+     *
+     * @param scriptDigest The digest to update, not null
+     */
+    protected void updateScriptDigest(MessageDigest scriptDigest) throws IOException {
         InputStream scriptInputStream = null;
         try {
             scriptInputStream = getScriptInputStream();
-            scriptDigest = MessageDigest.getInstance("MD5");
-
-            int b;
-            while ((b = scriptInputStream.read()) != -1) {
-                if (ignoreCarriageReturnsWhenCalculatingCheckSum && b == '\r') {
-                    continue;
-                }
-                scriptDigest.update((byte) b);
+            byte[] buffer = new byte[CHECK_SUM_BUFFER_SIZE];
+            int nrOfBytes;
+            while ((nrOfBytes = scriptInputStream.read(buffer)) != -1) {
+                updateScriptDigest(scriptDigest, buffer, 0, nrOfBytes);
             }
-            return scriptDigest;
-        } catch (Exception e) {
-            throw new DbMaintainException("Unable to calculate digest for script.", e);
         } finally {
             closeQuietly(scriptInputStream);
         }
     }
 
+    /**
+     * Feeds the given block of script content to the digest. If carriage returns are ignored, the block is
+     * scanned for carriage returns and only the ranges in between are passed to the digest.
+     *
+     * @param scriptDigest The digest to update, not null
+     * @param buffer       The block of content, not null
+     * @param offset       The index of the first byte in the buffer that contains content
+     * @param length       The nr of bytes in the buffer that contain content
+     */
+    protected void updateScriptDigest(MessageDigest scriptDigest, byte[] buffer, int offset, int length) {
+        if (!ignoreCarriageReturnsWhenCalculatingCheckSum) {
+            scriptDigest.update(buffer, offset, length);
+            return;
+        }
+        int start = offset;
+        length += offset;
+        for (int i = offset; i < length; i++) {
+            if (buffer[i] == '\r') {
+                if (i > start) {
+                    scriptDigest.update(buffer, start, i - start);
+                }
+                start = i + 1;
+            }
+        }
+        if (length > start) {
+            scriptDigest.update(buffer, start, length - start);
+        }
+    }
+
 
     public String getScriptContentsAsString(long maxNrChars) {
         try {
@@ -126,15 +236,6 @@ public abstract class ScriptContentHandle {
         }
     }
 
-    protected String getHexPresentation(byte[] byteArray) {
-        StringBuffer result = new StringBuffer();
-        for (byte b : byteArray) {
-            result.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
-        }
-        return result.toString();
-    }
-
-
     /**
      * NOTE: Make sure you don't forget to close the stream!
      *
@@ -143,6 +244,87 @@ public abstract class ScriptContentHandle {
     protected abstract InputStream getScriptInputStream();
 
 
+    /**
+     * Stream that passes all bytes that are read to a digest. When the end of the stream is reached, the digest
+     * becomes the check sum of the script, unless the check sum was calculated in the meantime.
+     */
+    protected class CheckSumCalculatingInputStream extends FilterInputStream {
+
+        /* The digest that is updated with the bytes that are read */
+        private MessageDigest scriptDigest;
+        /* True if the end of the stream was reached */
+        private boolean endOfStream;
+
+        public CheckSumCalculatingInputStream(InputStream inputStream, MessageDigest scriptDigest) {
+            super(inputStream);
+            this.scriptDigest = scriptDigest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                handleEndOfStream();
+            } else {
+                updateScriptDigest(scriptDigest, new byte[]{(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int nrOfBytes = super.read(buffer, offset, length);
+            if (nrOfBytes == -1) {
+                handleEndOfStream();
+            } else {
+                updateScriptDigest(scriptDigest, buffer, offset, nrOfBytes);
+            }
+            return nrOfBytes;
+        }
+
+        /**
+         * Skipped bytes would not be part of the digest: they are read instead.
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), CHECK_SUM_BUFFER_SIZE)];
+            long nrOfBytesSkipped = 0;
+            while (nrOfBytesSkipped < n) {
+                int nrOfBytes = read(buffer, 0, (int) Math.min(buffer.length, n - nrOfBytesSkipped));
+                if (nrOfBytes == -1) {
+                    break;
+                }
+                nrOfBytesSkipped += nrOfBytes;
+            }
+            return nrOfBytesSkipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void mark(int readLimit) {
+        }
+
+        @Override
+        public void reset() throws IOException {
+            throw new IOException("Mark/reset is not supported");
+        }
+
+        private void handleEndOfStream() {
+            if (endOfStream) {
+                return;
+            }
+            endOfStream = true;
+            if (checkSum == null) {
+                checkSum = CheckSumUtils.toCheckSum(checkSumAlgorithm, scriptDigest.digest());
+            }
+        }
+    }
+
+
     /**
      * A handle for getting the script content as a stream.
      */
@@ -160,7 +342,20 @@ public abstract class ScriptContentHandle {
          *                 If true, carriage return chars will be ignored when calculating check sums
          */
         public UrlScriptContentHandle(URL url, String encoding, boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
-            super(encoding, ignoreCarriageReturnsWhenCalculatingCheckSum);
+            this(url, encoding, ignoreCarriageReturnsWhenCalculatingCheckSum, DEFAULT_CHECK_SUM_ALGORITHM);
+        }
+
+        /**
+         * Creates a content handle.
+         *
+         * @param url               The url to the content, not null
+         * @param encoding          The encoding of the script, not null
+         * @param ignoreCarriageReturnsWhenCalculatingCheckSum
+         *                          If true, carriage return chars will be ignored when calculating check sums
+         * @param checkSumAlgorithm The algorithm to use for calculating the check sum, not null
+         */
+        public UrlScriptContentHandle(URL url, String encoding, boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSumAlgorithm) {
+            super(encoding, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSumAlgorithm);
             this.url = url;
         }
 
@@ -180,6 +375,85 @@ public abstract class ScriptContentHandle {
     }
 
 
+    /**
+     * A handle for getting the content of a script file. The check sum is calculated by reading the file
+     * through a file channel.
+     */
+    public static class FileScriptContentHandle extends ScriptContentHandle {
+
+        /* The script file */
+        private File file;
+
+        /**
+         * Creates a content handle.
+         *
+         * @param file     The script file, not null
+         * @param encoding The encoding of the script, not null
+         * @param ignoreCarriageReturnsWhenCalculatingCheckSum
+         *                 If true, carriage return chars will be ignored when calculating check sums
+         */
+        public FileScriptContentHandle(File file, String encoding, boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
+            this(file, encoding, ignoreCarriageReturnsWhenCalculatingCheckSum, DEFAULT_CHECK_SUM_ALGORITHM);
+        }
+
+        /**
+         * Creates a content handle.
+         *
+         * @param file              The script file, not null
+         * @param encoding          The encoding of the script, not null
+         * @param ignoreCarriageReturnsWhenCalculatingCheckSum
+         *                          If true, carriage return chars will be ignored when calculating check sums
+         * @param checkSumAlgorithm The algorithm to use for calculating the check sum, not null
+         */
+        public FileScriptContentHandle(File file, String encoding, boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSumAlgorithm) {
+            super(encoding, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSumAlgorithm);
+            this.file = file;
+        }
+
+        /**
+         * @return The script file, not null
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Opens a stream to the content of the script.
+         *
+         * @return The content stream, not null
+         */
+        @Override
+        protected InputStream getScriptInputStream() {
+            try {
+                return new FileInputStream(file);
+            } catch (IOException e) {
+                throw new DbMaintainException("Error while trying to create reader for file " + file, e);
+            }
+        }
+
+        /**
+         * Feeds the content of the script file to the given digest by reading blocks from a file channel.
+         *
+         * @param scriptDigest The digest to update, not null
+         */
+        @Override
+        protected void updateScriptDigest(MessageDigest scriptDigest) throws IOException {
+            FileInputStream fileInputStream = null;
+            try {
+                fileInputStream = new FileInputStream(file);
+                FileChannel fileChannel = fileInputStream.getChannel();
+                ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(CHECK_SUM_BUFFER_SIZE, Math.max(fileChannel.size(), 1)));
+                while (fileChannel.read(buffer) != -1) {
+                    updateScriptDigest(scriptDigest, buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+            } finally {
+                closeQuietly(fileInputStream);
+            }
+        }
+    }
+
+
     /**
      * A handle for getting the script content as a stream.
      */
@@ -197,7 +471,20 @@ public abstract class ScriptContentHandle {
          *                      If true, carriage return chars will be ignored when calculating check sums
          */
         public StringScriptContentHandle(String scriptContent, String encoding, boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
-            super(encoding, ignoreCarriageReturnsWhenCalculatingCheckSum);
+            this(scriptContent, encoding, ignoreCarriageReturnsWhenCalculatingCheckSum, DEFAULT_CHECK_SUM_ALGORITHM);
+        }
+
+        /**
+         * Creates a content handle.
+         *
+         * @param scriptContent     The content, not null
+         * @param encoding          The encoding of the script, not null
+         * @param ignoreCarriageReturnsWhenCalculatingCheckSum
+         *                          If true, carriage return chars will be ignored when calculating check sums
+         * @param checkSumAlgorithm The algorithm to use for calculating the check sum, not null
+         */
+        public StringScriptContentHandle(String scriptContent, String encoding, boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSumAlgorithm) {
+            super(encoding, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSumAlgorithm);
             this.scriptContent = scriptContent;
         }
 
@@ -210,6 +497,41 @@ public abstract class ScriptContentHandle {
         protected InputStream getScriptInputStream() {
             return new ReaderInputStream(new StringReader(scriptContent));
         }
+
+        /**
+         * The content is in memory and its check sum is calculated on the chars instead of on the bytes of the stream.
+         *
+         * @return false
+         */
+        @Override
+        protected boolean isCheckSumCalculatedWhileReading() {
+            return false;
+        }
+
+        /**
+         * Feeds the content to the given digest in the same way as {@link ReaderInputStream} exposes it: every char
+         * is passed as its low-order byte. Only real carriage return chars are skipped when they are ignored.
+         *
+         * @param scriptDigest The digest to update, not null
+         */
+        @Override
+        protected void updateScriptDigest(MessageDigest scriptDigest) {
+            int length = scriptContent.length();
+            byte[] buffer = new byte[Math.min(CHECK_SUM_BUFFER_SIZE, Math.max(length, 1))];
+            int nrOfBytes = 0;
+            for (int i = 0; i < length; i++) {
+                char c = scriptContent.charAt(i);
+                if (ignoreCarriageReturnsWhenCalculatingCheckSum && c == '\r') {
+                    continue;
+                }
+                buffer[nrOfBytes++] = (byte) c;
+                if (nrOfBytes == buffer.length) {
+                    scriptDigest.update(buffer, 0, nrOfBytes);
+                    nrOfBytes = 0;
+                }
+            }
+            scriptDigest.update(buffer, 0, nrOfBytes);
+        }
     }
 
 }
\ No newline at end of file
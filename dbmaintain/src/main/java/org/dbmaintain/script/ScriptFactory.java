@@ -76,17 +76,56 @@ public class ScriptFactory {
     }
 
 
+    /**
+     * Creates a script using the given indexes, target database and qualifiers instead of parsing them out of the
+     * file name. This can be used when the parts of the file name were already parsed before, e.g. when they are
+     * stored in the index of a script archive. The qualifiers are still validated.
+     *
+     * @param fileName            The script file name, not null
+     * @param fileLastModifiedAt  The last modification date of the script file
+     * @param scriptIndexes       The indexes of the script, not null
+     * @param targetDatabaseName  The target database name, null if not defined
+     * @param qualifierNames      The names of the qualifiers of the script, not null
+     * @param scriptContentHandle The handle to the content of the script, not null
+     * @return The script, not null
+     */
+    public Script createScriptWithContent(String fileName, Long fileLastModifiedAt, ScriptIndexes scriptIndexes, String targetDatabaseName, Set<String> qualifierNames, ScriptContentHandle scriptContentHandle) {
+        try {
+            Set<Qualifier> qualifiers = new HashSet<Qualifier>();
+            for (String qualifierName : qualifierNames) {
+                qualifiers.add(getRegisteredQualifier(qualifierName));
+            }
+            return createScript(fileName, fileLastModifiedAt, scriptIndexes, targetDatabaseName, qualifiers, null, scriptContentHandle);
+
+        } catch (DbMaintainException e) {
+            throw new DbMaintainException("Error in script " + fileName + ": " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Creates a script using the indexes, target database and qualifiers of the given script with the same file name
+     * instead of parsing them out of the file name again. This avoids evaluating the file name patterns for scripts
+     * that were already created before, e.g. the scripts of the script repository.
+     *
+     * @param fileLastModifiedAt The last modification date of the script file
+     * @param checkSum           The check sum of the content of the script
+     * @param parsedScript       A script with the same file name, not null
+     * @return The script, not null
+     */
+    public Script createScriptWithoutContent(Long fileLastModifiedAt, String checkSum, Script parsedScript) {
+        return createScript(parsedScript.getFileName(), fileLastModifiedAt, parsedScript.getScriptIndexes(), parsedScript.getTargetDatabaseName(),
+                parsedScript.getQualifiers(), checkSum, null);
+    }
+
+
     private Script createScript(String fileName, Long fileLastModifiedAt, String checkSum, ScriptContentHandle scriptContentHandle) {
         try {
             String[] pathParts = getPathParts(fileName);
             ScriptIndexes scriptIndexes = getScriptIndexes(pathParts);
             String targetDatabaseName = getTargetDatabaseName(pathParts);
             Set<Qualifier> qualifiers = getQualifiers(pathParts);
-            boolean patchScript = isPatchScript(qualifiers);
-            boolean postProcessingScript = isPostProcessingScript(fileName);
-            boolean ignored = isIgnored(scriptIndexes);
-
-            return new Script(fileName, scriptIndexes, targetDatabaseName, fileLastModifiedAt, checkSum, scriptContentHandle, postProcessingScript, patchScript, ignored, qualifiers);
+            return createScript(fileName, fileLastModifiedAt, scriptIndexes, targetDatabaseName, qualifiers, checkSum, scriptContentHandle);
 
         } catch (DbMaintainException e) {
             throw new DbMaintainException("Error in script " + fileName + ": " + e.getMessage(), e);
@@ -94,6 +133,14 @@ public class ScriptFactory {
     }
 
 
+    private Script createScript(String fileName, Long fileLastModifiedAt, ScriptIndexes scriptIndexes, String targetDatabaseName, Set<Qualifier> qualifiers, String checkSum, ScriptContentHandle scriptContentHandle) {
+        boolean patchScript = isPatchScript(qualifiers);
+        boolean postProcessingScript = isPostProcessingScript(fileName);
+        boolean ignored = isIgnored(scriptIndexes);
+        return new Script(fileName, scriptIndexes, targetDatabaseName, fileLastModifiedAt, checkSum, scriptContentHandle, postProcessingScript, patchScript, ignored, qualifiers);
+    }
+
+
     /**
      * @param fileName The script file name, not null
      * @return True if the given script name is a post processing script
@@ -138,15 +185,24 @@ public class ScriptFactory {
         List<String> qualifierNames = getTokens(pathParts, qualifierPattern, false);
 
         for (String qualifierName : qualifierNames) {
-            Qualifier qualifier = new Qualifier(qualifierName);
-            if (!registeredQualifiers.contains(qualifier) && !patchQualifiers.contains(qualifier)) {
-                throw new DbMaintainException("Qualifier \"" + qualifier.getQualifierName() + "\" has not been registered.");
-            }
-            qualifiers.add(qualifier);
+            qualifiers.add(getRegisteredQualifier(qualifierName));
         }
         return qualifiers;
     }
 
+    /**
+     * @param qualifierName The name of the qualifier, not null
+     * @return The qualifier, not null
+     * @throws DbMaintainException if the qualifier is not a registered or a patch qualifier
+     */
+    protected Qualifier getRegisteredQualifier(String qualifierName) {
+        Qualifier qualifier = new Qualifier(qualifierName);
+        if (!registeredQualifiers.contains(qualifier) && !patchQualifiers.contains(qualifier)) {
+            throw new DbMaintainException("Qualifier \"" + qualifier.getQualifierName() + "\" has not been registered.");
+        }
+        return qualifier;
+    }
+
     /**
      * Creates a version by extracting the indexes from the the given script file name.
      *
@@ -0,0 +1,185 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script.analyzer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbmaintain.script.Script;
+import org.dbmaintain.util.DbMaintainException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.*;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * The dependencies between a set of scripts. A script declares the scripts it depends on in comment lines at the top
+ * of the script, using the file names of the scripts, for example:
+ * <pre>
+ * -- dbmaintain:depends-on repeatable/views/base_view.sql
+ * -- dbmaintain:depends-on repeatable/packages/util_spec.sql, repeatable/packages/log_spec.sql
+ * create or replace view ...
+ * </pre>
+ * Only the comment lines before the first statement are taken into account. Dependencies on scripts that are not part
+ * of the set are ignored: such scripts are not executed together with the scripts of the set.
+ */
+public class ScriptDependencyGraph {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(ScriptDependencyGraph.class);
+
+    /**
+     * The marker that starts a dependency declaration in a comment line
+     */
+    public static final String DEPENDS_ON_MARKER = "dbmaintain:depends-on";
+
+    /* The scripts, in their original order */
+    protected List<Script> scripts;
+
+    /* The scripts on which a script depends, in the original order */
+    protected Map<Script, List<Script>> dependencies = new HashMap<Script, List<Script>>();
+
+    /* The scripts that depend on a script, in the original order */
+    protected Map<Script, List<Script>> dependents = new HashMap<Script, List<Script>>();
+
+
+    /**
+     * Creates the dependency graph of the given scripts by reading the dependency declarations of the scripts.
+     *
+     * @param scripts The scripts, in the order in which they would be executed one after another, not null
+     */
+    public ScriptDependencyGraph(List<Script> scripts) {
+        this.scripts = scripts;
+
+        Map<String, Script> scriptsByFileName = new HashMap<String, Script>();
+        for (Script script : scripts) {
+            scriptsByFileName.put(script.getFileName(), script);
+            dependencies.put(script, new ArrayList<Script>());
+            dependents.put(script, new ArrayList<Script>());
+        }
+        for (Script script : scripts) {
+            for (String dependencyFileName : readDependencyFileNames(script)) {
+                Script dependency = scriptsByFileName.get(dependencyFileName);
+                if (dependency == null) {
+                    logger.debug("Dependency " + dependencyFileName + " of script " + script.getFileName() + " is not executed together with the script and is ignored.");
+                    continue;
+                }
+                if (dependency.equals(script) || dependencies.get(script).contains(dependency)) {
+                    continue;
+                }
+                dependencies.get(script).add(dependency);
+            }
+        }
+        // add the dependents in the original order of the scripts
+        for (Script script : scripts) {
+            for (Script dependency : dependencies.get(script)) {
+                dependents.get(dependency).add(script);
+            }
+        }
+    }
+
+
+    /**
+     * @param script The script, not null
+     * @return The scripts on which the given script depends, empty if none
+     */
+    public List<Script> getDependencies(Script script) {
+        return dependencies.get(script);
+    }
+
+
+    /**
+     * @param script The script, not null
+     * @return The scripts that depend on the given script, in the original order, empty if none
+     */
+    public List<Script> getDependents(Script script) {
+        return dependents.get(script);
+    }
+
+
+    /**
+     * @return The scripts that are part of a dependency cycle or that depend on such a script, empty if there are no cycles
+     */
+    public List<Script> getScriptsInCycle() {
+        Map<Script, Integer> nrOfPendingDependencies = new HashMap<Script, Integer>();
+        LinkedList<Script> readyScripts = new LinkedList<Script>();
+        for (Script script : scripts) {
+            int nrOfDependencies = dependencies.get(script).size();
+            nrOfPendingDependencies.put(script, nrOfDependencies);
+            if (nrOfDependencies == 0) {
+                readyScripts.add(script);
+            }
+        }
+        while (!readyScripts.isEmpty()) {
+            Script script = readyScripts.removeFirst();
+            nrOfPendingDependencies.remove(script);
+            for (Script dependent : dependents.get(script)) {
+                int nrOfDependencies = nrOfPendingDependencies.get(dependent) - 1;
+                nrOfPendingDependencies.put(dependent, nrOfDependencies);
+                if (nrOfDependencies == 0) {
+                    readyScripts.add(dependent);
+                }
+            }
+        }
+        List<Script> scriptsInCycle = new ArrayList<Script>();
+        for (Script script : scripts) {
+            if (nrOfPendingDependencies.containsKey(script)) {
+                scriptsInCycle.add(script);
+            }
+        }
+        return scriptsInCycle;
+    }
+
+
+    /**
+     * Reads the file names of the dependency declarations in the comment lines at the top of the given script.
+     *
+     * @param script The script, not null
+     * @return The file names, empty if there are none
+     */
+    protected List<String> readDependencyFileNames(Script script) {
+        List<String> dependencyFileNames = new ArrayList<String>();
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(script.getScriptContentHandle().openScriptContentReader());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() == 0) {
+                    continue;
+                }
+                if (!line.startsWith("--")) {
+                    break;
+                }
+                String comment = line.substring(2).trim();
+                if (comment.startsWith(DEPENDS_ON_MARKER)) {
+                    for (String dependencyFileName : comment.substring(DEPENDS_ON_MARKER.length()).split("[,\\s]+")) {
+                        if (dependencyFileName.length() > 0) {
+                            dependencyFileNames.add(dependencyFileName);
+                        }
+                    }
+                }
+            }
+            return dependencyFileNames;
+
+        } catch (IOException e) {
+            throw new DbMaintainException("Unable to read the dependencies of script " + script.getFileName(), e);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+}
@@ -55,7 +55,10 @@ public class ScriptUpdatesAnalyzer {
 
     /* Lazily initialized data, that is cached during analysis to avoid repeated calculation of the contents */
     private Map<String, Script> scriptNameScriptMap;
-    private Map<String, Set<Script>> checkSumScriptMap;
+    private Map<String, ExecutedScript> scriptNameExecutedScriptMap;
+    private Script executedScriptWithHighestScriptIndex;
+    private boolean executedScriptWithHighestScriptIndexDetermined;
+    private Map<String, Map<String, Set<Script>>> renameCandidateCheckSumMaps = new HashMap<String, Map<String, Set<Script>>>();
 
     /**
      * Creates a new instance that will compare the info from the given {@link ExecutedScriptInfoSource} with the current
@@ -276,7 +279,11 @@ public class ScriptUpdatesAnalyzer {
      */
     protected Script findNewScriptWithSameContent(ExecutedScript executedScript) {
         SortedSet<Script> newScriptsWithSameContent = new TreeSet<Script>();
-        Set<Script> scriptsWithSameContent = getCheckSumScriptMap().get(executedScript.getScript().getCheckSum());
+        Script executedScriptScript = executedScript.getScript();
+        if (!executedScriptScript.isCheckSumAvailable()) {
+            return null;
+        }
+        Set<Script> scriptsWithSameContent = getRenameCandidateCheckSumMap(executedScriptScript.getCheckSumAlgorithm()).get(executedScriptScript.getCheckSum());
         if (scriptsWithSameContent != null) {
             for (Script scriptWithSameContent : scriptsWithSameContent) {
                 if (!scriptExecutedScriptMap.containsKey(scriptWithSameContent)) {
@@ -302,11 +309,13 @@ public class ScriptUpdatesAnalyzer {
      * @return The already executed scripts, as a map from scriptName => ExecutedScript
      */
     protected Map<String, ExecutedScript> getScriptNameExecutedScriptMap() {
-        Map<String, ExecutedScript> scriptNameAlreadyExecutedScriptMap = new HashMap<String, ExecutedScript>();
-        for (ExecutedScript executedScript : executedScriptInfoSource.getExecutedScripts()) {
-            scriptNameAlreadyExecutedScriptMap.put(executedScript.getScript().getFileName(), executedScript);
+        if (scriptNameExecutedScriptMap == null) {
+            scriptNameExecutedScriptMap = new HashMap<String, ExecutedScript>();
+            for (ExecutedScript executedScript : executedScriptInfoSource.getExecutedScripts()) {
+                scriptNameExecutedScriptMap.put(executedScript.getScript().getFileName(), executedScript);
+            }
         }
-        return scriptNameAlreadyExecutedScriptMap;
+        return scriptNameExecutedScriptMap;
     }
 
     /**
@@ -323,35 +332,55 @@ public class ScriptUpdatesAnalyzer {
     }
 
     /**
-     * @return All scripts, as a map from checksum => Script
+     * Gets the scripts that could be the renamed version of an executed script, by check sum. Only scripts that are not
+     * yet mapped to an executed script are candidates: a script with the same name as an executed script can never be
+     * the renamed version of another one. This way, only the check sums of the scripts without executed script of the
+     * same name are calculated. Scripts of all types are candidates, so that a script with the same content but of
+     * another type still makes a rename ambiguous.
+     *
+     * @param checkSumAlgorithm The algorithm of the check sums, so that scripts can be matched with executed scripts
+     *                          that were registered using another algorithm, not null
+     * @return The candidate scripts, as a map from checksum => Script
      */
-    protected Map<String, Set<Script>> getCheckSumScriptMap() {
+    protected Map<String, Set<Script>> getRenameCandidateCheckSumMap(String checkSumAlgorithm) {
+        String key = checkSumAlgorithm.toUpperCase();
+        Map<String, Set<Script>> checkSumScriptMap = renameCandidateCheckSumMaps.get(key);
         if (checkSumScriptMap == null) {
             checkSumScriptMap = new HashMap<String, Set<Script>>();
             for (Script script : scriptRepository.getAllScripts()) {
-                Set<Script> scriptsWithCheckSum = checkSumScriptMap.get(script.getCheckSum());
+                if (scriptExecutedScriptMap.containsKey(script)) {
+                    continue;
+                }
+                String checkSum = script.getCheckSum(checkSumAlgorithm);
+                Set<Script> scriptsWithCheckSum = checkSumScriptMap.get(checkSum);
                 if (scriptsWithCheckSum == null) {
                     scriptsWithCheckSum = new HashSet<Script>();
-                    checkSumScriptMap.put(script.getCheckSum(), scriptsWithCheckSum);
+                    checkSumScriptMap.put(checkSum, scriptsWithCheckSum);
                 }
                 scriptsWithCheckSum.add(script);
             }
+            renameCandidateCheckSumMaps.put(key, checkSumScriptMap);
         }
         return checkSumScriptMap;
     }
 
 
     /**
-     * @return The executed scripts with the highest script index
+     * The executed scripts do not change during the analysis, so the result is only determined once.
+     *
+     * @return The executed scripts with the highest script index, null if no incremental script was executed
      */
     protected Script getExecutedScriptWithHighestScriptIndex() {
-        Script result = null;
-        for (ExecutedScript executedScript : executedScriptInfoSource.getExecutedScripts()) {
-            if (executedScript.getScript().isIncremental() && (result == null || executedScript.getScript().compareTo(result) > 0)) {
-                result = executedScript.getScript();
+        if (!executedScriptWithHighestScriptIndexDetermined) {
+            for (ExecutedScript executedScript : executedScriptInfoSource.getExecutedScripts()) {
+                Script script = executedScript.getScript();
+                if (script.isIncremental() && (executedScriptWithHighestScriptIndex == null || script.compareTo(executedScriptWithHighestScriptIndex) > 0)) {
+                    executedScriptWithHighestScriptIndex = script;
+                }
             }
+            executedScriptWithHighestScriptIndexDetermined = true;
         }
-        return result;
+        return executedScriptWithHighestScriptIndex;
     }
 
 
@@ -54,9 +54,10 @@ public class DefaultScriptArchiveCreator implements ScriptArchiveCreator {
     protected Set<String> scriptFileExtensions;
     protected ScriptIndexes baseLineRevision;
     protected boolean ignoreCarriageReturnsWhenCalculatingCheckSum;
+    protected String checkSumAlgorithm;
 
 
-    public DefaultScriptArchiveCreator(ScriptRepository scriptRepository, String scriptEncoding, String postProcessingScriptDirName, Set<Qualifier> registeredQualifiers, Set<Qualifier> patchQualifiers, String scriptIndexRegexp, String qualifierRegexp, String targetDatabaseRegexp, Set<String> scriptFileExtensions, ScriptIndexes baseLineRevision, boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
+    public DefaultScriptArchiveCreator(ScriptRepository scriptRepository, String scriptEncoding, String postProcessingScriptDirName, Set<Qualifier> registeredQualifiers, Set<Qualifier> patchQualifiers, String scriptIndexRegexp, String qualifierRegexp, String targetDatabaseRegexp, Set<String> scriptFileExtensions, ScriptIndexes baseLineRevision, boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSumAlgorithm) {
         this.scriptRepository = scriptRepository;
         this.scriptEncoding = scriptEncoding;
         this.postProcessingScriptDirName = postProcessingScriptDirName;
@@ -68,6 +69,7 @@ public class DefaultScriptArchiveCreator implements ScriptArchiveCreator {
         this.scriptFileExtensions = scriptFileExtensions;
         this.baseLineRevision = baseLineRevision;
         this.ignoreCarriageReturnsWhenCalculatingCheckSum = ignoreCarriageReturnsWhenCalculatingCheckSum;
+        this.checkSumAlgorithm = checkSumAlgorithm;
     }
 
     /**
@@ -82,11 +84,13 @@ public class DefaultScriptArchiveCreator implements ScriptArchiveCreator {
         try {
             logger.info("Creating script archive: " + archiveFileName);
             SortedSet<Script> allScripts = scriptRepository.getAllScripts();
-            ArchiveScriptLocation archiveScriptLocation = new ArchiveScriptLocation(allScripts, scriptEncoding, postProcessingScriptDirName, registeredQualifiers, patchQualifiers, scriptIndexRegexp, qualifierRegexp, targetDatabaseRegexp, scriptFileExtensions, baseLineRevision, ignoreCarriageReturnsWhenCalculatingCheckSum);
+            ArchiveScriptLocation archiveScriptLocation = new ArchiveScriptLocation(allScripts, scriptEncoding, postProcessingScriptDirName, registeredQualifiers, patchQualifiers, scriptIndexRegexp, qualifierRegexp, targetDatabaseRegexp, scriptFileExtensions, baseLineRevision, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSumAlgorithm);
             archiveScriptLocation.writeToJarFile(new File(archiveFileName));
 
         } catch (Exception e) {
             throw new DbMaintainException("Error creating script archive " + archiveFileName, e);
+        } finally {
+            scriptRepository.close();
         }
     }
 
@@ -18,6 +18,8 @@ package org.dbmaintain.script.executedscriptinfo;
 import org.dbmaintain.script.ExecutedScript;
 import org.dbmaintain.script.Script;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -37,6 +39,13 @@ public interface ExecutedScriptInfoSource {
      */
     void registerExecutedScript(ExecutedScript executedScript);
 
+    /**
+     * Registers the fact that the given scripts have been executed on the database, in a single transaction
+     *
+     * @param executedScripts The scripts that were executed on the database, not null
+     */
+    void registerExecutedScripts(Collection<ExecutedScript> executedScripts);
+
     /**
      * Updates the given registered script
      *
@@ -44,6 +53,13 @@ public interface ExecutedScriptInfoSource {
      */
     void updateExecutedScript(ExecutedScript executedScript);
 
+    /**
+     * Updates the given registered scripts in a single transaction
+     *
+     * @param executedScripts The scripts to update, not null
+     */
+    void updateExecutedScripts(Collection<ExecutedScript> executedScripts);
+
     /**
      * Clears all script executions that have been registered. After having invoked this method,
      * {@link #getExecutedScripts()} will return an empty set.
@@ -70,6 +86,15 @@ public interface ExecutedScriptInfoSource {
      */
     void renameExecutedScript(ExecutedScript executedScript, Script renamedToScript);
 
+    /**
+     * Removes the given deleted executed scripts and registers the given renames in a single transaction.
+     * The renames are applied in the iteration order of the given map.
+     *
+     * @param deletedExecutedScripts The executed scripts that are no longer part of the executed scripts, not null
+     * @param renamedExecutedScripts The original executed scripts and the scripts to which they have been renamed, not null
+     */
+    void deleteAndRenameExecutedScripts(Collection<ExecutedScript> deletedExecutedScripts, Map<ExecutedScript, Script> renamedExecutedScripts);
+
     /**
      * Removes all previously registered executed postprocessing scripts
      */
@@ -90,4 +115,39 @@ public interface ExecutedScriptInfoSource {
      * The scripts will be reloaded the next time.
      */
     void resetCachedState();
+
+    /**
+     * Sets the scripts of the script repository. When the executed scripts are loaded, the indexes, target database
+     * and qualifiers of a repository script with the same file name are reused instead of parsing the file name again.
+     *
+     * @param scripts The scripts of the script repository, not null
+     */
+    void setRepositoryScripts(Collection<Script> scripts);
+
+    /**
+     * Resets the cached state only if the scripts table was modified by another process since it was loaded.
+     *
+     * @return True if the cached state was reset
+     */
+    boolean resetCachedStateIfChanged();
+
+    /**
+     * @return True if a fingerprint of the scripts can be registered
+     */
+    boolean isScriptsFingerprintSupported();
+
+    /**
+     * @return The fingerprint of the scripts that was registered at the end of the last successful update, null if
+     *         the executed scripts were changed afterwards or if not supported
+     */
+    String getScriptsFingerprint();
+
+    /**
+     * Registers the fingerprint of the scripts that the executed scripts are up to date with. Every change of the
+     * executed scripts clears the fingerprint again.
+     *
+     * @param scriptsFingerprint The fingerprint of the scripts, not null
+     * @return True if the fingerprint was registered
+     */
+    boolean registerScriptsFingerprint(String scriptsFingerprint);
 }
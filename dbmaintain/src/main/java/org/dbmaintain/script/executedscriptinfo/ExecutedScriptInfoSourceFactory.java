@@ -50,6 +50,10 @@ public class ExecutedScriptInfoSourceFactory extends FactoryWithDatabase<Execute
         String executedAtColumnName = defaultDatabase.toCorrectCaseIdentifier(getString(PROPERTY_EXECUTED_AT_COLUMN_NAME, getConfiguration()));
         int executedAtColumnSize = PropertyUtils.getInt(PROPERTY_EXECUTED_AT_COLUMN_SIZE, getConfiguration());
         String succeededColumnName = defaultDatabase.toCorrectCaseIdentifier(getString(PROPERTY_SUCCEEDED_COLUMN_NAME, getConfiguration()));
+        String executionTimeColumnName = defaultDatabase.toCorrectCaseIdentifier(getString(PROPERTY_EXECUTION_TIME_COLUMN_NAME, getConfiguration()));
+        int executedScriptsTableVersion = PropertyUtils.getInt(PROPERTY_EXECUTED_SCRIPTS_TABLE_VERSION, getConfiguration());
+        String changeCounterTableName = getString(PROPERTY_EXECUTED_SCRIPTS_CHANGE_COUNTER_TABLE_NAME, null, getConfiguration());
+        int fetchSize = PropertyUtils.getInt(PROPERTY_EXECUTED_SCRIPTS_TABLE_FETCH_SIZE, getConfiguration());
         DateFormat timestampFormat = new SimpleDateFormat(getString(PROPERTY_TIMESTAMP_FORMAT, getConfiguration()));
         String scriptIndexRegexp = getString(PROPERTY_SCRIPT_INDEX_REGEXP, getConfiguration());
         String targetDatabaseRegexp = getString(PROPERTY_SCRIPT_TARGETDATABASE_REGEXP, getConfiguration());
@@ -62,8 +66,8 @@ public class ExecutedScriptInfoSourceFactory extends FactoryWithDatabase<Execute
         ScriptFactory scriptFactory = new ScriptFactory(scriptIndexRegexp, targetDatabaseRegexp, qualifierRegexp, registeredQualifiers, patchQualifiers, postProcessingScriptsDirName, baselineRevision);
         return new DefaultExecutedScriptInfoSource(autoCreateExecutedScriptsTable, executedScriptsTableName, fileNameColumnName, fileNameColumnSize,
                 fileLastModifiedAtColumnName, checksumColumnName, checksumColumnSize,
-                executedAtColumnName, executedAtColumnSize, succeededColumnName, timestampFormat, defaultDatabase,
-                getSqlHandler(), scriptFactory);
+                executedAtColumnName, executedAtColumnSize, succeededColumnName, executionTimeColumnName, executedScriptsTableVersion,
+                changeCounterTableName, fetchSize, timestampFormat, defaultDatabase, getSqlHandler(), scriptFactory);
     }
 
 }
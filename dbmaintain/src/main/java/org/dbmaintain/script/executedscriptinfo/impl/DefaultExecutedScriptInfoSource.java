@@ -15,6 +15,7 @@
  */
 package org.dbmaintain.script.executedscriptinfo.impl;
 
+import org.apache.commons.dbutils.ResultSetHandler;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.dbmaintain.database.Database;
@@ -23,17 +24,18 @@ import org.dbmaintain.script.ExecutedScript;
 import org.dbmaintain.script.Script;
 import org.dbmaintain.script.ScriptFactory;
 import org.dbmaintain.script.executedscriptinfo.ExecutedScriptInfoSource;
+import org.dbmaintain.util.CheckSumUtils;
 import org.dbmaintain.util.DbMaintainException;
 
-import java.sql.Connection;
+import javax.sql.DataSource;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.util.*;
 
-import static org.apache.commons.dbutils.DbUtils.closeQuietly;
+import static java.util.Collections.singletonMap;
 
 /**
  * Implementation of <code>VersionSource</code> that stores the version in the database.
@@ -46,6 +48,11 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
     /* The logger instance for this class */
     private static Log logger = LogFactory.getLog(DefaultExecutedScriptInfoSource.class);
 
+    /* The names of the columns of the change counter table */
+    protected static final String CHANGE_COUNTER_COLUMN_NAME = "change_counter";
+    protected static final String FINGERPRINT_COLUMN_NAME = "fingerprint";
+    protected static final String SCRIPTS_FINGERPRINT_COLUMN_NAME = "scripts_fingerprint";
+
     protected SortedSet<ExecutedScript> cachedExecutedScripts;
 
     protected Database defaultDatabase;
@@ -65,6 +72,20 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
     protected int executedAtColumnSize;
     /* The name of the database column in which the script name is stored */
     protected String succeededColumnName;
+    /* The name of the database column in which the script execution time is stored, only used by table version 2 */
+    protected String executionTimeColumnName;
+    /* The layout of the scripts table: 1 for the original layout, 2 for the layout with a primary key and typed columns */
+    protected int executedScriptsTableVersion;
+    /* The name of the table with the change counter of the scripts table, null if no change counter is kept */
+    protected String changeCounterTableName;
+    /* The change counter of the scripts table at the time the cached executed scripts were loaded, null if not known */
+    protected ChangeCounter cachedChangeCounter;
+    /* True if the change counter table was checked and was valid */
+    protected boolean validChangeCounterTable = false;
+    /* The nr of records that are fetched in one round trip when loading the scripts table, 0 for the driver default */
+    protected int fetchSize;
+    /* The scripts of the script repository per file name, used to avoid parsing the file names of the executed scripts */
+    protected Map<String, Script> repositoryScripts = new HashMap<String, Script>();
     /* True if the scripts table should be created automatically if it does not exist yet */
     protected boolean autoCreateExecutedScriptsTable;
     /* Format of the contents of the executed_at column */
@@ -78,7 +99,19 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
                                            int fileNameColumnSize, String fileLastModifiedAtColumnName, String checksumColumnName, int checksumColumnSize,
                                            String executedAtColumnName, int executedAtColumnSize, String succeededColumnName, DateFormat timestampFormat,
                                            Database defaultSupport, SQLHandler sqlHandler, ScriptFactory scriptFactory) {
+        this(autoCreateExecutedScriptsTable, executedScriptsTableName, fileNameColumnName, fileNameColumnSize, fileLastModifiedAtColumnName,
+                checksumColumnName, checksumColumnSize, executedAtColumnName, executedAtColumnSize, succeededColumnName, null, 1,
+                null, 0, timestampFormat, defaultSupport, sqlHandler, scriptFactory);
+    }
 
+    public DefaultExecutedScriptInfoSource(boolean autoCreateExecutedScriptsTable, String executedScriptsTableName, String fileNameColumnName,
+                                           int fileNameColumnSize, String fileLastModifiedAtColumnName, String checksumColumnName, int checksumColumnSize,
+                                           String executedAtColumnName, int executedAtColumnSize, String succeededColumnName, String executionTimeColumnName,
+                                           int executedScriptsTableVersion, String changeCounterTableName, int fetchSize, DateFormat timestampFormat,
+                                           Database defaultSupport, SQLHandler sqlHandler, ScriptFactory scriptFactory) {
+        if (executedScriptsTableVersion != 1 && executedScriptsTableVersion != 2) {
+            throw new DbMaintainException("Unsupported executed scripts table version " + executedScriptsTableVersion + ". Supported versions are 1 and 2.");
+        }
         this.defaultDatabase = defaultSupport;
         this.sqlHandler = sqlHandler;
         this.autoCreateExecutedScriptsTable = autoCreateExecutedScriptsTable;
@@ -91,6 +124,10 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
         this.executedAtColumnName = defaultDatabase.toCorrectCaseIdentifier(executedAtColumnName);
         this.executedAtColumnSize = executedAtColumnSize;
         this.succeededColumnName = defaultDatabase.toCorrectCaseIdentifier(succeededColumnName);
+        this.executionTimeColumnName = executionTimeColumnName == null ? null : defaultDatabase.toCorrectCaseIdentifier(executionTimeColumnName);
+        this.executedScriptsTableVersion = executedScriptsTableVersion;
+        this.changeCounterTableName = changeCounterTableName == null ? null : defaultDatabase.toCorrectCaseIdentifier(changeCounterTableName);
+        this.fetchSize = fetchSize;
         this.timestampFormat = timestampFormat;
         this.scriptFactory = scriptFactory;
     }
@@ -106,6 +143,9 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
 
         checkExecutedScriptsTable();
 
+        // the change counter is read first: if the scripts table is changed while it is being read, the cached
+        // state will be considered changed
+        cachedChangeCounter = getChangeCounter();
         cachedExecutedScripts = doGetExecutedScripts();
         return cachedExecutedScripts;
     }
@@ -117,46 +157,82 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
      * @return All scripts that were registered as executed on the database
      */
     protected synchronized SortedSet<ExecutedScript> doGetExecutedScripts() {
-        TreeSet<ExecutedScript> executedScripts = new TreeSet<ExecutedScript>();
+        final TreeSet<ExecutedScript> executedScripts = new TreeSet<ExecutedScript>();
 
-        Connection connection = null;
-        Statement statement = null;
-        ResultSet resultSet = null;
+        String sql = "select " + fileNameColumnName + ", " + fileLastModifiedAtColumnName + ", " +
+                checksumColumnName + ", " + executedAtColumnName + ", " + succeededColumnName +
+                (isTypedExecutedScriptsTable() ? ", " + executionTimeColumnName : "") +
+                " from " + getQualifiedExecutedScriptsTableName();
         try {
-            connection = defaultDatabase.getDataSource().getConnection();
-            statement = connection.createStatement();
-            resultSet = statement.executeQuery("select " + fileNameColumnName + ", " + fileLastModifiedAtColumnName + ", " +
-                    checksumColumnName + ", " + executedAtColumnName + ", " + succeededColumnName +
-                    " from " + getQualifiedExecutedScriptsTableName());
-
-            while (resultSet.next()) {
-                String fileName = resultSet.getString(fileNameColumnName);
-                String checkSum = resultSet.getString(checksumColumnName);
-                Long fileLastModifiedAt = resultSet.getLong(fileLastModifiedAtColumnName);
-                Date executedAt = null;
-                try {
-                    String executedAtStr = resultSet.getString(executedAtColumnName);
-                    if (executedAtStr != null) executedAt = timestampFormat.parse(executedAtStr);
-                } catch (ParseException e) {
-                    throw new DbMaintainException("Error when parsing date " + executedAt + " using format " + timestampFormat, e);
+            sqlHandler.executeQuery(sql, fetchSize, new ResultSetHandler() {
+                public Object handle(ResultSet resultSet) throws SQLException {
+                    while (resultSet.next()) {
+                        ExecutedScript executedScript = createExecutedScript(resultSet);
+                        if (!executedScript.getScript().isIgnored()) {
+                            executedScripts.add(executedScript);
+                        }
+                    }
+                    return null;
                 }
-                boolean succeeded = resultSet.getInt(succeededColumnName) == 1;
-
-                Script script = scriptFactory.createScriptWithoutContent(fileName, fileLastModifiedAt, checkSum);
-                if (!script.isIgnored()) {
-                    ExecutedScript executedScript = new ExecutedScript(script, executedAt, succeeded);
-                    executedScripts.add(executedScript);
-                }
-            }
-        } catch (SQLException e) {
+            }, defaultDatabase.getDataSource());
+        } catch (DbMaintainException e) {
             throw new DbMaintainException("Error while retrieving database version", e);
-        } finally {
-            closeQuietly(connection, statement, resultSet);
         }
         return executedScripts;
     }
 
 
+    /**
+     * Creates an executed script for the current record of the given result set. The columns are accessed by index,
+     * in the order of the query of {@link #doGetExecutedScripts()}. The executed at value of a version 1 scripts table
+     * is only parsed when it is requested.
+     *
+     * @param resultSet The result set positioned on a record of the scripts table, not null
+     * @return The executed script, not null
+     */
+    protected ExecutedScript createExecutedScript(ResultSet resultSet) throws SQLException {
+        String fileName = resultSet.getString(1);
+        Long fileLastModifiedAt = resultSet.getLong(2);
+        String checkSum = resultSet.getString(3);
+
+        Script repositoryScript = repositoryScripts.get(fileName);
+        Script script;
+        if (repositoryScript == null) {
+            script = scriptFactory.createScriptWithoutContent(fileName, fileLastModifiedAt, checkSum);
+        } else {
+            script = scriptFactory.createScriptWithoutContent(fileLastModifiedAt, checkSum, repositoryScript);
+        }
+
+        if (!isTypedExecutedScriptsTable()) {
+            return new UnparsedExecutedAtExecutedScript(script, resultSet.getString(4), resultSet.getInt(5) == 1);
+        }
+        ExecutedScript executedScript = new ExecutedScript(script, resultSet.getTimestamp(4), resultSet.getBoolean(5));
+        long executionTime = resultSet.getLong(6);
+        if (!resultSet.wasNull()) {
+            executedScript.setExecutionTime(executionTime);
+        }
+        return executedScript;
+    }
+
+
+    /**
+     * @param executedAt The content of the executed at column of a version 1 scripts table, null if not known
+     * @return The timestamp, null if not known
+     */
+    protected Date parseExecutedAt(String executedAt) {
+        if (executedAt == null) {
+            return null;
+        }
+        try {
+            synchronized (timestampFormat) {
+                return timestampFormat.parse(executedAt);
+            }
+        } catch (ParseException e) {
+            throw new DbMaintainException("Error when parsing date " + executedAt + " using format " + timestampFormat, e);
+        }
+    }
+
+
     /**
      * Registers the fact that the given script has been executed on the database
      *
@@ -173,6 +249,36 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
     }
 
 
+    /**
+     * Registers the fact that the given scripts have been executed on the database. All scripts are registered in a
+     * single transaction. If one of the registrations fails, the transaction is rolled back and the cached state is reset.
+     *
+     * @param executedScripts The scripts that were executed on the database, not null
+     */
+    public void registerExecutedScripts(Collection<ExecutedScript> executedScripts) {
+        if (executedScripts.isEmpty()) {
+            return;
+        }
+        checkExecutedScriptsTable();
+
+        List<Object[]> insertParameters = new ArrayList<Object[]>();
+        List<Object[]> updateParameters = new ArrayList<Object[]>();
+        for (ExecutedScript executedScript : executedScripts) {
+            if (getExecutedScripts().contains(executedScript)) {
+                updateParameters.add(getUpdateExecutedScriptParameters(executedScript));
+            } else {
+                insertParameters.add(getInsertExecutedScriptParameters(executedScript));
+            }
+        }
+        Map<String, List<Object[]>> batches = new LinkedHashMap<String, List<Object[]>>();
+        batches.put(getInsertExecutedScriptStatement(), insertParameters);
+        batches.put(getUpdateExecutedScriptStatement(), updateParameters);
+        executeBatchesAndCommit(batches);
+
+        getExecutedScripts().addAll(executedScripts);
+    }
+
+
     /**
      * Saves the given registered script
      * Precondition: The table db_executed_scripts must exist
@@ -181,14 +287,37 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
      */
     protected void insertExecutedScript(ExecutedScript executedScript) {
         getExecutedScripts().add(executedScript);
+        executeUpdateAndCommit(getInsertExecutedScriptStatement(), getInsertExecutedScriptParameters(executedScript));
+    }
+
 
-        String executedAt = timestampFormat.format(executedScript.getExecutedAt());
-        String insertSql = "insert into " + getQualifiedExecutedScriptsTableName() +
+    /**
+     * @return The prepared statement that inserts the record of a script
+     */
+    protected String getInsertExecutedScriptStatement() {
+        if (isTypedExecutedScriptsTable()) {
+            return "insert into " + getQualifiedExecutedScriptsTableName() +
+                    " (" + fileNameColumnName + ", " + fileLastModifiedAtColumnName + ", " + checksumColumnName + ", " +
+                    executedAtColumnName + ", " + succeededColumnName + ", " + executionTimeColumnName + ") values (?, ?, ?, ?, ?, ?)";
+        }
+        return "insert into " + getQualifiedExecutedScriptsTableName() +
                 " (" + fileNameColumnName + ", " + fileLastModifiedAtColumnName + ", " + checksumColumnName + ", " +
-                executedAtColumnName + ", " + succeededColumnName + ") values ('" + executedScript.getScript().getFileName() +
-                "', " + executedScript.getScript().getFileLastModifiedAt() + ", '" +
-                executedScript.getScript().getCheckSum() + "', '" + executedAt + "', " + (executedScript.isSuccessful() ? "1" : "0") + ")";
-        sqlHandler.executeUpdateAndCommit(insertSql, defaultDatabase.getDataSource());
+                executedAtColumnName + ", " + succeededColumnName + ") values (?, ?, ?, ?, ?)";
+    }
+
+
+    /**
+     * @param executedScript The script that needs to be saved, not null
+     * @return The parameters of the insert statement for the given script
+     */
+    protected Object[] getInsertExecutedScriptParameters(ExecutedScript executedScript) {
+        Script script = executedScript.getScript();
+        if (isTypedExecutedScriptsTable()) {
+            return new Object[]{script.getFileName(), script.getFileLastModifiedAt(), script.getCheckSum(),
+                    getExecutedAtValue(executedScript), getSucceededValue(executedScript.isSuccessful()), executedScript.getExecutionTime()};
+        }
+        return new Object[]{script.getFileName(), script.getFileLastModifiedAt(), script.getCheckSum(),
+                getExecutedAtValue(executedScript), getSucceededValue(executedScript.isSuccessful())};
     }
 
 
@@ -201,15 +330,56 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
         checkExecutedScriptsTable();
 
         getExecutedScripts().add(executedScript);
+        executeUpdateAndCommit(getUpdateExecutedScriptStatement(), getUpdateExecutedScriptParameters(executedScript));
+    }
+
+
+    /**
+     * Updates the given registered scripts in a single transaction. If one of the updates fails, the transaction is
+     * rolled back and the cached state is reset.
+     *
+     * @param executedScripts The scripts that need to be updated, not null
+     */
+    public void updateExecutedScripts(Collection<ExecutedScript> executedScripts) {
+        if (executedScripts.isEmpty()) {
+            return;
+        }
+        checkExecutedScriptsTable();
+
+        List<Object[]> updateParameters = new ArrayList<Object[]>(executedScripts.size());
+        for (ExecutedScript executedScript : executedScripts) {
+            updateParameters.add(getUpdateExecutedScriptParameters(executedScript));
+        }
+        executeBatchesAndCommit(singletonMap(getUpdateExecutedScriptStatement(), updateParameters));
+
+        getExecutedScripts().addAll(executedScripts);
+    }
+
+
+    /**
+     * @return The prepared statement that updates the record of a script
+     */
+    protected String getUpdateExecutedScriptStatement() {
+        return "update " + getQualifiedExecutedScriptsTableName() +
+                " set " + checksumColumnName + " = ?, " + fileLastModifiedAtColumnName + " = ?, " +
+                executedAtColumnName + " = ?, " + succeededColumnName + " = ?" +
+                (isTypedExecutedScriptsTable() ? ", " + executionTimeColumnName + " = ?" : "") +
+                " where " + fileNameColumnName + " = ?";
+    }
+
 
-        String executedAt = timestampFormat.format(executedScript.getExecutedAt());
-        String updateSql = "update " + getQualifiedExecutedScriptsTableName() +
-                " set " + checksumColumnName + " = '" + executedScript.getScript().getCheckSum() + "', " +
-                fileLastModifiedAtColumnName + " = " + executedScript.getScript().getFileLastModifiedAt() + ", " +
-                executedAtColumnName + " = '" + executedAt + "', " +
-                succeededColumnName + " = " + (executedScript.isSuccessful() ? "1" : "0") +
-                " where " + fileNameColumnName + " = '" + executedScript.getScript().getFileName() + "'";
-        sqlHandler.executeUpdateAndCommit(updateSql, defaultDatabase.getDataSource());
+    /**
+     * @param executedScript The script that needs to be updated, not null
+     * @return The parameters of the update statement for the given script
+     */
+    protected Object[] getUpdateExecutedScriptParameters(ExecutedScript executedScript) {
+        Script script = executedScript.getScript();
+        if (isTypedExecutedScriptsTable()) {
+            return new Object[]{script.getCheckSum(), script.getFileLastModifiedAt(), getExecutedAtValue(executedScript),
+                    getSucceededValue(executedScript.isSuccessful()), executedScript.getExecutionTime(), script.getFileName()};
+        }
+        return new Object[]{script.getCheckSum(), script.getFileLastModifiedAt(), getExecutedAtValue(executedScript),
+                getSucceededValue(executedScript.isSuccessful()), script.getFileName()};
     }
 
 
@@ -222,10 +392,24 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
         checkExecutedScriptsTable();
 
         getExecutedScripts().remove(executedScript);
+        executeUpdateAndCommit(getDeleteExecutedScriptStatement(), getDeleteExecutedScriptParameters(executedScript));
+    }
+
 
-        String deleteSql = "delete from " + getQualifiedExecutedScriptsTableName() +
-                " where " + fileNameColumnName + " = '" + executedScript.getScript().getFileName() + "'";
-        sqlHandler.executeUpdateAndCommit(deleteSql, defaultDatabase.getDataSource());
+    /**
+     * @return The prepared statement that deletes the record of a script
+     */
+    protected String getDeleteExecutedScriptStatement() {
+        return "delete from " + getQualifiedExecutedScriptsTableName() + " where " + fileNameColumnName + " = ?";
+    }
+
+
+    /**
+     * @param executedScript The executed script that needs to be deleted, not null
+     * @return The parameters of the delete statement for the given script
+     */
+    protected Object[] getDeleteExecutedScriptParameters(ExecutedScript executedScript) {
+        return new Object[]{executedScript.getScript().getFileName()};
     }
 
 
@@ -238,28 +422,186 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
     public void renameExecutedScript(ExecutedScript executedScript, Script renamedToScript) {
         checkExecutedScriptsTable();
 
-        String renameSql = "update " + getQualifiedExecutedScriptsTableName() +
-                " set " + fileNameColumnName + " = '" + renamedToScript.getFileName() + "', " +
-                checksumColumnName + " = '" + renamedToScript.getCheckSum() + "', " +
-                fileLastModifiedAtColumnName + " = " + renamedToScript.getFileLastModifiedAt() +
-                " where " + fileNameColumnName + " = '" + executedScript.getScript().getFileName() + "'";
-        sqlHandler.executeUpdateAndCommit(renameSql, defaultDatabase.getDataSource());
+        executeUpdateAndCommit(getRenameExecutedScriptStatement(), getRenameExecutedScriptParameters(executedScript, renamedToScript));
+        renameCachedExecutedScript(executedScript, renamedToScript);
+    }
+
+
+    /**
+     * Removes the given deleted executed scripts and registers the given renames in a single transaction. If one of
+     * the statements fails, the transaction is rolled back and the cached state is reset.
+     *
+     * @param deletedExecutedScripts The executed scripts that are no longer part of the executed scripts, not null
+     * @param renamedExecutedScripts The original executed scripts and the scripts to which they have been renamed, not null
+     */
+    public void deleteAndRenameExecutedScripts(Collection<ExecutedScript> deletedExecutedScripts, Map<ExecutedScript, Script> renamedExecutedScripts) {
+        if (deletedExecutedScripts.isEmpty() && renamedExecutedScripts.isEmpty()) {
+            return;
+        }
+        checkExecutedScriptsTable();
+
+        List<Object[]> deleteParameters = new ArrayList<Object[]>(deletedExecutedScripts.size());
+        for (ExecutedScript deletedExecutedScript : deletedExecutedScripts) {
+            deleteParameters.add(getDeleteExecutedScriptParameters(deletedExecutedScript));
+        }
+        List<Object[]> renameParameters = new ArrayList<Object[]>(renamedExecutedScripts.size());
+        for (Map.Entry<ExecutedScript, Script> renamedExecutedScript : renamedExecutedScripts.entrySet()) {
+            renameParameters.add(getRenameExecutedScriptParameters(renamedExecutedScript.getKey(), renamedExecutedScript.getValue()));
+        }
+        Map<String, List<Object[]>> batches = new LinkedHashMap<String, List<Object[]>>();
+        batches.put(getDeleteExecutedScriptStatement(), deleteParameters);
+        batches.put(getRenameExecutedScriptStatement(), renameParameters);
+        executeBatchesAndCommit(batches);
+
+        getExecutedScripts().removeAll(deletedExecutedScripts);
+        for (Map.Entry<ExecutedScript, Script> renamedExecutedScript : renamedExecutedScripts.entrySet()) {
+            renameCachedExecutedScript(renamedExecutedScript.getKey(), renamedExecutedScript.getValue());
+        }
+    }
+
+
+    /**
+     * @return The prepared statement that updates the record of a script to refer to the script it was renamed to
+     */
+    protected String getRenameExecutedScriptStatement() {
+        return "update " + getQualifiedExecutedScriptsTableName() +
+                " set " + fileNameColumnName + " = ?, " + checksumColumnName + " = ?, " + fileLastModifiedAtColumnName + " = ?" +
+                " where " + fileNameColumnName + " = ?";
+    }
+
+
+    /**
+     * @param executedScript  The original executed script that still refers to the original script, not null
+     * @param renamedToScript The script to which the original script has been renamed, not null
+     * @return The parameters of the rename statement for the given script
+     */
+    protected Object[] getRenameExecutedScriptParameters(ExecutedScript executedScript, Script renamedToScript) {
+        return new Object[]{renamedToScript.getFileName(), renamedToScript.getCheckSum(), renamedToScript.getFileLastModifiedAt(),
+                executedScript.getScript().getFileName()};
+    }
+
+
+    /**
+     * Renames the given executed script. The executed scripts are sorted on their script, so the executed script
+     * is taken out of the cached executed scripts while it is renamed.
+     *
+     * @param executedScript  The original executed script that still refers to the original script, not null
+     * @param renamedToScript The script to which the original script has been renamed, not null
+     */
+    protected void renameCachedExecutedScript(ExecutedScript executedScript, Script renamedToScript) {
+        boolean cached = getExecutedScripts().remove(executedScript);
         executedScript.renameTo(renamedToScript);
+        if (cached) {
+            getExecutedScripts().add(executedScript);
+        }
     }
 
 
+    /**
+     * Removes all previously registered executed postprocessing scripts in a single transaction
+     */
     public void deleteAllExecutedPostprocessingScripts() {
         checkExecutedScriptsTable();
 
-        for (Iterator<ExecutedScript> executedScriptsIterator = getExecutedScripts().iterator(); executedScriptsIterator.hasNext();) {
-            ExecutedScript executedScript = executedScriptsIterator.next();
+        List<ExecutedScript> executedPostprocessingScripts = new ArrayList<ExecutedScript>();
+        List<Object[]> deleteParameters = new ArrayList<Object[]>();
+        for (ExecutedScript executedScript : getExecutedScripts()) {
             if (executedScript.getScript().isPostProcessingScript()) {
-                executedScriptsIterator.remove();
-                String deleteSql = "delete from " + getQualifiedExecutedScriptsTableName() +
-                        " where " + fileNameColumnName + " = '" + executedScript.getScript().getFileName() + "'";
-                sqlHandler.executeUpdateAndCommit(deleteSql, defaultDatabase.getDataSource());
+                executedPostprocessingScripts.add(executedScript);
+                deleteParameters.add(getDeleteExecutedScriptParameters(executedScript));
             }
         }
+        if (executedPostprocessingScripts.isEmpty()) {
+            return;
+        }
+        executeBatchesAndCommit(singletonMap(getDeleteExecutedScriptStatement(), deleteParameters));
+
+        getExecutedScripts().removeAll(executedPostprocessingScripts);
+    }
+
+
+    /**
+     * Executes the given prepared statement and registers the change of the scripts table in a single transaction.
+     * If the statement fails, the transaction is rolled back and the cached state is reset.
+     *
+     * @param sql        The prepared statement, not null
+     * @param parameters The values of the parameters, not null
+     */
+    protected void executeUpdateAndCommit(String sql, Object[] parameters) {
+        executeBatchesAndCommit(singletonMap(sql, Collections.singletonList(parameters)));
+    }
+
+
+    /**
+     * Registers a change of the scripts table in its own transaction, e.g. after the scripts table was (re-)created.
+     */
+    protected void registerChangeAndCommit() {
+        executeBatchesAndCommit(Collections.<String, List<Object[]>>emptyMap());
+    }
+
+
+    /**
+     * Executes the given prepared statements in batches and registers the change of the scripts table, in a single
+     * transaction. If one of the batches fails, the transaction is rolled back and the cached state is reset.
+     *
+     * @param batches The prepared statements and, for each statement, the parameters of every execution, not null
+     */
+    protected void executeBatchesAndCommit(Map<String, List<Object[]>> batches) {
+        if (changeCounterTableName != null) {
+            // can create the change counter table, which is committed implicitly by some databases
+            checkChangeCounterTable();
+        }
+        DataSource dataSource = defaultDatabase.getDataSource();
+        sqlHandler.startTransaction(dataSource);
+        try {
+            for (Map.Entry<String, List<Object[]>> batch : batches.entrySet()) {
+                sqlHandler.executeBatch(batch.getKey(), batch.getValue(), dataSource);
+            }
+            registerChange();
+        } catch (RuntimeException e) {
+            sqlHandler.endTransactionAndRollback(dataSource);
+            resetCachedState();
+            throw e;
+        }
+        try {
+            sqlHandler.endTransactionAndCommit(dataSource);
+        } catch (RuntimeException e) {
+            resetCachedState();
+            throw e;
+        }
+    }
+
+
+    /**
+     * @param executedScript The executed script, not null
+     * @return The value of the executed at column for the given script: a timestamp for a version 2 scripts table,
+     *         formatted text for a version 1 scripts table
+     */
+    protected Object getExecutedAtValue(ExecutedScript executedScript) {
+        if (isTypedExecutedScriptsTable()) {
+            return new Timestamp(executedScript.getExecutedAt().getTime());
+        }
+        return timestampFormat.format(executedScript.getExecutedAt());
+    }
+
+
+    /**
+     * @param succeeded True if the script was executed successfully
+     * @return The value of the succeeded column: a boolean for a version 2 scripts table, 1 or 0 for a version 1 scripts table
+     */
+    protected Object getSucceededValue(boolean succeeded) {
+        if (isTypedExecutedScriptsTable()) {
+            return succeeded;
+        }
+        return succeeded ? 1 : 0;
+    }
+
+
+    /**
+     * @return True if the scripts table has the version 2 layout, with a primary key and typed columns
+     */
+    protected boolean isTypedExecutedScriptsTable() {
+        return executedScriptsTableVersion >= 2;
     }
 
     /**
@@ -270,7 +612,7 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
         checkExecutedScriptsTable();
 
         String deleteSql = "delete from " + getQualifiedExecutedScriptsTableName();
-        sqlHandler.executeUpdateAndCommit(deleteSql, defaultDatabase.getDataSource());
+        executeUpdateAndCommit(deleteSql, new Object[0]);
 
         resetCachedState();
     }
@@ -282,8 +624,8 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
     public void markErrorScriptsAsSuccessful() {
         checkExecutedScriptsTable();
 
-        String deleteSql = "update " + getQualifiedExecutedScriptsTableName() + " set " + succeededColumnName + "=1 where " + succeededColumnName + "=0";
-        sqlHandler.executeUpdateAndCommit(deleteSql, defaultDatabase.getDataSource());
+        String updateSql = "update " + getQualifiedExecutedScriptsTableName() + " set " + succeededColumnName + " = ? where " + succeededColumnName + " = ?";
+        executeUpdateAndCommit(updateSql, new Object[]{getSucceededValue(true), getSucceededValue(false)});
 
         resetCachedState();
     }
@@ -294,8 +636,8 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
     public void removeErrorScripts() {
         checkExecutedScriptsTable();
 
-        String deleteSql = "delete from " + getQualifiedExecutedScriptsTableName() + " where " + succeededColumnName + "=0";
-        sqlHandler.executeUpdateAndCommit(deleteSql, defaultDatabase.getDataSource());
+        String deleteSql = "delete from " + getQualifiedExecutedScriptsTableName() + " where " + succeededColumnName + " = ?";
+        executeUpdateAndCommit(deleteSql, new Object[]{getSucceededValue(false)});
 
         resetCachedState();
     }
@@ -311,11 +653,26 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
         if (validExecutedScriptsTable) {
             return true;
         }
+        // a previous migration to the version 2 layout did not complete after the version table was dropped or
+        // re-created, the backup holds all records. A backup next to an intact version 1 table is never used.
+        if (isTypedExecutedScriptsTable() && isExecutedScriptsBackupTablePresent() && !isVersion1ExecutedScriptsTable()) {
+            logger.warn("Found backup table " + getQualifiedExecutedScriptsBackupTableName() + " of an incomplete migration of executed scripts table " + getQualifiedExecutedScriptsTableName() + ". The migration is resumed.");
+            migrateExecutedScriptsTableFromBackup();
+            validExecutedScriptsTable = true;
+            return true;
+        }
         // check valid
         if (isExecutedScriptsTableValid()) {
             validExecutedScriptsTable = true;
             return true;
         }
+        // a version 2 table is configured, but the table still has the version 1 layout
+        if (isTypedExecutedScriptsTable() && isVersion1ExecutedScriptsTable()) {
+            logger.info("Executed scripts table " + getQualifiedExecutedScriptsTableName() + " still has the version 1 layout. It is migrated to the version 2 layout automatically.");
+            migrateExecutedScriptsTable();
+            validExecutedScriptsTable = true;
+            return true;
+        }
 
         // does not exist yet, if auto-create create version table
         if (autoCreateExecutedScriptsTable) {
@@ -340,19 +697,175 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
      * @return False if the version table was not ok and therefore re-created
      */
     protected boolean isExecutedScriptsTableValid() {
+        Set<String> columnNames = getExecutedScriptsTableColumnNames();
+        if (columnNames == null || !containsVersion1Columns(columnNames)) {
+            return false;
+        }
+        return !isTypedExecutedScriptsTable() || columnNames.contains(executionTimeColumnName);
+    }
+
+
+    /**
+     * @return True if the version table exists and has the version 1 layout
+     */
+    protected boolean isVersion1ExecutedScriptsTable() {
+        Set<String> columnNames = getExecutedScriptsTableColumnNames();
+        return columnNames != null && containsVersion1Columns(columnNames) && !columnNames.contains(executionTimeColumnName);
+    }
+
+
+    /**
+     * @return The names of the columns of the version table, null if the version table does not exist
+     */
+    protected Set<String> getExecutedScriptsTableColumnNames() {
         // Check existence of version table
         Set<String> tableNames = defaultDatabase.getTableNames(defaultDatabase.getDefaultSchemaName());
-        if (tableNames.contains(executedScriptsTableName)) {
-            // Check columns of version table
-            Set<String> columnNames = defaultDatabase.getColumnNames(defaultDatabase.getDefaultSchemaName(), executedScriptsTableName);
-            if (columnNames.contains(fileNameColumnName) && columnNames.contains(fileLastModifiedAtColumnName)
-                    && columnNames.contains(checksumColumnName) && columnNames.contains(executedAtColumnName)
-                    && columnNames.contains(succeededColumnName)) {
-                return true;
+        if (!tableNames.contains(executedScriptsTableName)) {
+            return null;
+        }
+        return defaultDatabase.getColumnNames(defaultDatabase.getDefaultSchemaName(), executedScriptsTableName);
+    }
+
+
+    /**
+     * @param columnNames The names of the columns of the version table, not null
+     * @return True if all columns of the version 1 layout are present
+     */
+    protected boolean containsVersion1Columns(Set<String> columnNames) {
+        return columnNames.contains(fileNameColumnName) && columnNames.contains(fileLastModifiedAtColumnName)
+                && columnNames.contains(checksumColumnName) && columnNames.contains(executedAtColumnName)
+                && columnNames.contains(succeededColumnName);
+    }
+
+
+    /**
+     * Migrates a version table with the version 1 layout to the version 2 layout without risking the loss of records,
+     * also on databases that implicitly commit ddl statements, e.g. Oracle and MySQL. The records are first copied to
+     * a backup table. Only if the backup contains all records, the version table is dropped, re-created and filled from
+     * the backup. The backup table is dropped once the version table contains all records again. If the copy to the
+     * backup table fails, the backup table is dropped and the version table is left untouched. If the migration fails
+     * after the version table was dropped, it is resumed from the backup table the next time.
+     */
+    protected void migrateExecutedScriptsTable() {
+        DataSource dataSource = defaultDatabase.getDataSource();
+        String backupTableName = getQualifiedExecutedScriptsBackupTableName();
+        String columnNames = fileNameColumnName + ", " + fileLastModifiedAtColumnName + ", " + checksumColumnName + ", " + executedAtColumnName + ", " + succeededColumnName;
+        if (isExecutedScriptsBackupTablePresent()) {
+            logger.warn("Dropping backup table " + backupTableName + " of an earlier migration that did not complete the copy of the records. The version table " + getQualifiedExecutedScriptsTableName() + " still holds all records.");
+            dropExecutedScriptsBackupTable();
+        }
+        try {
+            sqlHandler.execute(getCreateVersion1ExecutedScriptTableStatement(backupTableName), dataSource);
+            sqlHandler.executeUpdateAndCommit("insert into " + backupTableName + " (" + columnNames + ") select " + columnNames + " from " + getQualifiedExecutedScriptsTableName(), dataSource);
+        } catch (DbMaintainException e) {
+            dropExecutedScriptsBackupTableQuietly();
+            throw new DbMaintainException("Unable to migrate executed scripts table " + getQualifiedExecutedScriptsTableName() + " to the version 2 layout: the backup table " + backupTableName + " could not be created.", e);
+        }
+        long nbRecords = getNbRecords(getQualifiedExecutedScriptsTableName());
+        if (getNbRecords(backupTableName) != nbRecords) {
+            dropExecutedScriptsBackupTableQuietly();
+            throw new DbMaintainException("Unable to migrate executed scripts table " + getQualifiedExecutedScriptsTableName() + " to the version 2 layout: the backup table " + backupTableName + " does not contain all " + nbRecords + " records.");
+        }
+        migrateExecutedScriptsTableFromBackup();
+    }
+
+
+    /**
+     * Drops the backup table of the migration to the version 2 layout.
+     */
+    protected void dropExecutedScriptsBackupTable() {
+        defaultDatabase.dropTable(defaultDatabase.getDefaultSchemaName(), getExecutedScriptsBackupTableName());
+    }
+
+
+    /**
+     * Drops the incomplete backup table of a failed copy. The version table still holds all records, so a failure to
+     * drop it is only logged: the backup table is dropped again before the next migration.
+     */
+    protected void dropExecutedScriptsBackupTableQuietly() {
+        try {
+            dropExecutedScriptsBackupTable();
+        } catch (DbMaintainException e) {
+            logger.warn("Unable to drop incomplete backup table " + getQualifiedExecutedScriptsBackupTableName() + ".", e);
+        }
+    }
+
+
+    /**
+     * Re-creates the version table with the version 2 layout and fills it with the records of the backup table. The
+     * backup table is dropped once the version table contains all records. If this fails, the backup table is kept.
+     */
+    protected void migrateExecutedScriptsTableFromBackup() {
+        DataSource dataSource = defaultDatabase.getDataSource();
+        String backupTableName = getQualifiedExecutedScriptsBackupTableName();
+        List<Object[]> insertParameters = getVersion1ExecutedScriptsTableRecords(backupTableName);
+        try {
+            try {
+                defaultDatabase.dropTable(defaultDatabase.getDefaultSchemaName(), executedScriptsTableName);
+            } catch (DbMaintainException e) {
+                // ignored, the version table was already dropped
             }
+            sqlHandler.execute(getCreateExecutedScriptTableStatement(), dataSource);
+            sqlHandler.startTransaction(dataSource);
+            try {
+                sqlHandler.executeBatch(getInsertExecutedScriptStatement(), insertParameters, dataSource);
+            } catch (RuntimeException e) {
+                sqlHandler.endTransactionAndRollback(dataSource);
+                throw e;
+            }
+            sqlHandler.endTransactionAndCommit(dataSource);
+        } catch (DbMaintainException e) {
+            throw new DbMaintainException("Unable to migrate executed scripts table " + getQualifiedExecutedScriptsTableName() + " to the version 2 layout. All records are kept in backup table " + backupTableName + ".", e);
+        }
+        if (getNbRecords(getQualifiedExecutedScriptsTableName()) != insertParameters.size()) {
+            throw new DbMaintainException("Unable to migrate executed scripts table " + getQualifiedExecutedScriptsTableName() + " to the version 2 layout: not all records were copied. All records are kept in backup table " + backupTableName + ".");
         }
+        dropExecutedScriptsBackupTable();
+        registerChangeAndCommit();
+    }
+
 
-        return false;
+    /**
+     * @param qualifiedTableName The qualified name of the table, not null
+     * @return The nr of records in the given table
+     */
+    protected long getNbRecords(String qualifiedTableName) {
+        return sqlHandler.getItemAsLong("select count(*) from " + qualifiedTableName, defaultDatabase.getDataSource());
+    }
+
+
+    /**
+     * @param qualifiedTableName The qualified name of the table with the version 1 layout, not null
+     * @return The records of the table, as parameters for the insert statement of the version 2 layout, not null
+     */
+    protected List<Object[]> getVersion1ExecutedScriptsTableRecords(String qualifiedTableName) {
+        final List<Object[]> records = new ArrayList<Object[]>();
+
+        String sql = "select " + fileNameColumnName + ", " + fileLastModifiedAtColumnName + ", " +
+                checksumColumnName + ", " + executedAtColumnName + ", " + succeededColumnName +
+                " from " + qualifiedTableName;
+        try {
+            sqlHandler.executeQuery(sql, fetchSize, new ResultSetHandler() {
+                public Object handle(ResultSet resultSet) throws SQLException {
+                    while (resultSet.next()) {
+                        String fileName = resultSet.getString(1);
+                        Long fileLastModifiedAt = resultSet.getLong(2);
+                        if (resultSet.wasNull()) {
+                            fileLastModifiedAt = null;
+                        }
+                        String checkSum = resultSet.getString(3);
+                        Date executedAt = parseExecutedAt(resultSet.getString(4));
+                        boolean succeeded = resultSet.getInt(5) == 1;
+                        records.add(new Object[]{fileName, fileLastModifiedAt, checkSum, executedAt == null ? null : new Timestamp(executedAt.getTime()),
+                                getSucceededValue(succeeded), null});
+                    }
+                    return null;
+                }
+            }, defaultDatabase.getDataSource());
+        } catch (DbMaintainException e) {
+            throw new DbMaintainException("Error while retrieving the records of executed scripts table " + qualifiedTableName, e);
+        }
+        return records;
     }
 
     /**
@@ -368,14 +881,32 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
 
         // Create db version table
         sqlHandler.executeUpdateAndCommit(getCreateExecutedScriptTableStatement(), defaultDatabase.getDataSource());
+        registerChangeAndCommit();
     }
 
     /**
      * @return The statement to create the version table.
      */
     protected String getCreateExecutedScriptTableStatement() {
+        if (isTypedExecutedScriptsTable()) {
+            return "create table " + getQualifiedExecutedScriptsTableName() + " ( " +
+                    fileNameColumnName + " " + defaultDatabase.getTextDataType(fileNameColumnSize) + " not null primary key, " +
+                    fileLastModifiedAtColumnName + " " + defaultDatabase.getLongDataType() + ", " +
+                    checksumColumnName + " " + defaultDatabase.getTextDataType(checksumColumnSize) + ", " +
+                    executedAtColumnName + " " + defaultDatabase.getTimestampDataType() + ", " +
+                    succeededColumnName + " " + defaultDatabase.getBooleanDataType() + ", " +
+                    executionTimeColumnName + " " + defaultDatabase.getLongDataType() + " )";
+        }
+        return getCreateVersion1ExecutedScriptTableStatement(getQualifiedExecutedScriptsTableName());
+    }
+
+    /**
+     * @param qualifiedTableName The qualified name of the table, not null
+     * @return The statement to create a table with the version 1 layout of the version table
+     */
+    protected String getCreateVersion1ExecutedScriptTableStatement(String qualifiedTableName) {
         String longDataType = defaultDatabase.getLongDataType();
-        return "create table " + getQualifiedExecutedScriptsTableName() + " ( " +
+        return "create table " + qualifiedTableName + " ( " +
                 fileNameColumnName + " " + defaultDatabase.getTextDataType(fileNameColumnSize) + ", " +
                 fileLastModifiedAtColumnName + " " + defaultDatabase.getLongDataType() + ", " +
                 checksumColumnName + " " + defaultDatabase.getTextDataType(checksumColumnSize) + ", " +
@@ -387,11 +918,332 @@ public class DefaultExecutedScriptInfoSource implements ExecutedScriptInfoSource
         return defaultDatabase.qualified(defaultDatabase.getDefaultSchemaName(), executedScriptsTableName);
     }
 
+    /**
+     * @return The name of the table that holds a copy of the version table while it is migrated to the version 2 layout
+     */
+    protected String getExecutedScriptsBackupTableName() {
+        return defaultDatabase.toCorrectCaseIdentifier(executedScriptsTableName + "_v1");
+    }
+
+    protected String getQualifiedExecutedScriptsBackupTableName() {
+        return defaultDatabase.qualified(defaultDatabase.getDefaultSchemaName(), getExecutedScriptsBackupTableName());
+    }
+
+    /**
+     * @return True if the backup table of an incomplete migration to the version 2 layout exists
+     */
+    protected boolean isExecutedScriptsBackupTablePresent() {
+        return defaultDatabase.getTableNames(defaultDatabase.getDefaultSchemaName()).contains(getExecutedScriptsBackupTableName());
+    }
+
+    /**
+     * Sets the scripts of the script repository. When the executed scripts are loaded, the indexes, target database
+     * and qualifiers of a repository script with the same file name are reused instead of parsing the file name again.
+     * The check sums of the scripts must fit in the checksum column.
+     *
+     * @param scripts The scripts of the script repository, not null
+     * @throws DbMaintainException if the check sum algorithm of a script produces check sums that do not fit in the
+     *                             checksum column
+     */
+    public void setRepositoryScripts(Collection<Script> scripts) {
+        repositoryScripts = new HashMap<String, Script>(scripts.size() * 2);
+        Set<String> checkSumAlgorithms = new HashSet<String>();
+        for (Script script : scripts) {
+            repositoryScripts.put(script.getFileName(), script);
+            checkSumAlgorithms.add(script.getCheckSumAlgorithm().toUpperCase());
+        }
+        for (String checkSumAlgorithm : checkSumAlgorithms) {
+            checkCheckSumColumnSize(checkSumAlgorithm);
+        }
+    }
+
+
+    /**
+     * @param checkSumAlgorithm The check sum algorithm of a script, not null
+     * @throws DbMaintainException if the check sums of the given algorithm do not fit in the checksum column
+     */
+    protected void checkCheckSumColumnSize(String checkSumAlgorithm) {
+        int checkSumLength = CheckSumUtils.getCheckSumLength(checkSumAlgorithm);
+        if (checkSumLength > checksumColumnSize) {
+            throw new DbMaintainException("The check sums of algorithm " + checkSumAlgorithm + " take " + checkSumLength + " chars, but the checksum column " +
+                    checksumColumnName + " of executed scripts table " + getQualifiedExecutedScriptsTableName() + " only has " + checksumColumnSize + " chars.\n" +
+                    "Please enlarge the column and set the property dbMaintainer.checksumColumnSize accordingly, or use another check sum algorithm.");
+        }
+    }
+
     /**
      * Resets the cached state, for example when the scripts table was modified by another process.
      * The scripts will be reloaded the next time.
      */
     public void resetCachedState() {
         cachedExecutedScripts = null;
+        cachedChangeCounter = null;
+    }
+
+
+    /**
+     * Resets the cached state if the scripts table was changed by another process since the executed scripts were
+     * loaded. If a change counter is kept, this only takes a single-row query. Otherwise, the cached state is always reset.
+     *
+     * @return True if the cached state was reset
+     */
+    public boolean resetCachedStateIfChanged() {
+        if (cachedExecutedScripts == null) {
+            return false;
+        }
+        if (changeCounterTableName != null && cachedChangeCounter != null && cachedChangeCounter.equals(getChangeCounter())) {
+            return false;
+        }
+        resetCachedState();
+        return true;
+    }
+
+
+    /**
+     * @return True if a fingerprint of the scripts can be registered, i.e. if a change counter is kept
+     */
+    public boolean isScriptsFingerprintSupported() {
+        return changeCounterTableName != null;
+    }
+
+
+    /**
+     * Only reads the change counter table: it is not created if it does not exist yet.
+     *
+     * @return The fingerprint of the scripts that was registered at the end of the last successful update, null if
+     *         the scripts table was changed afterwards or if no change counter is kept
+     */
+    public String getScriptsFingerprint() {
+        if (changeCounterTableName == null || !validChangeCounterTable && !isChangeCounterTableValid()) {
+            return null;
+        }
+        String sql = "select " + SCRIPTS_FINGERPRINT_COLUMN_NAME + " from " + getQualifiedChangeCounterTableName();
+        try {
+            return (String) sqlHandler.executeQuery(sql, 0, new ResultSetHandler() {
+                public Object handle(ResultSet resultSet) throws SQLException {
+                    if (!resultSet.next()) {
+                        return null;
+                    }
+                    return resultSet.getString(1);
+                }
+            }, defaultDatabase.getDataSource());
+        } catch (DbMaintainException e) {
+            throw new DbMaintainException("Error while retrieving the fingerprint of the scripts", e);
+        }
+    }
+
+
+    /**
+     * Registers the fingerprint of the scripts that the executed scripts are up to date with. The fingerprint is only
+     * registered if the scripts table was not changed by another process since the executed scripts were loaded. Every
+     * change of the scripts table clears the fingerprint again.
+     *
+     * @param scriptsFingerprint The fingerprint of the scripts, not null
+     * @return True if the fingerprint was registered
+     */
+    public boolean registerScriptsFingerprint(String scriptsFingerprint) {
+        if (changeCounterTableName == null || cachedChangeCounter == null) {
+            return false;
+        }
+        String updateSql = "update " + getQualifiedChangeCounterTableName() + " set " + SCRIPTS_FINGERPRINT_COLUMN_NAME + " = ?" +
+                " where " + CHANGE_COUNTER_COLUMN_NAME + " = ? and " + FINGERPRINT_COLUMN_NAME + " = ?";
+        int nbChanges = sqlHandler.executeUpdateAndCommit(updateSql, new Object[]{scriptsFingerprint,
+                cachedChangeCounter.getValue(), cachedChangeCounter.getFingerprint()}, defaultDatabase.getDataSource());
+        return nbChanges == 1;
+    }
+
+
+    /**
+     * Registers a change of the scripts table by incrementing the change counter and giving it a new fingerprint.
+     * The registered fingerprint of the scripts is cleared. If the change counter still has the value that was read
+     * when the executed scripts were loaded, the cached state stays valid. Otherwise, another process also changed the
+     * scripts table and the cached state can no longer be validated.
+     * <p/>
+     * The counter is not committed: if a transaction is active, it is updated in the same transaction as the change
+     * of the scripts table itself.
+     */
+    protected void registerChange() {
+        if (changeCounterTableName == null) {
+            return;
+        }
+        checkChangeCounterTable();
+
+        String fingerprint = createChangeCounterFingerprint();
+        DataSource dataSource = defaultDatabase.getDataSource();
+        if (cachedChangeCounter != null) {
+            String updateSql = "update " + getQualifiedChangeCounterTableName() + " set " + CHANGE_COUNTER_COLUMN_NAME + " = ?, " +
+                    FINGERPRINT_COLUMN_NAME + " = ?, " + SCRIPTS_FINGERPRINT_COLUMN_NAME + " = null" +
+                    " where " + CHANGE_COUNTER_COLUMN_NAME + " = ? and " + FINGERPRINT_COLUMN_NAME + " = ?";
+            long nextValue = cachedChangeCounter.getValue() + 1;
+            int nbChanges = sqlHandler.executeUpdate(updateSql, new Object[]{nextValue, fingerprint,
+                    cachedChangeCounter.getValue(), cachedChangeCounter.getFingerprint()}, dataSource);
+            if (nbChanges == 1) {
+                cachedChangeCounter = new ChangeCounter(nextValue, fingerprint);
+                return;
+            }
+        }
+        String updateSql = "update " + getQualifiedChangeCounterTableName() + " set " + CHANGE_COUNTER_COLUMN_NAME + " = " +
+                CHANGE_COUNTER_COLUMN_NAME + " + 1, " + FINGERPRINT_COLUMN_NAME + " = ?, " + SCRIPTS_FINGERPRINT_COLUMN_NAME + " = null";
+        sqlHandler.executeUpdate(updateSql, new Object[]{fingerprint}, dataSource);
+        cachedChangeCounter = null;
+    }
+
+
+    /**
+     * @return The current change counter of the scripts table, null if no change counter is kept
+     */
+    protected ChangeCounter getChangeCounter() {
+        if (changeCounterTableName == null) {
+            return null;
+        }
+        checkChangeCounterTable();
+
+        String sql = "select " + CHANGE_COUNTER_COLUMN_NAME + ", " + FINGERPRINT_COLUMN_NAME + " from " + getQualifiedChangeCounterTableName();
+        try {
+            return (ChangeCounter) sqlHandler.executeQuery(sql, 0, new ResultSetHandler() {
+                public Object handle(ResultSet resultSet) throws SQLException {
+                    if (!resultSet.next()) {
+                        return null;
+                    }
+                    return new ChangeCounter(resultSet.getLong(1), resultSet.getString(2));
+                }
+            }, defaultDatabase.getDataSource());
+        } catch (DbMaintainException e) {
+            throw new DbMaintainException("Error while retrieving the change counter of the executed scripts table", e);
+        }
+    }
+
+
+    /**
+     * Checks if the change counter table and columns exist and if it contains the change counter record. If not, the
+     * table is (re-)created if auto-create is true, else an exception is raised.
+     */
+    protected void checkChangeCounterTable() {
+        if (validChangeCounterTable) {
+            return;
+        }
+        DataSource dataSource = defaultDatabase.getDataSource();
+        if (!isChangeCounterTableValid()) {
+            if (!autoCreateExecutedScriptsTable) {
+                throw new DbMaintainException("Change counter table " + getQualifiedChangeCounterTableName() + " doesn't exist yet or is invalid.\n" +
+                        "Please create it manually or let DbMaintain create it automatically by setting the property autoCreateDbMaintainScriptsTable to true.\n" +
+                        "The table can be created manually by executing following statement:\n" + getCreateChangeCounterTableStatement());
+            }
+            logger.warn("Change counter table " + getQualifiedChangeCounterTableName() + " doesn't exist yet or is invalid. A new one is created automatically.");
+            try {
+                defaultDatabase.dropTable(defaultDatabase.getDefaultSchemaName(), changeCounterTableName);
+            } catch (DbMaintainException e) {
+                // ignored
+            }
+            sqlHandler.executeUpdateAndCommit(getCreateChangeCounterTableStatement(), dataSource);
+        }
+        if (!sqlHandler.exists("select 1 from " + getQualifiedChangeCounterTableName(), dataSource)) {
+            String insertSql = "insert into " + getQualifiedChangeCounterTableName() + " (" + CHANGE_COUNTER_COLUMN_NAME + ", " +
+                    FINGERPRINT_COLUMN_NAME + ") values (?, ?)";
+            sqlHandler.executeUpdateAndCommit(insertSql, new Object[]{0L, createChangeCounterFingerprint()}, dataSource);
+        }
+        validChangeCounterTable = true;
+    }
+
+
+    /**
+     * @return True if the change counter table exists and has all columns
+     */
+    protected boolean isChangeCounterTableValid() {
+        Set<String> tableNames = defaultDatabase.getTableNames(defaultDatabase.getDefaultSchemaName());
+        if (!tableNames.contains(changeCounterTableName)) {
+            return false;
+        }
+        Set<String> columnNames = defaultDatabase.getColumnNames(defaultDatabase.getDefaultSchemaName(), changeCounterTableName);
+        return columnNames.contains(defaultDatabase.toCorrectCaseIdentifier(CHANGE_COUNTER_COLUMN_NAME))
+                && columnNames.contains(defaultDatabase.toCorrectCaseIdentifier(FINGERPRINT_COLUMN_NAME))
+                && columnNames.contains(defaultDatabase.toCorrectCaseIdentifier(SCRIPTS_FINGERPRINT_COLUMN_NAME));
+    }
+
+
+    /**
+     * @return The statement to create the change counter table
+     */
+    protected String getCreateChangeCounterTableStatement() {
+        return "create table " + getQualifiedChangeCounterTableName() + " ( " +
+                CHANGE_COUNTER_COLUMN_NAME + " " + defaultDatabase.getLongDataType() + ", " +
+                FINGERPRINT_COLUMN_NAME + " " + defaultDatabase.getTextDataType(50) + ", " +
+                SCRIPTS_FINGERPRINT_COLUMN_NAME + " " + defaultDatabase.getTextDataType(50) + " )";
+    }
+
+
+    /**
+     * @return A new fingerprint that is unique for each change, so that the change counter can also be validated
+     *         after the change counter table was re-created
+     */
+    protected String createChangeCounterFingerprint() {
+        return UUID.randomUUID().toString();
+    }
+
+
+    protected String getQualifiedChangeCounterTableName() {
+        return defaultDatabase.qualified(defaultDatabase.getDefaultSchemaName(), changeCounterTableName);
+    }
+
+
+    /**
+     * The value and fingerprint of the change counter of the scripts table.
+     */
+    protected static class ChangeCounter {
+
+        private long value;
+        private String fingerprint;
+
+        public ChangeCounter(long value, String fingerprint) {
+            this.value = value;
+            this.fingerprint = fingerprint;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ChangeCounter)) {
+                return false;
+            }
+            ChangeCounter other = (ChangeCounter) o;
+            return value == other.value && (fingerprint == null ? other.fingerprint == null : fingerprint.equals(other.fingerprint));
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) value;
+        }
+    }
+
+
+    /**
+     * Executed script of a version 1 scripts table of which the executed at value is only parsed when it is requested.
+     * Loading the scripts table then does not require parsing a timestamp for every record.
+     */
+    protected class UnparsedExecutedAtExecutedScript extends ExecutedScript {
+
+        private String executedAtValue;
+        private Date executedAt;
+
+        public UnparsedExecutedAtExecutedScript(Script script, String executedAtValue, Boolean successful) {
+            super(script, null, successful);
+            this.executedAtValue = executedAtValue;
+        }
+
+        @Override
+        public Date getExecutedAt() {
+            if (executedAtValue != null) {
+                executedAt = parseExecutedAt(executedAtValue);
+                executedAtValue = null;
+            }
+            return executedAt;
+        }
     }
 }
@@ -19,7 +19,6 @@ import org.dbmaintain.script.parser.ScriptParser;
 import org.dbmaintain.script.parser.parsingstate.ParsingState;
 import org.dbmaintain.util.DbMaintainException;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.Properties;
@@ -39,6 +38,10 @@ import java.util.Properties;
  */
 public class DefaultScriptParser implements ScriptParser {
 
+    /**
+     * The nr of characters that are read from the script at once
+     */
+    protected static final int BUFFER_SIZE = 8192;
 
     /**
      * The reader for the script content stream
@@ -66,9 +69,19 @@ public class DefaultScriptParser implements ScriptParser {
     protected boolean endOfScriptReached = false;
 
     /**
-     * The current parsed character
+     * The current parsed character, -1 if none
+     */
+    protected int currentChar = -1, nextChar = -1;
+
+    /**
+     * The characters that were read from the script but not yet parsed
+     */
+    protected char[] buffer = new char[BUFFER_SIZE];
+
+    /**
+     * The position of the next character in the buffer and the nr of characters in the buffer
      */
-    protected Character currentChar, nextChar;
+    protected int bufferPosition, bufferLength;
 
 
     /**
@@ -85,7 +98,6 @@ public class DefaultScriptParser implements ScriptParser {
         this.backSlashEscapingEnabled = backSlashEscapingEnabled;
         this.initialParsingState = initialParsingState;
         this.scriptParameters = scriptParameters;
-        this.scriptReader = new BufferedReader(scriptReader);
     }
 
 
@@ -111,13 +123,13 @@ public class DefaultScriptParser implements ScriptParser {
      */
     protected String getNextStatementImpl() throws IOException {
         StatementBuilder statementBuilder = createStatementBuilder();
-        // Make sure that we read currentChar when we start reading a new script. If not null, currentChar was already
+        // Make sure that we read currentChar when we start reading a new script. If not -1, currentChar was already
         // set to the first character of the next statement when we read the previous statement.
-        if (currentChar == null) {
+        if (currentChar == -1) {
             currentChar = readNextCharacter();
         }
         while (!endOfScriptReached) {
-            if (currentChar == null) {
+            if (currentChar == -1) {
                 endOfScriptReached = true;
             }
             nextChar = readNextCharacter();
@@ -136,9 +148,26 @@ public class DefaultScriptParser implements ScriptParser {
         return null;
     }
 
-    protected Character readNextCharacter() throws IOException {
-        int charAsInt = scriptReader.read();
-        return charAsInt == -1 ? null : (char) charAsInt;
+    /**
+     * Returns the next character of the script. The script is read into a buffer, one block of characters at a time.
+     *
+     * @return The next character, -1 if the end of the script is reached
+     * @throws IOException if a problem occurs reading the script from the file system
+     */
+    protected int readNextCharacter() throws IOException {
+        if (bufferPosition == bufferLength) {
+            bufferLength = scriptReader.read(buffer, 0, buffer.length);
+            bufferPosition = 0;
+            // a reader may return 0 characters before the end of the stream is reached
+            while (bufferLength == 0) {
+                bufferLength = scriptReader.read(buffer, 0, buffer.length);
+            }
+            if (bufferLength == -1) {
+                bufferLength = 0;
+                return -1;
+            }
+        }
+        return buffer[bufferPosition++];
     }
 
 
@@ -0,0 +1,155 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script.parser.impl;
+
+import org.dbmaintain.script.parser.ScriptParser;
+import org.dbmaintain.util.DbMaintainException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A script parser that parses the statements of another script parser in a separate thread. The parsed statements
+ * are buffered in a bounded queue, so that the next statements can already be parsed while the current statement is
+ * being executed. If the queue is full, the parser thread waits until statements are taken from it.
+ * <p/>
+ * Errors that occur while parsing are thrown by {@link #getNextStatement()} once all statements that were parsed before
+ * the error have been returned. The parser thread should always be stopped by calling {@link #close()}, for example
+ * when executing a statement fails before all statements were parsed.
+ */
+public class PipelinedScriptParser implements ScriptParser {
+
+    /* Marks the end of the parsed statements in the queue */
+    private static final String END_OF_STATEMENTS = new String();
+
+    /* The parser that is invoked by the parser thread */
+    protected ScriptParser scriptParser;
+
+    /* The parsed statements that were not yet returned */
+    protected BlockingQueue<String> statementQueue;
+
+    /* The error that stopped the parser thread, null if none */
+    protected volatile Throwable parseError;
+
+    /* The parser thread, null if not yet started */
+    protected Thread parserThread;
+
+    /* True if the end of the statements was returned */
+    protected boolean endOfStatements;
+
+
+    /**
+     * Creates a parser that parses the statements of the given parser in a separate thread.
+     *
+     * @param scriptParser The parser to run in a separate thread, not null
+     * @param queueSize    The max nr of parsed statements that are buffered, at least 1
+     */
+    public PipelinedScriptParser(ScriptParser scriptParser, int queueSize) {
+        this.scriptParser = scriptParser;
+        this.statementQueue = new ArrayBlockingQueue<String>(queueSize);
+    }
+
+
+    /**
+     * Gets the next statement that was parsed by the parser thread. The parser thread is started on the first call.
+     *
+     * @return the statement, null if no more statements
+     */
+    public String getNextStatement() {
+        if (endOfStatements) {
+            return null;
+        }
+        if (parserThread == null) {
+            startParserThread();
+        }
+        String statement;
+        try {
+            statement = statementQueue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbMaintainException("Interrupted while waiting for the next statement of the script.", e);
+        }
+        if (statement != END_OF_STATEMENTS) {
+            return statement;
+        }
+        endOfStatements = true;
+        if (parseError instanceof DbMaintainException) {
+            throw (DbMaintainException) parseError;
+        }
+        if (parseError != null) {
+            throw new DbMaintainException("Unable to parse the next statement of the script.", parseError);
+        }
+        return null;
+    }
+
+
+    /**
+     * Stops the parser thread if it is still running and waits until it has stopped, so that the script content can
+     * safely be closed afterwards.
+     */
+    public void close() {
+        if (parserThread == null) {
+            return;
+        }
+        parserThread.interrupt();
+        boolean interrupted = false;
+        while (parserThread.isAlive()) {
+            try {
+                parserThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    protected void startParserThread() {
+        parserThread = new Thread(new Runnable() {
+            public void run() {
+                parseStatements();
+            }
+        }, "dbmaintain-script-parser");
+        parserThread.setDaemon(true);
+        parserThread.start();
+    }
+
+
+    /**
+     * Parses all statements and puts them in the queue, followed by the end marker. If an error occurs, it is stored
+     * and the end marker is put in the queue so that the error is thrown by {@link #getNextStatement()}.
+     */
+    protected void parseStatements() {
+        try {
+            String statement;
+            while ((statement = scriptParser.getNextStatement()) != null) {
+                statementQueue.put(statement);
+            }
+        } catch (InterruptedException e) {
+            // stopped by close, the statements are no longer needed
+            return;
+        } catch (Throwable t) {
+            parseError = t;
+        }
+        try {
+            statementQueue.put(END_OF_STATEMENTS);
+        } catch (InterruptedException e) {
+            // stopped by close
+        }
+    }
+}
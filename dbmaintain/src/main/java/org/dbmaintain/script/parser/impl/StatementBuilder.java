@@ -33,7 +33,7 @@ import static org.dbmaintain.util.CharacterUtils.isNewLineCharacter;
  */
 public class StatementBuilder {
 
-    private static final Character CARRIAGE_RETURN = '\r', NEWLINE = '\n';
+    private static final char CARRIAGE_RETURN = '\r', NEWLINE = '\n';
 
     private static final Pattern PARAMETER_PATTERN = Pattern.compile("\\$\\{(\\w+)\\}");
 
@@ -46,6 +46,10 @@ public class StatementBuilder {
     /* Content of the current line of the statement being built */
     private StringBuilder currentLine = new StringBuilder();
 
+    /* Position of the first non-whitespace character of the current line, -1 if there is none, and the position after
+       the last non-whitespace character. Whitespace is determined in the same way as String.trim() */
+    private int currentLineTrimmedStart = -1, currentLineTrimmedEnd = 0;
+
     /* Content of the statement being built with comments, newlines and unnecessary whitespace left out */
     private StringBuilder statementInUppercaseWithoutCommentsAndWhitespace = new StringBuilder();
 
@@ -57,11 +61,14 @@ public class StatementBuilder {
        for execution */
     private boolean hasExecutableContent = false;
 
+    /* False if the statement can no longer become a pl-sql block, e.g. because it starts with another keyword */
+    private boolean possibleStartOfPlSqlBlock = true;
+
     /* The current state of the statement parser */
     private ParsingState currentParsingState;
 
-    /* The previously processed character */
-    private Character previousChar;
+    /* The previously processed character, -1 if none */
+    private int previousChar = -1;
 
     /**
      * Creates a new instance with the given parsing state as the initial state
@@ -75,7 +82,13 @@ public class StatementBuilder {
     }
 
 
-    public void addCharacter(Character currentChar, Character nextChar) {
+    /**
+     * Processes the given character
+     *
+     * @param currentChar The current character, -1 if the end of the script is reached
+     * @param nextChar    The next character, -1 if none
+     */
+    public void addCharacter(int currentChar, int nextChar) {
         // Fetch the next parsing state from the current one
         HandleNextCharacterResult handleNextCharacterResult = currentParsingState.getNextParsingState(previousChar, currentChar, nextChar, this);
         currentParsingState = handleNextCharacterResult.getNextState();
@@ -90,7 +103,7 @@ public class StatementBuilder {
         // return the content of the current line
         if (currentParsingState != null) {
             appendToCurrentLine(currentChar);
-            if (currentChar == null || isNewLineCharacter(currentChar)) {
+            if (currentChar == -1 || isNewLineCharacter(currentChar)) {
                 flushCurrentLine();
             }
         }
@@ -102,27 +115,36 @@ public class StatementBuilder {
 
     protected void flushCurrentLine() {
         statement.append(currentLine);
-        currentLine = new StringBuilder();
+        currentLine.setLength(0);
+        currentLineTrimmedStart = -1;
+        currentLineTrimmedEnd = 0;
         currentLineHasExecutableContent = false;
     }
 
-    protected void appendToCurrentLine(Character currentChar) {
-        if (currentChar == null) {
+    protected void appendToCurrentLine(int currentChar) {
+        if (currentChar == -1) {
         }
         // Replace \r by \n
-        else if (CARRIAGE_RETURN.equals(currentChar))
+        else if (currentChar == CARRIAGE_RETURN)
             currentLine.append(NEWLINE);
             // Replace \r\n by \n
-        else if (CARRIAGE_RETURN.equals(previousChar) && NEWLINE.equals(currentChar)) {
+        else if (previousChar == CARRIAGE_RETURN && currentChar == NEWLINE) {
         } // \n was already added when processing the previous character
-        else
-            currentLine.append(currentChar);
+        else {
+            currentLine.append((char) currentChar);
+            if (currentChar > ' ') {
+                if (currentLineTrimmedStart == -1) {
+                    currentLineTrimmedStart = currentLine.length() - 1;
+                }
+                currentLineTrimmedEnd = currentLine.length();
+            }
+        }
     }
 
-    protected void appendToStatementWithoutCommentsAndWhitespace(Character currentChar, HandleNextCharacterResult handleNextCharacterResult) {
+    protected void appendToStatementWithoutCommentsAndWhitespace(int currentChar, HandleNextCharacterResult handleNextCharacterResult) {
         if (handleNextCharacterResult.isExecutable()) {
-            if (currentChar != null) {
-                statementInUppercaseWithoutCommentsAndWhitespace.append(Character.toUpperCase(currentChar));
+            if (currentChar != -1) {
+                statementInUppercaseWithoutCommentsAndWhitespace.append(Character.toUpperCase((char) currentChar));
             }
         } else {
             if (isWhitespace(currentChar) && statementInUppercaseWithoutCommentsAndWhitespace.length() > 0
@@ -136,18 +158,54 @@ public class StatementBuilder {
         return statement.charAt(statement.length() - 1);
     }
 
-    protected boolean isWhitespace(Character currentChar) {
-        return currentChar != null && Character.isWhitespace(currentChar);
+    protected boolean isWhitespace(int currentChar) {
+        return currentChar != -1 && Character.isWhitespace((char) currentChar);
     }
 
     public String getCurrentLine() {
         return currentLine.toString();
     }
 
+    /**
+     * Checks whether the current line, with leading and trailing whitespace left out as done by {@link String#trim},
+     * equals the given value. Unlike <code>getCurrentLine().trim().equals(value)</code>, this does not create any objects.
+     * The start and end of the trimmed line are tracked while the characters are added, so this only takes the time
+     * needed to compare the value.
+     *
+     * @param value The value to compare with, not null
+     * @return True if the trimmed current line equals the value
+     */
+    public boolean isTrimmedCurrentLineEqualTo(String value) {
+        int trimmedLength = currentLineTrimmedStart == -1 ? 0 : currentLineTrimmedEnd - currentLineTrimmedStart;
+        if (trimmedLength != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (currentLine.charAt(currentLineTrimmedStart + i) != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean isComplete() {
         return currentParsingState == null;
     }
 
+    /**
+     * @return false if it was determined that the statement can no longer become a pl-sql block
+     */
+    public boolean isPossibleStartOfPlSqlBlock() {
+        return possibleStartOfPlSqlBlock;
+    }
+
+    /**
+     * @param possibleStartOfPlSqlBlock false if the statement can no longer become a pl-sql block
+     */
+    public void setPossibleStartOfPlSqlBlock(boolean possibleStartOfPlSqlBlock) {
+        this.possibleStartOfPlSqlBlock = possibleStartOfPlSqlBlock;
+    }
+
     /**
      * @return true if the statement contains other content than comments
      */
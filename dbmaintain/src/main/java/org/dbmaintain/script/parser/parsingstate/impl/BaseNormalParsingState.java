@@ -19,6 +19,7 @@ import org.dbmaintain.script.parser.impl.HandleNextCharacterResult;
 import org.dbmaintain.script.parser.impl.StatementBuilder;
 import org.dbmaintain.script.parser.parsingstate.ParsingState;
 import org.dbmaintain.script.parser.parsingstate.PlSqlBlockMatcher;
+import org.dbmaintain.script.parser.parsingstate.impl.BasePlSqlBlockMatcher.PlSqlBlockMatch;
 
 /**
  * The default initial parsing state that is able to recognize the beginning of line comments, block comments,
@@ -29,14 +30,14 @@ import org.dbmaintain.script.parser.parsingstate.PlSqlBlockMatcher;
  */
 abstract public class BaseNormalParsingState implements ParsingState {
 
-    protected static final Character BACKSLASH = '\\';
-    protected static final Character DASH = '-';
-    protected static final Character SLASH = '/';
-    protected static final Character ASTERIX = '*';
-    protected static final Character SINGLE_QUOTE = '\'';
-    protected static final Character DOUBLE_QUOTE = '"';
-    protected static final Character SEMICOLON = ';';
-    protected static final Character OPEN_CURLY_BRACE = '{';
+    protected static final char BACKSLASH = '\\';
+    protected static final char DASH = '-';
+    protected static final char SLASH = '/';
+    protected static final char ASTERIX = '*';
+    protected static final char SINGLE_QUOTE = '\'';
+    protected static final char DOUBLE_QUOTE = '"';
+    protected static final char SEMICOLON = ';';
+    protected static final char OPEN_CURLY_BRACE = '{';
 
     /* Determines whether backslashes can be used to escape characters, e.g. \" for a double quote (= "")    */
     protected boolean backSlashEscapingEnabled;
@@ -109,43 +110,43 @@ abstract public class BaseNormalParsingState implements ParsingState {
      * Determines the next state. This will look for the beginning of a line comment, a block comment, a single quote
      * literal and a double quote literal. A semi-colon indicates the end of the statement.
      *
-     * @param previousChar     The previous char, null if none
-     * @param currentChar      The current char
-     * @param nextChar         The next char, null if none
+     * @param previousChar     The previous char, -1 if none
+     * @param currentChar      The current char, -1 if the end of the script is reached
+     * @param nextChar         The next char, -1 if none
      * @param statementBuilder The statement builder, not null
      * @return The next parsing state, null if the end of the statement is reached
      */
-    public HandleNextCharacterResult getNextParsingState(Character previousChar, Character currentChar, Character nextChar, StatementBuilder statementBuilder) {
+    public HandleNextCharacterResult getNextParsingState(int previousChar, int currentChar, int nextChar, StatementBuilder statementBuilder) {
         // check ending of statement
         if (isEndOfStatement(previousChar, currentChar, statementBuilder)) {
             return endOfStatementResult;
         }
         // check escaped characters
-        if (BACKSLASH.equals(currentChar) && backSlashEscapingEnabled) {
+        if (currentChar == BACKSLASH && backSlashEscapingEnabled) {
             return toEscapingParsingStateResult;
         }
         // check line comment
-        if (DASH.equals(currentChar) && DASH.equals(nextChar)) {
+        if (currentChar == DASH && nextChar == DASH) {
             return toInLineCommentResult;
         }
         // check block comment
-        if (SLASH.equals(currentChar) && ASTERIX.equals(nextChar)) {
+        if (currentChar == SLASH && nextChar == ASTERIX) {
             return toInBlockCommentResult;
         }
         // check informix style block comment (if supported)
-        if (curlyBraceBlockCommentSupported && OPEN_CURLY_BRACE.equals(currentChar)) {
+        if (curlyBraceBlockCommentSupported && currentChar == OPEN_CURLY_BRACE) {
             return toCurlyBraceBlockCommentResult;
         }
         // check identifier with single quotes
-        if (SINGLE_QUOTE.equals(currentChar)) {
+        if (currentChar == SINGLE_QUOTE) {
             return toInSingleQuotesStateResult;
         }
         // check identifier with double quotes
-        if (DOUBLE_QUOTE.equals(currentChar)) {
+        if (currentChar == DOUBLE_QUOTE) {
             return toInDoubleQuotesStateResult;
         }
         // check if we're in a PL-SQL block
-        if (isWhitespace(currentChar) && plSqlBlockMatcher.isStartOfPlSqlBlock(statementBuilder.getStatementInUppercaseWithoutCommentsOrWhitespace())) {
+        if (isWhitespace(currentChar) && isStartOfPlSqlBlock(statementBuilder)) {
             return toInPlSqlBlockStateResult;
         }
         // check if non-executable content has been added
@@ -156,13 +157,37 @@ abstract public class BaseNormalParsingState implements ParsingState {
         return stayInNormalExecutableResult;
     }
 
-    abstract protected boolean isStatementSeparator(Character currentChar);
+    /**
+     * Checks whether the statement being built is the start of a pl-sql block. If the matcher is a
+     * {@link BasePlSqlBlockMatcher}, only the first keywords of a statement are evaluated: once the statement can no
+     * longer become a pl-sql block, this is remembered in the statement builder and the statement is no longer matched.
+     * This keeps parsing linear for very long statements. Other matchers are consulted on every call.
+     *
+     * @param statementBuilder The statement builder, not null
+     * @return True if the statement is the start of a pl-sql block
+     */
+    protected boolean isStartOfPlSqlBlock(StatementBuilder statementBuilder) {
+        if (!statementBuilder.isPossibleStartOfPlSqlBlock()) {
+            return false;
+        }
+        StringBuilder statementWithoutCommentsOrWhitespace = statementBuilder.getStatementInUppercaseWithoutCommentsOrWhitespace();
+        if (!(plSqlBlockMatcher instanceof BasePlSqlBlockMatcher)) {
+            return plSqlBlockMatcher.isStartOfPlSqlBlock(statementWithoutCommentsOrWhitespace);
+        }
+        PlSqlBlockMatch match = ((BasePlSqlBlockMatcher) plSqlBlockMatcher).matchStartOfPlSqlBlock(statementWithoutCommentsOrWhitespace);
+        if (match == PlSqlBlockMatch.NO_MATCH) {
+            statementBuilder.setPossibleStartOfPlSqlBlock(false);
+        }
+        return match == PlSqlBlockMatch.MATCH;
+    }
+
+    abstract protected boolean isStatementSeparator(int currentChar);
 
-    abstract protected boolean isEndOfStatement(Character previousChar, Character currentChar, StatementBuilder statementBuilder);
+    abstract protected boolean isEndOfStatement(int previousChar, int currentChar, StatementBuilder statementBuilder);
 
 
-    protected boolean isWhitespace(Character character) {
-        return character == null || Character.isWhitespace(character);
+    protected boolean isWhitespace(int character) {
+        return character == -1 || Character.isWhitespace((char) character);
     }
 
 }
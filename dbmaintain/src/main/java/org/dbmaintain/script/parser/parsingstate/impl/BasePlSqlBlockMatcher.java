@@ -0,0 +1,78 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script.parser.parsingstate.impl;
+
+import org.dbmaintain.script.parser.parsingstate.PlSqlBlockMatcher;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Base class for pl-sql block matchers that can also tell whether a statement can still become a pl-sql block. The
+ * normal parsing state uses this to stop matching a statement once it is clear that it is not a pl-sql block.
+ * Matchers that only implement {@link PlSqlBlockMatcher} are matched on every whitespace character of a statement.
+ */
+abstract public class BasePlSqlBlockMatcher implements PlSqlBlockMatcher {
+
+    /**
+     * The result of matching the start of a statement.
+     */
+    public enum PlSqlBlockMatch {
+
+        /* The statement is the start of a pl-sql block */
+        MATCH,
+        /* The statement is not the start of a pl-sql block, but a longer statement starting with it could be */
+        POSSIBLE_MATCH,
+        /* The statement and any longer statement starting with it are not the start of a pl-sql block */
+        NO_MATCH
+    }
+
+
+    public boolean isStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
+        return matchStartOfPlSqlBlock(statementWithoutCommentsOrWhitespace) == PlSqlBlockMatch.MATCH;
+    }
+
+    /**
+     * Matches the given start of a statement against the pl-sql block definitions. Same as
+     * {@link #isStartOfPlSqlBlock}, but also tells whether a longer statement could still match. The parser only
+     * calls this method, so subclasses that change the matching should override this method.
+     *
+     * @param statementWithoutCommentsOrWhitespace
+     *         the start of an SQL statement
+     * @return the result of the match, not null
+     */
+    abstract public PlSqlBlockMatch matchStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace);
+
+
+    /**
+     * Matches the given start of a statement against the given pattern using a single matcher.
+     *
+     * @param pattern   The pattern that matches the start of a pl-sql block, not null
+     * @param statement The start of an SQL statement, not null
+     * @return the result of the match, not null
+     */
+    protected PlSqlBlockMatch match(Pattern pattern, CharSequence statement) {
+        Matcher matcher = pattern.matcher(statement);
+        if (matcher.matches()) {
+            return PlSqlBlockMatch.MATCH;
+        }
+        // if the match failed before reaching the end of the input, no longer input can match either
+        if (matcher.hitEnd()) {
+            return PlSqlBlockMatch.POSSIBLE_MATCH;
+        }
+        return PlSqlBlockMatch.NO_MATCH;
+    }
+}
@@ -15,20 +15,18 @@
  */
 package org.dbmaintain.script.parser.parsingstate.impl;
 
-import org.dbmaintain.script.parser.parsingstate.PlSqlBlockMatcher;
-
 import java.util.regex.Pattern;
 
 /**
  * @author Tim Ducheyne
  * @author Filip Neven
  */
-public class Db2PlSqlBlockMatcher implements PlSqlBlockMatcher {
+public class Db2PlSqlBlockMatcher extends BasePlSqlBlockMatcher {
 
     private static final Pattern PL_SQL_PATTERN = Pattern.compile("^(CREATE (OR REPLACE )?(FUNCTION|PROCEDURE|TRIGGER|TYPE)|BEGIN)");
 
-    public boolean isStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
-        return PL_SQL_PATTERN.matcher(statementWithoutCommentsOrWhitespace).matches();
+    public PlSqlBlockMatch matchStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
+        return match(PL_SQL_PATTERN, statementWithoutCommentsOrWhitespace);
     }
 
 }
\ No newline at end of file
@@ -48,13 +48,13 @@ public class InLineCommentParsingState implements ParsingState {
      * Determines whether the end of the line comment is reached.
      * If that is the case, the normal parsing state is returned.
      *
-     * @param previousChar     The previous char, null if none
-     * @param currentChar      The current char
-     * @param nextChar         The next char, null if none
+     * @param previousChar     The previous char, -1 if none
+     * @param currentChar      The current char, -1 if the end of the script is reached
+     * @param nextChar         The next char, -1 if none
      * @param statementBuilder The statement builder, not null
      * @return The next parsing state, null if the end of the statement is reached
      */
-    public HandleNextCharacterResult getNextParsingState(Character previousChar, Character currentChar, Character nextChar, StatementBuilder statementBuilder) {
+    public HandleNextCharacterResult getNextParsingState(int previousChar, int currentChar, int nextChar, StatementBuilder statementBuilder) {
         if (isNewLineCharacter(currentChar)) {
             return backToNormalResult;
         }
@@ -15,8 +15,6 @@
  */
 package org.dbmaintain.script.parser.parsingstate.impl;
 
-import org.dbmaintain.script.parser.parsingstate.PlSqlBlockMatcher;
-
 import java.util.regex.Pattern;
 
 /**
@@ -24,12 +22,12 @@ import java.util.regex.Pattern;
  * @author Tim Ducheyne
  * @author Filip Neven
  */
-public class MySqlPlSqlBlockMatcher implements PlSqlBlockMatcher {
+public class MySqlPlSqlBlockMatcher extends BasePlSqlBlockMatcher {
 
     private static final Pattern PL_SQL_PATTERN = Pattern.compile("^(CREATE (DEFINER=.*)?(FUNCTION|PROCEDURE|TRIGGER)|BEGIN)");
 
-    public boolean isStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
-        return PL_SQL_PATTERN.matcher(statementWithoutCommentsOrWhitespace).matches();
+    public PlSqlBlockMatch matchStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
+        return match(PL_SQL_PATTERN, statementWithoutCommentsOrWhitespace);
     }
 
 }
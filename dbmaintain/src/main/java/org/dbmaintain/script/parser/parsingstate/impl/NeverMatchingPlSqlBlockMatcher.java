@@ -15,15 +15,13 @@
  */
 package org.dbmaintain.script.parser.parsingstate.impl;
 
-import org.dbmaintain.script.parser.parsingstate.PlSqlBlockMatcher;
-
 /**
  * @author Filip Neven
  * @author Tim Ducheyne
  */
-public class NeverMatchingPlSqlBlockMatcher implements PlSqlBlockMatcher {
+public class NeverMatchingPlSqlBlockMatcher extends BasePlSqlBlockMatcher {
 
-    public boolean isStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
-        return false;
+    public PlSqlBlockMatch matchStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
+        return PlSqlBlockMatch.NO_MATCH;
     }
 }
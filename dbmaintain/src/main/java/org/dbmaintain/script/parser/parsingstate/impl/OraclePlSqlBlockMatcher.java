@@ -15,20 +15,18 @@
  */
 package org.dbmaintain.script.parser.parsingstate.impl;
 
-import org.dbmaintain.script.parser.parsingstate.PlSqlBlockMatcher;
-
 import java.util.regex.Pattern;
 
 /**
  * @author Filip Neven
  * @author Tim Ducheyne
  */
-public class OraclePlSqlBlockMatcher implements PlSqlBlockMatcher {
+public class OraclePlSqlBlockMatcher extends BasePlSqlBlockMatcher {
 
     private static final Pattern PL_SQL_PATTERN = Pattern.compile("^(CREATE (OR REPLACE )?(PACKAGE|LIBRARY|FUNCTION|PROCEDURE|TRIGGER|TYPE)|DECLARE|BEGIN)");
 
-    public boolean isStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
-        return PL_SQL_PATTERN.matcher(statementWithoutCommentsOrWhitespace).matches();
+    public PlSqlBlockMatch matchStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
+        return match(PL_SQL_PATTERN, statementWithoutCommentsOrWhitespace);
     }
 
 }
@@ -30,12 +30,12 @@ public class PlSqlBlockNormalParsingState extends BaseNormalParsingState {
     }
 
 
-    protected boolean isStatementSeparator(Character currentChar) {
-        return SLASH.equals(currentChar);
+    protected boolean isStatementSeparator(int currentChar) {
+        return currentChar == SLASH;
     }
 
-    protected boolean isEndOfStatement(Character previousChar, Character currentChar, StatementBuilder statementBuilder) {
-        return (currentChar == null || isNewLineCharacter(currentChar)) && statementBuilder.getCurrentLine().trim().equals("/");
+    protected boolean isEndOfStatement(int previousChar, int currentChar, StatementBuilder statementBuilder) {
+        return (currentChar == -1 || isNewLineCharacter(currentChar)) && statementBuilder.isTrimmedCurrentLineEqualTo("/");
     }
 
 }
@@ -15,8 +15,6 @@
  */
 package org.dbmaintain.script.parser.parsingstate.impl;
 
-import org.dbmaintain.script.parser.parsingstate.PlSqlBlockMatcher;
-
 import java.util.regex.Pattern;
 
 /**
@@ -24,11 +22,11 @@ import java.util.regex.Pattern;
  * @author Filip Neven
  * @author Tim Ducheyne
  */
-public class PostgreSqlPlSqlBlockMatcher implements PlSqlBlockMatcher {
+public class PostgreSqlPlSqlBlockMatcher extends BasePlSqlBlockMatcher {
 
     private static final Pattern PL_SQL_PATTERN = Pattern.compile("^(CREATE (OR REPLACE )?(FUNCTION|RULE)|BEGIN)");
 
-    public boolean isStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
-        return PL_SQL_PATTERN.matcher(statementWithoutCommentsOrWhitespace).matches();
+    public PlSqlBlockMatch matchStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
+        return match(PL_SQL_PATTERN, statementWithoutCommentsOrWhitespace);
     }
 }
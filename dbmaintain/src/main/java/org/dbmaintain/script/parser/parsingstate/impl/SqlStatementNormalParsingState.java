@@ -30,11 +30,11 @@ public class SqlStatementNormalParsingState extends BaseNormalParsingState {
     }
 
 
-    protected boolean isStatementSeparator(Character currentChar) {
-        return SEMICOLON.equals(currentChar);
+    protected boolean isStatementSeparator(int currentChar) {
+        return currentChar == SEMICOLON;
     }
 
-    protected boolean isEndOfStatement(Character previousChar, Character currentChar, StatementBuilder statementBuilder) {
+    protected boolean isEndOfStatement(int previousChar, int currentChar, StatementBuilder statementBuilder) {
         return isStatementSeparator(currentChar);
     }
 }
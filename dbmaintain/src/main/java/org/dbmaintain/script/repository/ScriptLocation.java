@@ -27,6 +27,7 @@ import java.io.File;
 import java.util.*;
 
 import static org.dbmaintain.config.DbMaintainProperties.*;
+import static org.dbmaintain.util.CheckSumUtils.getValidCheckSumAlgorithm;
 
 /**
  * @author Filip Neven
@@ -41,7 +42,10 @@ abstract public class ScriptLocation {
      */
     public static final String LOCATION_PROPERTIES_FILENAME = "META-INF/dbmaintain.properties";
 
+    /* The scripts of this location, null if not yet loaded */
     protected SortedSet<Script> scripts;
+    /* The root of this location, null if the scripts were given explicitly */
+    protected File scriptLocation;
 
     protected String scriptEncoding;
     protected String postProcessingScriptDirName;
@@ -56,6 +60,8 @@ abstract public class ScriptLocation {
     protected ScriptIndexes baseLineRevision;
     /* If true, carriage return chars will be ignored when calculating check sums */
     protected boolean ignoreCarriageReturnsWhenCalculatingCheckSum;
+    /* The algorithm that is used for calculating the check sums of the scripts */
+    protected String checkSumAlgorithm;
     protected ScriptFactory scriptFactory;
 
 
@@ -72,11 +78,12 @@ abstract public class ScriptLocation {
      * @param baseLineRevision            The baseline revision. If set, all scripts with a lower revision will be ignored
      * @param ignoreCarriageReturnsWhenCalculatingCheckSum
      *                                    If true, carriage return chars will be ignored when calculating check sums
+     * @param checkSumAlgorithm           The algorithm to use for calculating the check sums of the scripts, not null
      */
     protected ScriptLocation(SortedSet<Script> scripts, String scriptEncoding, String postProcessingScriptDirName,
                              Set<Qualifier> registeredQualifiers, Set<Qualifier> patchQualifiers, String scriptIndexRegexp, String qualifierRegexp,
                              String targetDatabaseRegexp, Set<String> scriptFileExtensions, ScriptIndexes baseLineRevision,
-                             boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
+                             boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSumAlgorithm) {
         this.scripts = scripts;
         this.scriptEncoding = scriptEncoding;
         this.postProcessingScriptDirName = postProcessingScriptDirName;
@@ -89,13 +96,14 @@ abstract public class ScriptLocation {
         this.scriptLocationName = "<undefined>";
         this.baseLineRevision = baseLineRevision;
         this.ignoreCarriageReturnsWhenCalculatingCheckSum = ignoreCarriageReturnsWhenCalculatingCheckSum;
+        this.checkSumAlgorithm = getValidCheckSumAlgorithm(checkSumAlgorithm);
         this.scriptFactory = createScriptFactory();
     }
 
     protected ScriptLocation(File scriptLocation, String defaultScriptEncoding, String defaultPostProcessingScriptDirName,
                              Set<Qualifier> defaultRegisteredQualifiers, Set<Qualifier> defaultPatchQualifiers, String defaultScriptIndexRegexp, String defaultQualifierRegexp,
                              String defaultTargetDatabaseRegexp, Set<String> defaultScriptFileExtensions, ScriptIndexes defaultBaseLineRevision,
-                             boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
+                             boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSumAlgorithm) {
         assertValidScriptLocation(scriptLocation);
 
         this.scriptEncoding = defaultScriptEncoding;
@@ -108,13 +116,14 @@ abstract public class ScriptLocation {
         this.scriptFileExtensions = defaultScriptFileExtensions;
         this.baseLineRevision = defaultBaseLineRevision;
         this.ignoreCarriageReturnsWhenCalculatingCheckSum = ignoreCarriageReturnsWhenCalculatingCheckSum;
+        this.checkSumAlgorithm = getValidCheckSumAlgorithm(checkSumAlgorithm);
 
         Properties customProperties = getCustomProperties(scriptLocation);
         overrideValuesWithCustomConfiguration(customProperties);
 
+        this.scriptLocation = scriptLocation;
         this.scriptLocationName = scriptLocation.getAbsolutePath();
         this.scriptFactory = createScriptFactory();
-        this.scripts = loadScripts(scriptLocation);
     }
 
 
@@ -169,13 +178,27 @@ abstract public class ScriptLocation {
     }
 
     /**
+     * The scripts are loaded the first time this method is called. This way, subclasses can rely on their own
+     * fields being initialized when loading the scripts.
+     *
      * @return The scripts from this location as a sorted set
      */
     public SortedSet<Script> getScripts() {
+        if (scripts == null) {
+            scripts = loadScripts(scriptLocation);
+        }
         return scripts;
     }
 
 
+    /**
+     * Releases the resources that are held by this location, if any. The location remains usable afterwards: resources
+     * are acquired again when needed. Nothing is done by default.
+     */
+    public void close() {
+    }
+
+
     /**
      * Initializes all fields of the script location using the given properties, and default values for each of the fields
      * which are used if not available in the properties.
@@ -217,6 +240,9 @@ abstract public class ScriptLocation {
         if (customProperties.containsKey(PROPERTY_IGNORE_CARRIAGE_RETURN_WHEN_CALCULATING_CHECK_SUM)) {
             this.ignoreCarriageReturnsWhenCalculatingCheckSum = PropertyUtils.getBoolean(PROPERTY_IGNORE_CARRIAGE_RETURN_WHEN_CALCULATING_CHECK_SUM, customProperties);
         }
+        if (customProperties.containsKey(PROPERTY_CHECK_SUM_ALGORITHM)) {
+            this.checkSumAlgorithm = getValidCheckSumAlgorithm(PropertyUtils.getString(PROPERTY_CHECK_SUM_ALGORITHM, customProperties));
+        }
         assertValidScriptExtensions();
     }
 
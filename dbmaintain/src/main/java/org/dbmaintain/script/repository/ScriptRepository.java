@@ -19,7 +19,18 @@ import org.dbmaintain.script.Script;
 import org.dbmaintain.script.qualifier.QualifierEvaluator;
 import org.dbmaintain.util.DbMaintainException;
 
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.dbmaintain.util.CheckSumUtils.DEFAULT_CHECK_SUM_ALGORITHM;
+import static org.dbmaintain.util.CheckSumUtils.createMessageDigest;
+import static org.dbmaintain.util.CheckSumUtils.getHexPresentation;
 
 /**
  * @author Filip Neven
@@ -31,11 +42,17 @@ public class ScriptRepository {
     protected SortedSet<Script> indexedScripts = new TreeSet<Script>();
     protected SortedSet<Script> repeatableScripts = new TreeSet<Script>();
     protected SortedSet<Script> postProcessingScripts = new TreeSet<Script>();
+    /* The indexed and repeatable scripts, built once when the scripts are initialized */
+    protected SortedSet<Script> allUpdateScripts = new TreeSet<Script>();
+    /* All scripts, built once when the scripts are initialized */
+    protected SortedSet<Script> allScripts = new TreeSet<Script>();
 
+    protected Set<ScriptLocation> scriptLocations;
     protected QualifierEvaluator qualifierEvaluator;
 
 
     public ScriptRepository(Set<ScriptLocation> scriptLocations, QualifierEvaluator qualifierEvaluator) {
+        this.scriptLocations = scriptLocations;
         this.qualifierEvaluator = qualifierEvaluator;
         initScripts(scriptLocations);
     }
@@ -52,23 +69,104 @@ public class ScriptRepository {
         return repeatableScripts;
     }
 
+    /**
+     * @return The indexed and repeatable scripts, not null. The returned set cannot be modified.
+     */
     public SortedSet<Script> getAllUpdateScripts() {
-        SortedSet<Script> allUpdateScripts = new TreeSet<Script>();
-        allUpdateScripts.addAll(indexedScripts);
-        allUpdateScripts.addAll(repeatableScripts);
-        return allUpdateScripts;
+        return Collections.unmodifiableSortedSet(allUpdateScripts);
     }
 
     public SortedSet<Script> getPostProcessingScripts() {
         return postProcessingScripts;
     }
 
+    /**
+     * @return All scripts, not null. The returned set cannot be modified.
+     */
     public SortedSet<Script> getAllScripts() {
-        SortedSet<Script> allScripts = new TreeSet<Script>();
-        allScripts.addAll(indexedScripts);
-        allScripts.addAll(repeatableScripts);
-        allScripts.addAll(postProcessingScripts);
-        return allScripts;
+        return Collections.unmodifiableSortedSet(allScripts);
+    }
+
+    /**
+     * Calculates the check sums of all scripts concurrently, so that they are available when the scripts are analyzed.
+     * Every script is handled by exactly one task, so the result does not depend on the nr of threads. If the calculation
+     * fails for some scripts, the error of the first of these scripts (in script order) is thrown.
+     *
+     * @param nrOfThreads The nr of threads to use, 1 or less to calculate the check sums on the calling thread
+     */
+    public void calculateCheckSums(int nrOfThreads) {
+        SortedSet<Script> allScripts = getAllScripts();
+        if (nrOfThreads <= 1) {
+            for (Script script : allScripts) {
+                script.getCheckSum();
+            }
+            return;
+        }
+        List<Callable<String>> checkSumCalculations = new ArrayList<Callable<String>>(allScripts.size());
+        for (final Script script : allScripts) {
+            checkSumCalculations.add(new Callable<String>() {
+                public String call() {
+                    return script.getCheckSum();
+                }
+            });
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(nrOfThreads);
+        try {
+            for (Future<String> checkSumCalculation : executorService.invokeAll(checkSumCalculations)) {
+                checkSumCalculation.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbMaintainException("Interrupted while calculating the check sums of the scripts.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DbMaintainException) {
+                throw (DbMaintainException) e.getCause();
+            }
+            throw new DbMaintainException("Unable to calculate the check sums of the scripts.", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * @return True if the check sums of all scripts are known without reading script content, e.g. from a script
+     *         archive index or a check sum index, so that the fingerprint can be calculated cheaply
+     */
+    public boolean isFingerprintAvailable() {
+        for (Script script : getAllScripts()) {
+            if (!script.isCheckSumCalculated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calculates a fingerprint of all scripts: a digest of the names and check sums of the scripts. If the check sums
+     * are known from a script archive index or a check sum index, no script content needs to be read.
+     *
+     * @return The fingerprint, not null
+     */
+    public String getFingerprint() {
+        MessageDigest messageDigest = createMessageDigest(DEFAULT_CHECK_SUM_ALGORITHM);
+        try {
+            for (Script script : getAllScripts()) {
+                messageDigest.update((script.getFileName() + '\t' + script.getCheckSum() + '\n').getBytes("UTF-8"));
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new DbMaintainException("Unable to calculate the fingerprint of the scripts.", e);
+        }
+        return getHexPresentation(messageDigest.digest());
+    }
+
+    /**
+     * Releases the resources held by the script locations, e.g. open archives or check sum indexes that still need to
+     * be written. The repository remains usable afterwards.
+     */
+    public void close() {
+        for (ScriptLocation scriptLocation : scriptLocations) {
+            scriptLocation.close();
+        }
     }
 
     protected void initScripts(Set<ScriptLocation> scriptLocations) {
@@ -88,12 +186,16 @@ public class ScriptRepository {
         if (script.isPostProcessingScript()) {
             postProcessingScripts.add(script);
         } else if (script.isIncremental()) {
-            if (!script.isIgnored()) {
-                indexedScripts.add(script);
+            if (script.isIgnored()) {
+                return;
             }
+            indexedScripts.add(script);
+            allUpdateScripts.add(script);
         } else { // Repeatable script
             repeatableScripts.add(script);
+            allUpdateScripts.add(script);
         }
+        allScripts.add(script);
     }
 
 
@@ -114,15 +216,21 @@ public class ScriptRepository {
     }
 
 
+    /**
+     * Asserts that no script is available in more than one location. All script names are put in a single index that
+     * maps the name of the script to its location, so that every script only needs to be looked up once.
+     *
+     * @param scriptLocations The script locations, not null
+     * @throws DbMaintainException if duplicate scripts are found
+     */
     protected void assertNoDuplicateScripts(Set<ScriptLocation> scriptLocations) {
-        Set<DuplicateScript> duplicateScripts = new HashSet<DuplicateScript>();
-        List<ScriptLocation> scriptLocationList = new ArrayList<ScriptLocation>(scriptLocations);
-        for (int i = 0; i < scriptLocationList.size() - 1; i++) {
-            for (Script script : scriptLocationList.get(i).getScripts()) {
-                for (int j = i + 1; j < scriptLocationList.size(); j++) {
-                    if (scriptLocationList.get(j).getScripts().contains(script)) {
-                        duplicateScripts.add(new DuplicateScript(script, scriptLocationList.get(i), scriptLocationList.get(j)));
-                    }
+        List<DuplicateScript> duplicateScripts = new ArrayList<DuplicateScript>();
+        Map<String, ScriptLocation> scriptNameLocationMap = new HashMap<String, ScriptLocation>();
+        for (ScriptLocation scriptLocation : scriptLocations) {
+            for (Script script : scriptLocation.getScripts()) {
+                ScriptLocation otherScriptLocation = scriptNameLocationMap.put(script.getFileName(), scriptLocation);
+                if (otherScriptLocation != null && otherScriptLocation != scriptLocation) {
+                    duplicateScripts.add(new DuplicateScript(script, otherScriptLocation, scriptLocation));
                 }
             }
         }
@@ -16,6 +16,8 @@
 package org.dbmaintain.script.repository.impl;
 
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.dbmaintain.script.Script;
 import org.dbmaintain.script.ScriptContentHandle;
 import org.dbmaintain.script.executedscriptinfo.ScriptIndexes;
@@ -30,19 +32,35 @@ import java.util.*;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.dbmaintain.config.DbMaintainProperties.*;
+import static org.dbmaintain.script.repository.impl.ScriptArchiveIndex.SCRIPT_ARCHIVE_INDEX_FILENAME;
 
 /**
  * Script container that reads all scripts from a jar file
+ * <p/>
+ * When the jar is written, a {@link ScriptArchiveIndex} is added to it. If this index is available and still valid
+ * when the jar is loaded, the scripts are created from the index: the names of the scripts do not have to be parsed and
+ * the contents of the scripts are only read when the scripts are executed.
+ * <p/>
+ * The jar file is opened once and is shared by the location and the content handles of all its scripts. It stays open
+ * until the location is closed. If a script is read after the location was closed, the jar file is opened again.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
  */
 public class ArchiveScriptLocation extends ScriptLocation {
 
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(ArchiveScriptLocation.class);
+
+    /* The opened jar file, null if not opened yet or if the location was closed. This field is deliberately not
+       initialized in its declaration: it is already set while the super constructor reads the custom properties */
+    protected JarFile jarFile;
+
     /**
      * Creates a new instance of the {@link ArchiveScriptLocation}, while there is no jar file available yet.
      * This constructor can be used to initialize the container while the scripts are still on the file system,
@@ -60,12 +78,13 @@ public class ArchiveScriptLocation extends ScriptLocation {
      * @param baseLineRevision            The baseline revision. If set, all scripts with a lower revision will be ignored
      * @param ignoreCarriageReturnsWhenCalculatingCheckSum
      *                                    If true, carriage return chars will be ignored when calculating check sums
+     * @param checkSumAlgorithm           The algorithm to use for calculating the check sums of the scripts, not null
      */
     public ArchiveScriptLocation(SortedSet<Script> scripts, String scriptEncoding, String postProcessingScriptDirName,
                                  Set<Qualifier> registeredQualifiers, Set<Qualifier> patchQualifiers, String scriptIndexRegexp, String qualifierRegexp,
                                  String targetDatabaseRegexp, Set<String> scriptFileExtensions, ScriptIndexes baseLineRevision,
-                                 boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
-        super(scripts, scriptEncoding, postProcessingScriptDirName, registeredQualifiers, patchQualifiers, scriptIndexRegexp, qualifierRegexp, targetDatabaseRegexp, scriptFileExtensions, baseLineRevision, ignoreCarriageReturnsWhenCalculatingCheckSum);
+                                 boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSumAlgorithm) {
+        super(scripts, scriptEncoding, postProcessingScriptDirName, registeredQualifiers, patchQualifiers, scriptIndexRegexp, qualifierRegexp, targetDatabaseRegexp, scriptFileExtensions, baseLineRevision, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSumAlgorithm);
     }
 
 
@@ -85,12 +104,13 @@ public class ArchiveScriptLocation extends ScriptLocation {
      * @param baseLineRevision            The baseline revision. If set, all scripts with a lower revision will be ignored
      * @param ignoreCarriageReturnsWhenCalculatingCheckSum
      *                                    If true, carriage return chars will be ignored when calculating check sums
+     * @param checkSumAlgorithm           The algorithm to use for calculating the check sums of the scripts, not null
      */
     public ArchiveScriptLocation(File jarLocation, String defaultScriptEncoding, String defaultPostProcessingScriptDirName,
                                  Set<Qualifier> defaultRegisteredQualifiers, Set<Qualifier> defaultPatchQualifiers, String defaultScriptIndexRegexp, String defaultQualifierRegexp,
                                  String defaultTargetDatabaseRegexp, Set<String> defaultScriptFileExtensions, ScriptIndexes baseLineRevision,
-                                 boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
-        super(jarLocation, defaultScriptEncoding, defaultPostProcessingScriptDirName, defaultRegisteredQualifiers, defaultPatchQualifiers, defaultScriptIndexRegexp, defaultQualifierRegexp, defaultTargetDatabaseRegexp, defaultScriptFileExtensions, baseLineRevision, ignoreCarriageReturnsWhenCalculatingCheckSum);
+                                 boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSumAlgorithm) {
+        super(jarLocation, defaultScriptEncoding, defaultPostProcessingScriptDirName, defaultRegisteredQualifiers, defaultPatchQualifiers, defaultScriptIndexRegexp, defaultQualifierRegexp, defaultTargetDatabaseRegexp, defaultScriptFileExtensions, baseLineRevision, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSumAlgorithm);
     }
 
 
@@ -114,16 +134,106 @@ public class ArchiveScriptLocation extends ScriptLocation {
     protected SortedSet<Script> loadScripts(File scriptLocation) {
         String subPath = getJarSubPath(scriptLocation);
 
-        JarFile jarFile = createJarFile(scriptLocation);
+        JarFile jarFile = getJarFile(scriptLocation);
+        if (subPath == null) {
+            // the index contains the names relative to the root of the jar, it cannot be used for a sub path
+            SortedSet<Script> scripts = loadScriptsFromIndex(jarFile);
+            if (scripts != null) {
+                return scripts;
+            }
+        }
         return loadScriptsFromJar(jarFile, subPath);
     }
 
-    protected SortedSet<Script> loadScriptsFromJar(final JarFile jarFile, String subPath) {
+    /**
+     * Creates the scripts using the {@link ScriptArchiveIndex} of the jar. The index is only used if it was created
+     * with the same settings as the ones of this location and if it still matches the script entries of the jar.
+     *
+     * @param jarFile The jar file, not null
+     * @return The scripts, null if the jar has no valid index
+     */
+    protected SortedSet<Script> loadScriptsFromIndex(JarFile jarFile) {
+        ScriptArchiveIndex scriptArchiveIndex = readScriptArchiveIndex(jarFile);
+        if (scriptArchiveIndex == null) {
+            return null;
+        }
+        if (!scriptArchiveIndex.hasSettings(getScriptArchiveIndexSettings())) {
+            logger.info("Ignoring script archive index of " + jarFile.getName() + ": the index was created using other settings.");
+            return null;
+        }
+        Map<String, JarEntry> scriptJarEntries = getScriptJarEntries(jarFile);
+        if (scriptJarEntries.size() != scriptArchiveIndex.getEntries().size()) {
+            logger.info("Ignoring script archive index of " + jarFile.getName() + ": the index does not match the scripts in the archive.");
+            return null;
+        }
+
+        SortedSet<Script> scripts = new TreeSet<Script>();
+        for (ScriptArchiveIndex.Entry entry : scriptArchiveIndex.getEntries()) {
+            JarEntry jarEntry = scriptJarEntries.get(entry.getName());
+            if (jarEntry == null || !entry.matches(jarEntry.getSize(), jarEntry.getCrc())) {
+                logger.info("Ignoring script archive index of " + jarFile.getName() + ": the index does not match archive entry " + entry.getName());
+                return null;
+            }
+            ScriptContentHandle scriptContentHandle = new JarEntryScriptContentHandle(jarEntry, entry.getCheckSum());
+            Script script = scriptFactory.createScriptWithContent(entry.getName(), entry.getLastModifiedAt(), new ScriptIndexes(entry.getScriptIndexes()), entry.getTargetDatabaseName(), entry.getQualifierNames(), scriptContentHandle);
+            scripts.add(script);
+        }
+        return scripts;
+    }
+
+    /**
+     * @param jarFile The jar file, not null
+     * @return The index of the jar, null if the jar has no index or if the index is invalid
+     */
+    protected ScriptArchiveIndex readScriptArchiveIndex(JarFile jarFile) {
+        ZipEntry indexEntry = jarFile.getEntry(SCRIPT_ARCHIVE_INDEX_FILENAME);
+        if (indexEntry == null) {
+            return null;
+        }
+        InputStream indexInputStream = null;
+        try {
+            indexInputStream = jarFile.getInputStream(indexEntry);
+            return ScriptArchiveIndex.read(indexInputStream, jarFile.getName());
+        } catch (IOException e) {
+            throw new DbMaintainException("Error while reading " + SCRIPT_ARCHIVE_INDEX_FILENAME + " from jar file " + jarFile.getName(), e);
+        } finally {
+            closeQuietly(indexInputStream);
+        }
+    }
+
+    /**
+     * @param jarFile The jar file, not null
+     * @return The entries of the jar that are scripts, by entry name, not null
+     */
+    protected Map<String, JarEntry> getScriptJarEntries(JarFile jarFile) {
+        Map<String, JarEntry> scriptJarEntries = new HashMap<String, JarEntry>();
+        for (Enumeration<JarEntry> jarEntries = jarFile.entries(); jarEntries.hasMoreElements();) {
+            JarEntry jarEntry = jarEntries.nextElement();
+            if (isScriptJarEntry(jarEntry.getName())) {
+                scriptJarEntries.put(jarEntry.getName(), jarEntry);
+            }
+        }
+        return scriptJarEntries;
+    }
+
+    /**
+     * @return The settings that determine the content of the script archive index: the settings for parsing the
+     *         script names and for calculating the check sums, not null
+     */
+    protected List<String> getScriptArchiveIndexSettings() {
+        return Arrays.asList(scriptIndexRegexp, targetDatabaseRegexp, qualifierRegexp, Boolean.toString(ignoreCarriageReturnsWhenCalculatingCheckSum), checkSumAlgorithm);
+    }
+
+    protected boolean isScriptJarEntry(String fileName) {
+        return !LOCATION_PROPERTIES_FILENAME.equals(fileName) && !SCRIPT_ARCHIVE_INDEX_FILENAME.equals(fileName) && isScriptFileName(fileName);
+    }
+
+    protected SortedSet<Script> loadScriptsFromJar(JarFile jarFile, String subPath) {
         SortedSet<Script> scripts = new TreeSet<Script>();
         for (Enumeration<JarEntry> jarEntries = jarFile.entries(); jarEntries.hasMoreElements();) {
-            final JarEntry jarEntry = jarEntries.nextElement();
+            JarEntry jarEntry = jarEntries.nextElement();
             String fileName = jarEntry.getName();
-            if (LOCATION_PROPERTIES_FILENAME.equals(fileName) || !isScriptFileName(fileName)) {
+            if (!isScriptJarEntry(fileName)) {
                 continue;
             }
 
@@ -134,16 +244,7 @@ public class ArchiveScriptLocation extends ScriptLocation {
                 }
                 relativeScriptName = relativeScriptName.substring(subPath.length());
             }
-            ScriptContentHandle scriptContentHandle = new ScriptContentHandle(scriptEncoding, ignoreCarriageReturnsWhenCalculatingCheckSum) {
-                @Override
-                protected InputStream getScriptInputStream() {
-                    try {
-                        return jarFile.getInputStream(jarEntry);
-                    } catch (IOException e) {
-                        throw new DbMaintainException("Error while reading jar entry " + jarEntry, e);
-                    }
-                }
-            };
+            ScriptContentHandle scriptContentHandle = new JarEntryScriptContentHandle(jarEntry, null);
             Long fileLastModifiedAt = jarEntry.getTime();
             Script script = scriptFactory.createScriptWithContent(relativeScriptName, fileLastModifiedAt, scriptContentHandle);
             scripts.add(script);
@@ -171,7 +272,7 @@ public class ArchiveScriptLocation extends ScriptLocation {
     protected Properties getCustomProperties(File scriptLocation) {
         InputStream configurationInputStream = null;
         try {
-            JarFile jarFile = createJarFile(scriptLocation);
+            JarFile jarFile = getJarFile(scriptLocation);
             ZipEntry configurationEntry = jarFile.getEntry(LOCATION_PROPERTIES_FILENAME);
             if (configurationEntry == null) {
                 // no custom config found in meta-inf folder, skipping
@@ -202,7 +303,8 @@ public class ArchiveScriptLocation extends ScriptLocation {
 
 
     /**
-     * Creates the jar containing the scripts and stores it in the file with the given file name
+     * Creates the jar containing the scripts and stores it in the file with the given file name. The jar also
+     * contains the {@link ScriptArchiveIndex} of the scripts.
      *
      * @param jarFile Path where the jar file is stored
      */
@@ -214,15 +316,17 @@ public class ArchiveScriptLocation extends ScriptLocation {
             Reader propertiesAsFile = getPropertiesAsFile(getJarProperties());
             writeJarEntry(jarOutputStream, LOCATION_PROPERTIES_FILENAME, System.currentTimeMillis(), propertiesAsFile);
             propertiesAsFile.close();
+
+            ScriptArchiveIndex scriptArchiveIndex = new ScriptArchiveIndex(getScriptArchiveIndexSettings());
             for (Script script : getScripts()) {
-                Reader scriptContentReader = null;
-                try {
-                    scriptContentReader = script.getScriptContentHandle().openScriptContentReader();
-                    writeJarEntry(jarOutputStream, script.getFileName(), script.getFileLastModifiedAt(), scriptContentReader);
-                } finally {
-                    closeQuietly(scriptContentReader);
-                }
+                byte[] scriptContent = getScriptContent(script);
+                long entryLastModifiedAt = toJarEntryTime(script.getFileLastModifiedAt());
+                writeJarEntry(jarOutputStream, script.getFileName(), entryLastModifiedAt, scriptContent);
+                scriptArchiveIndex.addEntry(createScriptArchiveIndexEntry(script, scriptContent, entryLastModifiedAt));
             }
+            jarOutputStream.putNextEntry(new JarEntry(SCRIPT_ARCHIVE_INDEX_FILENAME));
+            scriptArchiveIndex.write(jarOutputStream);
+            jarOutputStream.closeEntry();
         } catch (IOException e) {
             throw new DbMaintainException("Error while writing archive file " + jarFile, e);
         } finally {
@@ -230,6 +334,52 @@ public class ArchiveScriptLocation extends ScriptLocation {
         }
     }
 
+    /**
+     * @param script The script, not null
+     * @return The content of the script as it is stored in the jar, not null
+     * @throws IOException In case of disk IO problems
+     */
+    protected byte[] getScriptContent(Script script) throws IOException {
+        Reader scriptContentReader = null;
+        try {
+            scriptContentReader = script.getScriptContentHandle().openScriptContentReader();
+            ByteArrayOutputStream scriptContent = new ByteArrayOutputStream();
+            copyEntryContent(new ReaderInputStream(scriptContentReader), scriptContent);
+            return scriptContent.toByteArray();
+        } finally {
+            closeQuietly(scriptContentReader);
+        }
+    }
+
+    /**
+     * Creates the index entry for the given script. The script name is parsed using the settings of this location and
+     * the check sum is calculated on the content as it is stored in the jar, so that the entry contains exactly the
+     * same values as the ones that would be found when the jar is scanned.
+     *
+     * @param script              The script, not null
+     * @param scriptContent       The content of the script as it is stored in the jar, not null
+     * @param entryLastModifiedAt The last modification date as it is stored in the jar entry
+     * @return The index entry, not null
+     */
+    protected ScriptArchiveIndex.Entry createScriptArchiveIndexEntry(Script script, final byte[] scriptContent, long entryLastModifiedAt) {
+        ScriptContentHandle scriptContentHandle = new ScriptContentHandle(scriptEncoding, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSumAlgorithm) {
+            @Override
+            protected InputStream getScriptInputStream() {
+                return new ByteArrayInputStream(scriptContent);
+            }
+        };
+        Script parsedScript = scriptFactory.createScriptWithoutContent(script.getFileName(), entryLastModifiedAt, scriptContentHandle.getCheckSum());
+
+        CRC32 crc = new CRC32();
+        crc.update(scriptContent);
+        Set<String> qualifierNames = new HashSet<String>();
+        for (Qualifier qualifier : parsedScript.getQualifiers()) {
+            qualifierNames.add(qualifier.getQualifierName());
+        }
+        return new ScriptArchiveIndex.Entry(parsedScript.getFileName(), scriptContent.length, crc.getValue(), parsedScript.getFileLastModifiedAt(),
+                parsedScript.getScriptIndexes().getIndexesString(), parsedScript.getTargetDatabaseName(), qualifierNames, parsedScript.getCheckSum());
+    }
+
     /**
      * @return The jar location's configuration as a <code>Properties</code> object
      */
@@ -247,6 +397,7 @@ public class ArchiveScriptLocation extends ScriptLocation {
             configuration.put(PROPERTY_BASELINE_REVISION, baseLineRevision.getIndexesString());
         }
         configuration.put(PROPERTY_IGNORE_CARRIAGE_RETURN_WHEN_CALCULATING_CHECK_SUM, Boolean.toString(ignoreCarriageReturnsWhenCalculatingCheckSum));
+        configuration.put(PROPERTY_CHECK_SUM_ALGORITHM, checkSumAlgorithm);
         return configuration;
     }
 
@@ -266,13 +417,75 @@ public class ArchiveScriptLocation extends ScriptLocation {
         jarOutputStream.putNextEntry(jarEntry);
 
         InputStream scriptInputStream = new ReaderInputStream(entryContentReader);
+        copyEntryContent(scriptInputStream, jarOutputStream);
+        scriptInputStream.close();
+        jarOutputStream.closeEntry();
+    }
+
+    /**
+     * Writes the entry with the given name and content to the given {@link JarOutputStream}
+     *
+     * @param jarOutputStream {@link OutputStream} to the jar file
+     * @param name            Name of the jar file entry
+     * @param timestamp       Last modification date of the entry
+     * @param entryContent    The content of the jar entry
+     * @throws IOException In case of disk IO problems
+     */
+    protected void writeJarEntry(JarOutputStream jarOutputStream, String name, long timestamp, byte[] entryContent) throws IOException {
+        JarEntry jarEntry = new JarEntry(name);
+        jarEntry.setTime(timestamp);
+        jarOutputStream.putNextEntry(jarEntry);
+        jarOutputStream.write(entryContent);
+        jarOutputStream.closeEntry();
+    }
+
+    /**
+     * A jar entry only stores the last modification date with a precision of 2 seconds. The date is rounded down the
+     * same way before it is written, so that the script archive index contains the date that is read from the jar entry.
+     *
+     * @param timestamp The last modification date of the script
+     * @return The last modification date as it is stored in the jar entry
+     */
+    protected long toJarEntryTime(long timestamp) {
+        return timestamp - (timestamp % 2000 + 2000) % 2000;
+    }
+
+    protected void copyEntryContent(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = new byte[1024];
         int len;
-        while ((len = scriptInputStream.read(buffer, 0, buffer.length)) > -1) {
-            jarOutputStream.write(buffer, 0, len);
+        while ((len = inputStream.read(buffer, 0, buffer.length)) > -1) {
+            outputStream.write(buffer, 0, len);
         }
-        scriptInputStream.close();
-        jarOutputStream.closeEntry();
+    }
+
+    /**
+     * Gets the shared jar file of this location, opening it if needed.
+     *
+     * @param scriptLocation The location of the jar file, not null
+     * @return The opened jar file, not null
+     */
+    protected synchronized JarFile getJarFile(File scriptLocation) {
+        if (jarFile == null) {
+            jarFile = createJarFile(scriptLocation);
+        }
+        return jarFile;
+    }
+
+    /**
+     * Closes the jar file, if it was opened. The location remains usable: the jar file is opened again when a script
+     * is read afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (jarFile != null) {
+            try {
+                jarFile.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close jar file " + jarFile.getName() + ": " + e.getMessage());
+            }
+            jarFile = null;
+        }
+        super.close();
     }
 
     protected JarFile createJarFile(File jarFile) {
@@ -320,4 +533,30 @@ public class ArchiveScriptLocation extends ScriptLocation {
         return new File(jarFilePath.substring(0, index));
     }
 
+
+    /**
+     * Handle for the content of a script in the jar file of this location. The content is read using the shared jar
+     * file of the location. If the check sum of the script is already known, e.g. because it is stored in the script
+     * archive index, it is used instead of calculating the check sum.
+     */
+    protected class JarEntryScriptContentHandle extends ScriptContentHandle {
+
+        private JarEntry jarEntry;
+
+        public JarEntryScriptContentHandle(JarEntry jarEntry, String checkSum) {
+            super(scriptEncoding, ArchiveScriptLocation.this.ignoreCarriageReturnsWhenCalculatingCheckSum, ArchiveScriptLocation.this.checkSumAlgorithm);
+            this.jarEntry = jarEntry;
+            this.checkSum = checkSum;
+        }
+
+        @Override
+        protected InputStream getScriptInputStream() {
+            try {
+                return getJarFile(scriptLocation).getInputStream(jarEntry);
+            } catch (IOException e) {
+                throw new DbMaintainException("Error while reading jar entry " + jarEntry, e);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script.repository.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Local index of script check sums, stored in a file. An entry maps the name of a script file to its check sum, together
+ * with the size and last modification date of the file and the carriage return setting that were used to calculate the
+ * check sum. The stored check sum is only returned when all these values still match, so a file is only read again
+ * when it was touched.
+ * <p/>
+ * The index is loaded when it is first accessed and is only written back by {@link #save} if an entry was added.
+ */
+public class CheckSumIndex {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(CheckSumIndex.class);
+
+    /**
+     * Name of the index file, relative to the root of the script location
+     */
+    public static final String CHECK_SUM_INDEX_FILENAME = ".dbmaintain/checksums.idx";
+
+    /**
+     * Check sums of files that were modified less than this nr of millis before the check sum was calculated are not
+     * stored: the file could be modified again without a change in size or in last modification date, since some
+     * file systems only store these dates with a precision of seconds.
+     */
+    protected static final long MIN_FILE_AGE_MS = 3000;
+
+    /* The encoding of the index file */
+    protected static final String ENCODING = "UTF-8";
+
+    /* The first line of the index file, identifies the format */
+    protected static final String HEADER = "# dbmaintain check sum index v1";
+
+    /* The index file, not null */
+    protected File indexFile;
+
+    /* The entries per file name, null if not loaded yet */
+    protected Map<String, Entry> entries;
+
+    /* True if entries were added since the index was loaded */
+    protected boolean modified;
+
+
+    /**
+     * @param indexFile The file in which the index is stored, not null
+     */
+    public CheckSumIndex(File indexFile) {
+        this.indexFile = indexFile;
+    }
+
+
+    /**
+     * @param fileName           The name of the script file, not null
+     * @param fileSize           The current size of the file
+     * @param fileLastModifiedAt The current last modification date of the file
+     * @param ignoreCarriageReturnsWhenCalculatingCheckSum
+     *                           The carriage return setting for calculating the check sum
+     * @return The stored check sum, null if not available or if the file was touched
+     */
+    public synchronized String getCheckSum(String fileName, long fileSize, long fileLastModifiedAt, boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
+        Entry entry = getEntries().get(fileName);
+        if (entry == null || !entry.matches(fileSize, fileLastModifiedAt, ignoreCarriageReturnsWhenCalculatingCheckSum)) {
+            return null;
+        }
+        return entry.checkSum;
+    }
+
+
+    /**
+     * Stores the given check sum in the index. Nothing is stored if the file was modified too recently.
+     *
+     * @param fileName           The name of the script file, not null
+     * @param fileSize           The size of the file when the check sum was calculated
+     * @param fileLastModifiedAt The last modification date of the file when the check sum was calculated
+     * @param ignoreCarriageReturnsWhenCalculatingCheckSum
+     *                           The carriage return setting that was used for calculating the check sum
+     * @param checkSum           The check sum, not null
+     */
+    public synchronized void putCheckSum(String fileName, long fileSize, long fileLastModifiedAt, boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSum) {
+        if (System.currentTimeMillis() - fileLastModifiedAt < MIN_FILE_AGE_MS) {
+            return;
+        }
+        getEntries().put(fileName, new Entry(fileSize, fileLastModifiedAt, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSum));
+        modified = true;
+    }
+
+
+    /**
+     * Writes the index to the index file, if entries were added. Only the entries for the given file names are kept,
+     * entries of files that no longer exist are dropped. If the index file cannot be written, e.g. because the script
+     * location is read-only, a warning is logged: the index is only an optimization.
+     *
+     * @param fileNames The names of all script files of the location, not null
+     */
+    public synchronized void save(Collection<String> fileNames) {
+        if (!modified) {
+            return;
+        }
+        File tempIndexFile = new File(indexFile.getPath() + ".tmp");
+        Writer writer = null;
+        try {
+            indexFile.getParentFile().mkdirs();
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempIndexFile), ENCODING));
+            writer.write(HEADER);
+            writer.write('\n');
+            for (String fileName : fileNames) {
+                Entry entry = entries.get(fileName);
+                if (entry != null) {
+                    writer.write(fileName + '\t' + entry.fileSize + '\t' + entry.fileLastModifiedAt + '\t' + entry.ignoreCarriageReturnsWhenCalculatingCheckSum + '\t' + entry.checkSum + '\n');
+                }
+            }
+            writer.close();
+            writer = null;
+            if (!tempIndexFile.renameTo(indexFile) && !(indexFile.delete() && tempIndexFile.renameTo(indexFile))) {
+                throw new IOException("Unable to rename " + tempIndexFile + " to " + indexFile);
+            }
+            modified = false;
+        } catch (IOException e) {
+            logger.warn("Unable to write check sum index " + indexFile + ": " + e.getMessage());
+            tempIndexFile.delete();
+        } finally {
+            closeQuietly(writer);
+        }
+    }
+
+
+    protected Map<String, Entry> getEntries() {
+        if (entries == null) {
+            entries = loadEntries();
+        }
+        return entries;
+    }
+
+
+    /**
+     * Reads the index file. If the file does not exist or is invalid, the index starts empty.
+     *
+     * @return The entries, not null
+     */
+    protected Map<String, Entry> loadEntries() {
+        Map<String, Entry> result = new HashMap<String, Entry>();
+        if (!indexFile.exists()) {
+            return result;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), ENCODING));
+            if (!HEADER.equals(reader.readLine())) {
+                logger.warn("Ignoring check sum index " + indexFile + ": unknown format.");
+                return result;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts.length != 5) {
+                    logger.warn("Ignoring check sum index " + indexFile + ": invalid entry " + line);
+                    return new HashMap<String, Entry>();
+                }
+                result.put(parts[0], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[2]), Boolean.valueOf(parts[3]), parts[4]));
+            }
+            return result;
+
+        } catch (Exception e) {
+            logger.warn("Ignoring check sum index " + indexFile + ": " + e.getMessage());
+            return new HashMap<String, Entry>();
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+
+    /**
+     * An entry of the index
+     */
+    protected static class Entry {
+
+        protected long fileSize;
+        protected long fileLastModifiedAt;
+        protected boolean ignoreCarriageReturnsWhenCalculatingCheckSum;
+        protected String checkSum;
+
+        public Entry(long fileSize, long fileLastModifiedAt, boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSum) {
+            this.fileSize = fileSize;
+            this.fileLastModifiedAt = fileLastModifiedAt;
+            this.ignoreCarriageReturnsWhenCalculatingCheckSum = ignoreCarriageReturnsWhenCalculatingCheckSum;
+            this.checkSum = checkSum;
+        }
+
+        public boolean matches(long fileSize, long fileLastModifiedAt, boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
+            return this.fileSize == fileSize && this.fileLastModifiedAt == fileLastModifiedAt && this.ignoreCarriageReturnsWhenCalculatingCheckSum == ignoreCarriageReturnsWhenCalculatingCheckSum;
+        }
+    }
+}
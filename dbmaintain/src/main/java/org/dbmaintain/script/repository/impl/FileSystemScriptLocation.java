@@ -15,11 +15,14 @@
  */
 package org.dbmaintain.script.repository.impl;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.dbmaintain.script.Script;
 import org.dbmaintain.script.ScriptContentHandle;
 import org.dbmaintain.script.executedscriptinfo.ScriptIndexes;
 import org.dbmaintain.script.qualifier.Qualifier;
 import org.dbmaintain.script.repository.ScriptLocation;
+import org.dbmaintain.util.CheckSumUtils;
 import org.dbmaintain.util.DbMaintainException;
 import org.dbmaintain.util.FileUtils;
 
@@ -27,10 +30,18 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
@@ -39,12 +50,27 @@ import static org.apache.commons.io.IOUtils.closeQuietly;
  * Script container that looks for scripts in a file system directory and its subdirectories. The
  * scripts directory can optionally contain config file {@link #LOCATION_PROPERTIES_FILENAME}, that
  * defines all properties that are applicable to the script organization.
+ * <p/>
+ * If enabled, the check sums of the scripts are kept in a {@link CheckSumIndex} in the scripts directory, so that
+ * only scripts that were touched since the previous run need to be read again.
+ * <p/>
+ * The directories can be scanned by multiple threads. This is mainly useful for network file systems, where
+ * listing a directory and checking its entries is slow.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
  */
 public class FileSystemScriptLocation extends ScriptLocation {
 
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(FileSystemScriptLocation.class);
+
+    /* The index with the check sums of the previous run, null if no index is used */
+    protected CheckSumIndex checkSumIndex;
+
+    /* The nr of threads that is used to scan the directories, 1 or less to scan in the calling thread */
+    protected int scanParallelism;
+
 
     /**
      * Constructor for FileSystemScriptLocation.
@@ -62,10 +88,18 @@ public class FileSystemScriptLocation extends ScriptLocation {
      * @param baseLineRevision            The baseline revision. If set, all scripts with a lower revision will be ignored
      * @param ignoreCarriageReturnsWhenCalculatingCheckSum
      *                                    If true, carriage return chars will be ignored when calculating check sums
+     * @param checkSumAlgorithm           The algorithm to use for calculating the check sums of the scripts, not null
+     * @param useCheckSumIndex            If true, the check sums are stored in the file {@link CheckSumIndex#CHECK_SUM_INDEX_FILENAME}
+     *                                    and reused by the next run if the script file was not touched
+     * @param scanParallelism             The nr of threads that is used to scan the directories, 1 or less to scan in the calling thread
      */
     public FileSystemScriptLocation(File scriptLocation, String defaultScriptEncoding, String defaultPostProcessingScriptDirName, Set<Qualifier> defaultRegisteredQualifiers, Set<Qualifier> defaultPatchQualifiers, String defaultScriptIndexRegexp, String defaultQualifierRegexp,
-                                    String defaultTargetDatabaseRegexp, Set<String> defaultScriptFileExtensions, ScriptIndexes baseLineRevision, boolean ignoreCarriageReturnsWhenCalculatingCheckSum) {
-        super(scriptLocation, defaultScriptEncoding, defaultPostProcessingScriptDirName, defaultRegisteredQualifiers, defaultPatchQualifiers, defaultScriptIndexRegexp, defaultQualifierRegexp, defaultTargetDatabaseRegexp, defaultScriptFileExtensions, baseLineRevision, ignoreCarriageReturnsWhenCalculatingCheckSum);
+                                    String defaultTargetDatabaseRegexp, Set<String> defaultScriptFileExtensions, ScriptIndexes baseLineRevision, boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSumAlgorithm, boolean useCheckSumIndex, int scanParallelism) {
+        super(scriptLocation, defaultScriptEncoding, defaultPostProcessingScriptDirName, defaultRegisteredQualifiers, defaultPatchQualifiers, defaultScriptIndexRegexp, defaultQualifierRegexp, defaultTargetDatabaseRegexp, defaultScriptFileExtensions, baseLineRevision, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSumAlgorithm);
+        if (useCheckSumIndex) {
+            this.checkSumIndex = new CheckSumIndex(new File(scriptLocation, CheckSumIndex.CHECK_SUM_INDEX_FILENAME));
+        }
+        this.scanParallelism = scanParallelism;
     }
 
 
@@ -108,8 +142,14 @@ public class FileSystemScriptLocation extends ScriptLocation {
      * @return all available scripts, loaded from the file system
      */
     protected SortedSet<Script> loadScripts(File scriptLocation) {
+        long startTime = System.currentTimeMillis();
         SortedSet<Script> scripts = new TreeSet<Script>();
-        getScriptsAt(scripts, scriptLocation.getAbsolutePath(), "");
+        if (scanParallelism <= 1) {
+            getScriptsAt(scripts, scriptLocation.getAbsolutePath(), "");
+        } else {
+            getScriptsInParallel(scripts, scriptLocation.getAbsolutePath());
+        }
+        logger.info("Scanned script location " + scriptLocation + ": found " + scripts.size() + " scripts in " + (System.currentTimeMillis() - startTime) + " ms.");
         return scripts;
     }
 
@@ -123,16 +163,82 @@ public class FileSystemScriptLocation extends ScriptLocation {
      * @param relativeLocation the subdirectory in which we are now looking for scripts
      */
     protected void getScriptsAt(SortedSet<Script> scripts, String scriptRoot, String relativeLocation) {
-        File currentLocation = new File(scriptRoot + "/" + relativeLocation);
-        if (currentLocation.isFile() && isScriptFileName(currentLocation.getName())) {
-            Script script = createScript(currentLocation, relativeLocation);
-            scripts.add(script);
+        List<String> subLocations = new ArrayList<String>();
+        scanDirectory(scripts, subLocations, scriptRoot, relativeLocation);
+        for (String subLocation : subLocations) {
+            getScriptsAt(scripts, scriptRoot, subLocation);
+        }
+    }
+
+
+    /**
+     * Adds all scripts available in the given directory or one of its subdirectories to the given set of files. The
+     * directories are scanned level by level: all directories of a level are scanned concurrently. Since the scripts
+     * are collected in a sorted set, the result does not depend on the order in which the directories are scanned.
+     *
+     * @param scripts    aggregates the scripts that are found, not null
+     * @param scriptRoot the root script directory, not null
+     */
+    protected void getScriptsInParallel(SortedSet<Script> scripts, final String scriptRoot) {
+        ExecutorService executorService = Executors.newFixedThreadPool(scanParallelism);
+        try {
+            List<String> locations = new ArrayList<String>();
+            locations.add("");
+            while (!locations.isEmpty()) {
+                List<Callable<DirectoryScan>> directoryScans = new ArrayList<Callable<DirectoryScan>>(locations.size());
+                for (final String location : locations) {
+                    directoryScans.add(new Callable<DirectoryScan>() {
+                        public DirectoryScan call() {
+                            DirectoryScan directoryScan = new DirectoryScan();
+                            scanDirectory(directoryScan.scripts, directoryScan.subLocations, scriptRoot, location);
+                            return directoryScan;
+                        }
+                    });
+                }
+                locations = new ArrayList<String>();
+                for (Future<DirectoryScan> directoryScan : executorService.invokeAll(directoryScans)) {
+                    scripts.addAll(directoryScan.get().scripts);
+                    locations.addAll(directoryScan.get().subLocations);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbMaintainException("Interrupted while scanning script location " + scriptRoot, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DbMaintainException) {
+                throw (DbMaintainException) e.getCause();
+            }
+            throw new DbMaintainException("Unable to scan script location " + scriptRoot, e.getCause());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Adds the scripts in the given directory to the given scripts and the names of all other entries to the given
+     * sub locations. To limit the nr of file system calls, only the entries that have a script file extension are checked
+     * to be files. The other entries are added as sub locations without checking whether they are directories: listing
+     * the content of a sub location that is not a directory simply returns nothing. This still costs one file system
+     * call for every entry that is not a script, the same as checking whether it is a directory.
+     *
+     * @param scripts          aggregates the scripts that are found, not null
+     * @param subLocations     aggregates the names of the entries that can be directories, relative to the root, not null
+     * @param scriptRoot       the root script directory, not null
+     * @param relativeLocation the directory to scan, relative to the root, not null
+     */
+    protected void scanDirectory(Collection<Script> scripts, Collection<String> subLocations, String scriptRoot, String relativeLocation) {
+        File[] entries = new File(scriptRoot + "/" + relativeLocation).listFiles();
+        if (entries == null) {
+            // not a directory
             return;
         }
-        // recursively scan sub folders for script files
-        if (currentLocation.isDirectory()) {
-            for (File subLocation : currentLocation.listFiles()) {
-                getScriptsAt(scripts, scriptRoot, "".equals(relativeLocation) ? subLocation.getName() : relativeLocation + '/' + subLocation.getName());
+        for (File entry : entries) {
+            String relativeEntryName = "".equals(relativeLocation) ? entry.getName() : relativeLocation + '/' + entry.getName();
+            if (isScriptFileName(entry.getName()) && entry.isFile()) {
+                scripts.add(createScript(entry, relativeEntryName));
+            } else {
+                subLocations.add(relativeEntryName);
             }
         }
     }
@@ -146,8 +252,116 @@ public class FileSystemScriptLocation extends ScriptLocation {
      */
     protected Script createScript(File scriptFile, String relativeScriptFileName) {
         Long fileLastModifiedAt = scriptFile.lastModified();
-        ScriptContentHandle scriptContentHandle = new ScriptContentHandle.UrlScriptContentHandle(FileUtils.getUrl(scriptFile), scriptEncoding, ignoreCarriageReturnsWhenCalculatingCheckSum);
+        ScriptContentHandle scriptContentHandle;
+        if (checkSumIndex == null) {
+            scriptContentHandle = new ScriptContentHandle.FileScriptContentHandle(scriptFile, scriptEncoding, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSumAlgorithm);
+        } else {
+            scriptContentHandle = new IndexedFileScriptContentHandle(scriptFile, relativeScriptFileName, fileLastModifiedAt, scriptEncoding, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSumAlgorithm, checkSumIndex);
+        }
         return scriptFactory.createScriptWithContent(relativeScriptFileName, fileLastModifiedAt, scriptContentHandle);
     }
 
+
+    /**
+     * Writes the check sum index, if an index is used and new check sums were calculated.
+     */
+    @Override
+    public void close() {
+        if (checkSumIndex == null || scripts == null) {
+            return;
+        }
+        List<String> fileNames = new ArrayList<String>(scripts.size());
+        for (Script script : scripts) {
+            fileNames.add(script.getFileName());
+        }
+        checkSumIndex.save(fileNames);
+    }
+
+
+    /**
+     * A handle for a script file that first looks up the check sum in the check sum index. The check sum is only
+     * calculated if the file was touched, and is then added to the index.
+     */
+    protected static class IndexedFileScriptContentHandle extends ScriptContentHandle.FileScriptContentHandle {
+
+        /* The name of the script file relative to the root scripts dir */
+        private String fileName;
+        /* The last modification date of the file when the location was loaded */
+        private long fileLastModifiedAt;
+        /* The size of the file, null if not yet determined */
+        private Long fileSize;
+        /* True if the check sum was already looked up in the index */
+        private boolean indexLookedUp;
+        /* The check sum index, not null */
+        private CheckSumIndex checkSumIndex;
+
+        public IndexedFileScriptContentHandle(File file, String fileName, long fileLastModifiedAt, String encoding, boolean ignoreCarriageReturnsWhenCalculatingCheckSum, String checkSumAlgorithm, CheckSumIndex checkSumIndex) {
+            super(file, encoding, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSumAlgorithm);
+            this.fileName = fileName;
+            this.fileLastModifiedAt = fileLastModifiedAt;
+            this.checkSumIndex = checkSumIndex;
+        }
+
+        @Override
+        public String getCheckSum() {
+            if (checkSum == null) {
+                checkSum = getIndexedCheckSum();
+                if (checkSum == null) {
+                    checkSum = super.getCheckSum();
+                    checkSumIndex.putCheckSum(fileName, getFileSize(), fileLastModifiedAt, ignoreCarriageReturnsWhenCalculatingCheckSum, checkSum);
+                }
+            }
+            return checkSum;
+        }
+
+        /**
+         * @return True if the check sum was already calculated or is found in the check sum index
+         */
+        @Override
+        public boolean isCheckSumCalculated() {
+            if (checkSum == null) {
+                checkSum = getIndexedCheckSum();
+            }
+            return checkSum != null;
+        }
+
+        /**
+         * The index is only looked up once: the file is not checked again if the check sum is not found.
+         *
+         * @return The check sum from the index, null if the file was touched or the check sum was calculated with
+         *         another algorithm
+         */
+        protected String getIndexedCheckSum() {
+            if (indexLookedUp) {
+                return null;
+            }
+            indexLookedUp = true;
+            String indexedCheckSum = checkSumIndex.getCheckSum(fileName, getFileSize(), fileLastModifiedAt, ignoreCarriageReturnsWhenCalculatingCheckSum);
+            if (indexedCheckSum != null && !checkSumAlgorithm.equalsIgnoreCase(CheckSumUtils.getCheckSumAlgorithm(indexedCheckSum))) {
+                return null;
+            }
+            return indexedCheckSum;
+        }
+
+        /**
+         * @return The size of the file, only retrieved from the file system the first time
+         */
+        protected long getFileSize() {
+            if (fileSize == null) {
+                fileSize = getFile().length();
+            }
+            return fileSize;
+        }
+    }
+
+
+    /**
+     * The result of scanning a single directory
+     */
+    protected static class DirectoryScan {
+
+        protected List<Script> scripts = new ArrayList<Script>();
+        protected List<String> subLocations = new ArrayList<String>();
+    }
+
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script.repository.impl;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.dbmaintain.util.DbMaintainException;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.util.*;
+
+import static org.apache.commons.lang.StringUtils.join;
+import static org.apache.commons.lang.StringUtils.split;
+import static org.dbmaintain.util.CheckSumUtils.createMessageDigest;
+import static org.dbmaintain.util.CheckSumUtils.getHexPresentation;
+
+/**
+ * Index of the scripts in a script archive, stored in the archive as entry {@link #SCRIPT_ARCHIVE_INDEX_FILENAME}.
+ * For every script it contains the name, the parts that were parsed out of the name (indexes, target database and
+ * qualifiers), the size and CRC of the archive entry, the last modification date and the check sum. This way a script
+ * archive can be loaded without parsing the script names and without reading the script contents.
+ * <p/>
+ * The index also records the settings that were used for parsing the names and calculating the check sums, and ends
+ * with a digest of its own content. If the digest does not match, the index is not used.
+ */
+public class ScriptArchiveIndex {
+
+    /* The logger instance for this class */
+    private static Log logger = LogFactory.getLog(ScriptArchiveIndex.class);
+
+    /**
+     * Name of the index entry in the script archive
+     */
+    public static final String SCRIPT_ARCHIVE_INDEX_FILENAME = "META-INF/dbmaintain-index";
+
+    /* The encoding of the index */
+    protected static final String ENCODING = "UTF-8";
+
+    /* The first line of the index, identifies the format */
+    protected static final String HEADER = "# dbmaintain script archive index v1";
+
+    /* The algorithm of the digest of the index content */
+    protected static final String DIGEST_ALGORITHM = "MD5";
+
+    protected static final String SETTINGS_LINE = "settings";
+    protected static final String SCRIPT_LINE = "script";
+    protected static final String DIGEST_LINE = "digest";
+
+    /* The settings that were used for creating the index, not null */
+    protected List<String> settings;
+
+    /* The entries of the index, not null */
+    protected List<Entry> entries = new ArrayList<Entry>();
+
+
+    /**
+     * @param settings The settings that were used for parsing the script names and calculating the check sums, not null.
+     *                 An index is only used when it was created with the same settings.
+     */
+    public ScriptArchiveIndex(List<String> settings) {
+        this.settings = settings;
+    }
+
+
+    /**
+     * @param settings The settings to compare with, not null
+     * @return True if the index was created using the given settings
+     */
+    public boolean hasSettings(List<String> settings) {
+        return this.settings.equals(settings);
+    }
+
+    /**
+     * @return The entries of the index, not null
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @param entry The entry to add, not null
+     */
+    public void addEntry(Entry entry) {
+        entries.add(entry);
+    }
+
+
+    /**
+     * Writes the index, followed by the digest of its content.
+     *
+     * @param outputStream The stream to write to, not null. The stream is not closed.
+     * @throws IOException If the index could not be written
+     */
+    public void write(OutputStream outputStream) throws IOException {
+        StringBuilder content = new StringBuilder();
+        content.append(HEADER).append('\n');
+        appendLine(content, SETTINGS_LINE, settings);
+        for (Entry entry : entries) {
+            appendLine(content, SCRIPT_LINE, entry.toValues());
+        }
+        String digest = getDigest(content.toString());
+        appendLine(content, DIGEST_LINE, Collections.singletonList(digest));
+
+        Writer writer = new OutputStreamWriter(outputStream, ENCODING);
+        writer.write(content.toString());
+        writer.flush();
+    }
+
+
+    /**
+     * Reads an index. If the index is invalid, e.g. because its digest does not match, a message is logged and null
+     * is returned.
+     *
+     * @param inputStream The stream to read from, not null. The stream is not closed.
+     * @param description A description of the index for the log messages, not null
+     * @return The index, null if invalid
+     * @throws IOException If the index could not be read
+     */
+    public static ScriptArchiveIndex read(InputStream inputStream, String description) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, ENCODING));
+        if (!HEADER.equals(reader.readLine())) {
+            logger.info("Ignoring script archive index " + description + ": unknown format.");
+            return null;
+        }
+        StringBuilder content = new StringBuilder();
+        content.append(HEADER).append('\n');
+
+        ScriptArchiveIndex scriptArchiveIndex = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] values = line.split("\t", -1);
+            if (DIGEST_LINE.equals(values[0])) {
+                if (scriptArchiveIndex == null || values.length != 2 || !values[1].equals(getDigest(content.toString())) || reader.readLine() != null) {
+                    logger.info("Ignoring script archive index " + description + ": the digest does not match the content.");
+                    return null;
+                }
+                return scriptArchiveIndex;
+            }
+            content.append(line).append('\n');
+
+            if (scriptArchiveIndex == null && SETTINGS_LINE.equals(values[0])) {
+                scriptArchiveIndex = new ScriptArchiveIndex(Arrays.asList(values).subList(1, values.length));
+            } else if (scriptArchiveIndex != null && SCRIPT_LINE.equals(values[0]) && values.length == 9 && isValidEntry(values)) {
+                scriptArchiveIndex.addEntry(Entry.fromValues(values));
+            } else {
+                logger.info("Ignoring script archive index " + description + ": invalid line " + line);
+                return null;
+            }
+        }
+        logger.info("Ignoring script archive index " + description + ": the digest is missing.");
+        return null;
+    }
+
+
+    protected static boolean isValidEntry(String[] values) {
+        try {
+            for (int i = 2; i <= 4; i++) {
+                Long.parseLong(values[i]);
+            }
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    protected static void appendLine(StringBuilder content, String lineType, List<String> values) {
+        content.append(lineType);
+        for (String value : values) {
+            if (value.indexOf('\t') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                throw new DbMaintainException("Unable to write script archive index: value contains a tab or line break: " + value);
+            }
+            content.append('\t').append(value);
+        }
+        content.append('\n');
+    }
+
+    protected static String getDigest(String content) {
+        try {
+            MessageDigest messageDigest = createMessageDigest(DIGEST_ALGORITHM);
+            return getHexPresentation(messageDigest.digest(content.getBytes(ENCODING)));
+        } catch (UnsupportedEncodingException e) {
+            throw new DbMaintainException("Unable to calculate digest of script archive index.", e);
+        }
+    }
+
+
+    /**
+     * An entry of the index, describing one script of the archive
+     */
+    public static class Entry {
+
+        /* The name of the archive entry */
+        protected String name;
+        /* The uncompressed size of the archive entry */
+        protected long size;
+        /* The CRC-32 of the archive entry */
+        protected long crc;
+        /* The last modification date of the script */
+        protected long lastModifiedAt;
+        /* The indexes of the script, as returned by ScriptIndexes.getIndexesString() */
+        protected String scriptIndexes;
+        /* The target database name, null if not defined */
+        protected String targetDatabaseName;
+        /* The names of the qualifiers of the script, not null */
+        protected Set<String> qualifierNames;
+        /* The check sum of the script */
+        protected String checkSum;
+
+        public Entry(String name, long size, long crc, long lastModifiedAt, String scriptIndexes, String targetDatabaseName, Set<String> qualifierNames, String checkSum) {
+            this.name = name;
+            this.size = size;
+            this.crc = crc;
+            this.lastModifiedAt = lastModifiedAt;
+            this.scriptIndexes = scriptIndexes;
+            this.targetDatabaseName = targetDatabaseName;
+            this.qualifierNames = qualifierNames;
+            this.checkSum = checkSum;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getLastModifiedAt() {
+            return lastModifiedAt;
+        }
+
+        public String getScriptIndexes() {
+            return scriptIndexes;
+        }
+
+        public String getTargetDatabaseName() {
+            return targetDatabaseName;
+        }
+
+        public Set<String> getQualifierNames() {
+            return qualifierNames;
+        }
+
+        public String getCheckSum() {
+            return checkSum;
+        }
+
+        /**
+         * @param size The uncompressed size of the archive entry
+         * @param crc  The CRC-32 of the archive entry
+         * @return True if the archive entry still is the one that was indexed
+         */
+        public boolean matches(long size, long crc) {
+            return this.size == size && this.crc == crc;
+        }
+
+        protected List<String> toValues() {
+            return Arrays.asList(name, Long.toString(size), Long.toString(crc), Long.toString(lastModifiedAt), scriptIndexes,
+                    targetDatabaseName == null ? "" : targetDatabaseName, join(new TreeSet<String>(qualifierNames), ','), checkSum);
+        }
+
+        protected static Entry fromValues(String[] values) {
+            String targetDatabaseName = values[6].length() == 0 ? null : values[6];
+            Set<String> qualifierNames = new HashSet<String>(Arrays.asList(split(values[7], ',')));
+            return new Entry(values[1], Long.parseLong(values[2]), Long.parseLong(values[3]), Long.parseLong(values[4]), values[5], targetDatabaseName, qualifierNames, values[8]);
+        }
+    }
+}
@@ -25,6 +25,9 @@ import org.dbmaintain.script.runner.impl.FileExtensionDispatcher;
 import static org.dbmaintain.config.DbMaintainProperties.PROPERTY_SQL_PLUS_COMMAND;
 import static org.dbmaintain.config.DbMaintainProperties.PROPERTY_SQL_LOADER_COMMAND;
 import static org.dbmaintain.config.DbMaintainProperties.PROPERTY_CHMOD_COMMAND;
+import static org.dbmaintain.config.DbMaintainProperties.PROPERTY_STATEMENT_BATCH_SIZE;
+import static org.dbmaintain.config.DbMaintainProperties.PROPERTY_PARSER_QUEUE_SIZE;
+import static org.dbmaintain.config.DbMaintainProperties.PROPERTY_PARALLEL_BLOCK_PARALLELISM;
 
 /**
  *
@@ -36,7 +39,11 @@ public class FileExtensionDispatcherFactory extends FactoryWithDatabase<ScriptRu
         String sqlLoaderCommand = PropertyUtils.getString(PROPERTY_SQL_LOADER_COMMAND, getConfiguration());
         String sqlPlusCommand = PropertyUtils.getString(PROPERTY_SQL_PLUS_COMMAND, getConfiguration());
         String chmodCommand = PropertyUtils.getString(PROPERTY_CHMOD_COMMAND, getConfiguration());
+        int statementBatchSize = PropertyUtils.getInt(PROPERTY_STATEMENT_BATCH_SIZE, getConfiguration());
+        int parserQueueSize = PropertyUtils.getInt(PROPERTY_PARSER_QUEUE_SIZE, getConfiguration());
+        int parallelBlockParallelism = PropertyUtils.getInt(PROPERTY_PARALLEL_BLOCK_PARALLELISM, getConfiguration());
         Map<String, ScriptParserFactory> databaseDialectScriptParserFactoryMap = factoryWithDatabaseContext.getDatabaseDialectScriptParserFactoryMap();
-        return new FileExtensionDispatcher(getDatabases(), getSqlHandler(), sqlLoaderCommand, sqlPlusCommand, chmodCommand, databaseDialectScriptParserFactoryMap);
+        return new FileExtensionDispatcher(getDatabases(), getSqlHandler(), sqlLoaderCommand, sqlPlusCommand, chmodCommand, databaseDialectScriptParserFactoryMap,
+                statementBatchSize, parserQueueSize, parallelBlockParallelism);
     }
 }
\ No newline at end of file
@@ -16,11 +16,16 @@
 package org.dbmaintain.script.runner;
 
 import org.dbmaintain.config.FactoryWithDatabase;
+import org.dbmaintain.config.PropertyUtils;
 import org.dbmaintain.script.parser.ScriptParserFactory;
 import org.dbmaintain.script.runner.impl.JdbcScriptRunner;
 
 import java.util.Map;
 
+import static org.dbmaintain.config.DbMaintainProperties.PROPERTY_PARALLEL_BLOCK_PARALLELISM;
+import static org.dbmaintain.config.DbMaintainProperties.PROPERTY_PARSER_QUEUE_SIZE;
+import static org.dbmaintain.config.DbMaintainProperties.PROPERTY_STATEMENT_BATCH_SIZE;
+
 /**
  * @author Tim Ducheyne
  * @author Filip Neven
@@ -30,7 +35,10 @@ public class JdbcScriptRunnerFactory extends FactoryWithDatabase<ScriptRunner> {
 
     public ScriptRunner createInstance() {
         Map<String, ScriptParserFactory> databaseDialectScriptParserFactoryMap = factoryWithDatabaseContext.getDatabaseDialectScriptParserFactoryMap();
-        return new JdbcScriptRunner(databaseDialectScriptParserFactoryMap, getDatabases(), getSqlHandler());
+        int statementBatchSize = PropertyUtils.getInt(PROPERTY_STATEMENT_BATCH_SIZE, getConfiguration());
+        int parserQueueSize = PropertyUtils.getInt(PROPERTY_PARSER_QUEUE_SIZE, getConfiguration());
+        int parallelBlockParallelism = PropertyUtils.getInt(PROPERTY_PARALLEL_BLOCK_PARALLELISM, getConfiguration());
+        return new JdbcScriptRunner(databaseDialectScriptParserFactoryMap, getDatabases(), getSqlHandler(), statementBatchSize, parserQueueSize, parallelBlockParallelism);
     }
 
 }
@@ -37,6 +37,11 @@ public class FileExtensionDispatcher implements ScriptRunner {
     protected String sqlPlusCommand;
     protected String chmodCommand;
     protected Map<String, ScriptParserFactory> databaseDialectScriptParserFactoryMap;
+    protected int statementBatchSize;
+    protected int parserQueueSize;
+    protected int parallelBlockParallelism;
+    /* The runner for the sql scripts, shared by all sql scripts so that it can keep its threads for parallel blocks */
+    protected JdbcScriptRunner jdbcScriptRunner;
     
     public FileExtensionDispatcher(Databases databases, 
             SQLHandler sqlHandler,
@@ -44,12 +49,28 @@ public class FileExtensionDispatcher implements ScriptRunner {
             String sqlPlusCommand,
             String chmodCommand,
             Map<String, ScriptParserFactory> databaseDialectScriptParserFactoryMap) {
+        this(databases, sqlHandler, sqlLoaderCommand, sqlPlusCommand, chmodCommand, databaseDialectScriptParserFactoryMap, 0, 0, 0);
+    }
+
+    public FileExtensionDispatcher(Databases databases, 
+            SQLHandler sqlHandler,
+            String sqlLoaderCommand,
+            String sqlPlusCommand,
+            String chmodCommand,
+            Map<String, ScriptParserFactory> databaseDialectScriptParserFactoryMap,
+            int statementBatchSize,
+            int parserQueueSize,
+            int parallelBlockParallelism) {
         this.databases = databases;
         this.sqlHandler = sqlHandler;
         this.sqlLoaderCommand = sqlLoaderCommand;
         this.sqlPlusCommand = sqlPlusCommand;
         this.chmodCommand = chmodCommand;
         this.databaseDialectScriptParserFactoryMap = databaseDialectScriptParserFactoryMap;
+        this.statementBatchSize = statementBatchSize;
+        this.parserQueueSize = parserQueueSize;
+        this.parallelBlockParallelism = parallelBlockParallelism;
+        this.jdbcScriptRunner = new JdbcScriptRunner(databaseDialectScriptParserFactoryMap, databases, sqlHandler, statementBatchSize, parserQueueSize, parallelBlockParallelism);
     }
 
     public void execute(Script script) {
@@ -58,8 +79,7 @@ public class FileExtensionDispatcher implements ScriptRunner {
             runner.execute(script);
         }
         else if (script.getFileName().matches("^.*\\.sql$")) {
-            ScriptRunner runner = new JdbcScriptRunner(databaseDialectScriptParserFactoryMap, databases, sqlHandler);
-            runner.execute(script);
+            jdbcScriptRunner.execute(script);
         }
         else {
             ScriptRunner runner = new ShellScriptRunner(databases, chmodCommand);
@@ -71,6 +91,7 @@ public class FileExtensionDispatcher implements ScriptRunner {
     }
 
     public void close() {
+        jdbcScriptRunner.close();
     }
 
 }
\ No newline at end of file
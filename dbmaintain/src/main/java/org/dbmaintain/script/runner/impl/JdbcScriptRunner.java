@@ -23,17 +23,30 @@ import org.dbmaintain.database.SQLHandler;
 import org.dbmaintain.script.Script;
 import org.dbmaintain.script.parser.ScriptParser;
 import org.dbmaintain.script.parser.ScriptParserFactory;
+import org.dbmaintain.script.parser.impl.PipelinedScriptParser;
 import org.dbmaintain.script.runner.ScriptRunner;
 import org.dbmaintain.util.DbMaintainException;
 
 import javax.sql.DataSource;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
 /**
  * Default implementation of a script runner that uses JDBC to execute the script.
+ * <p/>
+ * The statements between a <code>-- dbmaintain:parallel begin</code> and a <code>-- dbmaintain:parallel end</code>
+ * comment line are executed concurrently, each on its own connection, if the parallel block parallelism is larger
+ * than 1. The statements after the block are only executed once all statements of the block have finished.
  *
  * @author Filip Neven
  * @author Tim Ducheyne
@@ -43,15 +56,62 @@ public class JdbcScriptRunner implements ScriptRunner {
     /* The logger instance for this class */
     private static Log logger = LogFactory.getLog(JdbcScriptRunner.class);
 
+    /**
+     * The comment that starts a block of statements that are executed concurrently
+     */
+    public static final String PARALLEL_BEGIN_DIRECTIVE = "dbmaintain:parallel begin";
+
+    /**
+     * The comment that ends a block of statements that are executed concurrently
+     */
+    public static final String PARALLEL_END_DIRECTIVE = "dbmaintain:parallel end";
+
     protected Databases databases;
     protected SQLHandler sqlHandler;
     protected Map<String, ScriptParserFactory> databaseDialectScriptParserFactoryMap;
+    /* The max nr of consecutive DML statements that are sent to the database in a single batch, 1 or less to not use batches */
+    protected int statementBatchSize;
+    /* The max nr of statements that are parsed ahead in a separate thread, 0 to parse on the executing thread */
+    protected int parserQueueSize;
+    /* The max nr of statements of a parallel block that are executed concurrently, 1 or less to ignore parallel blocks */
+    protected int parallelBlockParallelism;
+    /* The threads that execute the statements of parallel blocks, null if no parallel block was executed yet */
+    protected ExecutorService parallelBlockExecutorService;
 
 
     public JdbcScriptRunner(Map<String, ScriptParserFactory> databaseDialectScriptParserFactoryMap, Databases databases, SQLHandler sqlHandler) {
+        this(databaseDialectScriptParserFactoryMap, databases, sqlHandler, 0);
+    }
+
+    public JdbcScriptRunner(Map<String, ScriptParserFactory> databaseDialectScriptParserFactoryMap, Databases databases, SQLHandler sqlHandler, int statementBatchSize) {
+        this(databaseDialectScriptParserFactoryMap, databases, sqlHandler, statementBatchSize, 0);
+    }
+
+    public JdbcScriptRunner(Map<String, ScriptParserFactory> databaseDialectScriptParserFactoryMap, Databases databases, SQLHandler sqlHandler, int statementBatchSize, int parserQueueSize) {
+        this(databaseDialectScriptParserFactoryMap, databases, sqlHandler, statementBatchSize, parserQueueSize, 0);
+    }
+
+    /**
+     * @param databaseDialectScriptParserFactoryMap
+     *                           The script parser factory per database dialect, not null
+     * @param databases          The databases, not null
+     * @param sqlHandler         The sql handler, not null
+     * @param statementBatchSize The max nr of consecutive DML statements (insert, update, delete, merge) that are sent to
+     *                           the database in a single JDBC batch, 1 or less to execute all statements one by one
+     * @param parserQueueSize    The max nr of statements that are parsed ahead in a separate thread while a statement is
+     *                           executed, 0 or less to parse the statements on the executing thread
+     * @param parallelBlockParallelism
+     *                           The max nr of statements of a parallel block that are executed concurrently, each on its
+     *                           own connection, 1 or less to execute the statements of parallel blocks one by one
+     */
+    public JdbcScriptRunner(Map<String, ScriptParserFactory> databaseDialectScriptParserFactoryMap, Databases databases, SQLHandler sqlHandler, int statementBatchSize, int parserQueueSize,
+                            int parallelBlockParallelism) {
         this.databaseDialectScriptParserFactoryMap = databaseDialectScriptParserFactoryMap;
         this.databases = databases;
         this.sqlHandler = sqlHandler;
+        this.statementBatchSize = statementBatchSize;
+        this.parserQueueSize = parserQueueSize;
+        this.parallelBlockParallelism = parallelBlockParallelism;
     }
 
 
@@ -65,6 +125,7 @@ public class JdbcScriptRunner implements ScriptRunner {
      */
     public void execute(Script script) {
         Reader scriptContentReader = null;
+        PipelinedScriptParser pipelinedScriptParser = null;
         try {
             // Define the target database on which to execute the script
             Database targetDatabase = getTargetDatabaseDatabase(script);
@@ -77,23 +138,66 @@ public class JdbcScriptRunner implements ScriptRunner {
             scriptContentReader = script.getScriptContentHandle().openScriptContentReader();
             // create a script parser for the target database in question 
             ScriptParser scriptParser = databaseDialectScriptParserFactoryMap.get(targetDatabase.getSupportedDatabaseDialect()).createScriptParser(scriptContentReader);
+            if (parserQueueSize > 0) {
+                // parse the next statements in a separate thread while the current statement is being executed
+                pipelinedScriptParser = new PipelinedScriptParser(scriptParser, parserQueueSize);
+                scriptParser = pipelinedScriptParser;
+            }
             // parse and execute the statements
-            parseAndExecuteScript(targetDatabase, scriptParser);
+            parseAndExecuteScript(script, targetDatabase, scriptParser);
 
         } finally {
+            // the parser thread must be stopped before the content it is reading is closed
+            if (pipelinedScriptParser != null) {
+                pipelinedScriptParser.close();
+            }
             closeQuietly(scriptContentReader);
         }
     }
 
-    private void parseAndExecuteScript(Database targetDatabase, ScriptParser scriptParser) {
+    private void parseAndExecuteScript(Script script, Database targetDatabase, ScriptParser scriptParser) {
         DataSource dataSource = targetDatabase.getDataSource();
         try {
             sqlHandler.startTransaction(dataSource);
 
+            List<String> statementBatch = new ArrayList<String>();
+            // the statements of the current parallel block, null if not in a parallel block
+            List<String> parallelBlock = null;
             String statement;
             while ((statement = scriptParser.getNextStatement()) != null) {
+                if (parallelBlockParallelism > 1) {
+                    for (String directive : getParallelDirectives(statement)) {
+                        if (PARALLEL_END_DIRECTIVE.equals(directive) && parallelBlock != null) {
+                            executeParallelBlock(parallelBlock, dataSource);
+                            parallelBlock = null;
+                        } else if (PARALLEL_BEGIN_DIRECTIVE.equals(directive) && parallelBlock == null) {
+                            logger.warn("Script " + script.getFileName() + " contains a parallel block. The statements before the block are committed and the statements " +
+                                    "of the block are committed individually: they are not rolled back if the script fails.");
+                            executeStatementBatch(statementBatch, dataSource);
+                            parallelBlock = new ArrayList<String>();
+                        }
+                    }
+                    if (parallelBlock != null) {
+                        parallelBlock.add(statement);
+                        continue;
+                    }
+                }
+                if (statementBatchSize > 1 && isBatchableStatement(statement)) {
+                    statementBatch.add(statement);
+                    if (statementBatch.size() >= statementBatchSize) {
+                        executeStatementBatch(statementBatch, dataSource);
+                    }
+                    continue;
+                }
+                // other statements, e.g. DDL, are executed after the DML statements before them
+                executeStatementBatch(statementBatch, dataSource);
                 sqlHandler.execute(statement, dataSource);
             }
+            if (parallelBlock != null) {
+                // a parallel block without end directive ends at the end of the script
+                executeParallelBlock(parallelBlock, dataSource);
+            }
+            executeStatementBatch(statementBatch, dataSource);
             sqlHandler.endTransactionAndCommit(dataSource);
 
         } catch (DbMaintainException e) {
@@ -102,12 +206,179 @@ public class JdbcScriptRunner implements ScriptRunner {
         }
     }
 
+    /**
+     * Executes the given statements as a single batch and clears the list.
+     *
+     * @param statementBatch The statements, not null
+     * @param dataSource     The data source, not null
+     */
+    protected void executeStatementBatch(List<String> statementBatch, DataSource dataSource) {
+        if (statementBatch.isEmpty()) {
+            return;
+        }
+        if (statementBatch.size() == 1) {
+            sqlHandler.execute(statementBatch.get(0), dataSource);
+        } else {
+            sqlHandler.executeBatch(statementBatch, dataSource);
+        }
+        statementBatch.clear();
+    }
+
+    /**
+     * Executes the statements of a parallel block concurrently, each on its own connection, and waits until all of
+     * them have finished. The statements that were executed before the block are committed first: the statements
+     * of the block are executed outside the transaction of the script and would otherwise have to wait for its locks.
+     * If statements of the block fail, an exception listing all failures is thrown once the other statements have
+     * finished.
+     *
+     * @param parallelBlock The statements of the parallel block, not null
+     * @param dataSource    The data source, not null
+     */
+    protected void executeParallelBlock(List<String> parallelBlock, final DataSource dataSource) {
+        if (parallelBlock.isEmpty()) {
+            return;
+        }
+        sqlHandler.endTransactionAndCommit(dataSource);
+        try {
+            List<Callable<Void>> statementExecutions = new ArrayList<Callable<Void>>(parallelBlock.size());
+            for (final String statement : parallelBlock) {
+                statementExecutions.add(new Callable<Void>() {
+                    public Void call() {
+                        sqlHandler.execute(statement, dataSource);
+                        return null;
+                    }
+                });
+            }
+            List<Future<Void>> statementResults = getParallelBlockExecutorService().invokeAll(statementExecutions);
+
+            List<Throwable> failures = new ArrayList<Throwable>();
+            for (Future<Void> statementResult : statementResults) {
+                try {
+                    statementResult.get();
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                }
+            }
+            if (failures.size() == 1 && failures.get(0) instanceof DbMaintainException) {
+                throw (DbMaintainException) failures.get(0);
+            }
+            if (!failures.isEmpty()) {
+                StringBuilder message = new StringBuilder();
+                message.append(failures.size()).append(" of the ").append(parallelBlock.size()).append(" statements of a parallel block failed:");
+                for (Throwable failure : failures) {
+                    message.append("\n- ").append(failure.getMessage());
+                }
+                Throwable firstFailure = failures.get(0);
+                throw new DbMaintainException(message.toString(), firstFailure instanceof DbMaintainException ? firstFailure.getCause() : firstFailure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DbMaintainException("Interrupted while executing the statements of a parallel block.", e);
+        } finally {
+            parallelBlock.clear();
+            sqlHandler.startTransaction(dataSource);
+        }
+    }
+
+    /**
+     * @return The threads that execute the statements of parallel blocks, not null
+     */
+    protected synchronized ExecutorService getParallelBlockExecutorService() {
+        if (parallelBlockExecutorService == null) {
+            parallelBlockExecutorService = Executors.newFixedThreadPool(parallelBlockParallelism, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "dbmaintain-parallel-block");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return parallelBlockExecutorService;
+    }
+
+    /**
+     * Gets the parallel block directives in the comment lines at the start of the given statement.
+     *
+     * @param statement The statement, not null
+     * @return The {@link #PARALLEL_BEGIN_DIRECTIVE} and {@link #PARALLEL_END_DIRECTIVE} directives in the order in
+     *         which they occur, empty if there are none
+     */
+    protected List<String> getParallelDirectives(String statement) {
+        List<String> lineComments = new ArrayList<String>();
+        skipLeadingComments(statement, lineComments);
+
+        List<String> directives = new ArrayList<String>();
+        for (String lineComment : lineComments) {
+            String comment = lineComment.trim().replaceAll("\\s+", " ");
+            if (PARALLEL_BEGIN_DIRECTIVE.equalsIgnoreCase(comment)) {
+                directives.add(PARALLEL_BEGIN_DIRECTIVE);
+            } else if (PARALLEL_END_DIRECTIVE.equalsIgnoreCase(comment)) {
+                directives.add(PARALLEL_END_DIRECTIVE);
+            }
+        }
+        return directives;
+    }
+
+    /**
+     * Determines whether the given statement can be added to a batch: only insert, update, delete and merge
+     * statements are batched. Leading whitespace and comments are skipped.
+     *
+     * @param statement The statement, not null
+     * @return True if the statement is a DML statement
+     */
+    protected boolean isBatchableStatement(String statement) {
+        int index = skipLeadingComments(statement, null);
+        int length = statement.length();
+        int endOfKeyword = index;
+        while (endOfKeyword < length && Character.isLetter(statement.charAt(endOfKeyword))) {
+            endOfKeyword++;
+        }
+        String keyword = statement.substring(index, endOfKeyword);
+        return "insert".equalsIgnoreCase(keyword) || "update".equalsIgnoreCase(keyword) || "delete".equalsIgnoreCase(keyword)
+                || "merge".equalsIgnoreCase(keyword);
+    }
+
+    /**
+     * Skips the whitespace and comments at the start of the given statement.
+     *
+     * @param statement    The statement, not null
+     * @param lineComments The list to which the text of the skipped line comments (without the leading --) is added,
+     *                     null if not needed
+     * @return The index of the first character after the leading whitespace and comments
+     */
+    protected int skipLeadingComments(String statement, List<String> lineComments) {
+        int index = 0;
+        int length = statement.length();
+        while (index < length) {
+            char character = statement.charAt(index);
+            if (Character.isWhitespace(character)) {
+                index++;
+            } else if (statement.startsWith("--", index)) {
+                int endOfLine = statement.indexOf('\n', index);
+                int endOfComment = endOfLine == -1 ? length : endOfLine;
+                if (lineComments != null) {
+                    lineComments.add(statement.substring(index + 2, endOfComment));
+                }
+                index = endOfLine == -1 ? length : endOfLine + 1;
+            } else if (statement.startsWith("/*", index)) {
+                int endOfComment = statement.indexOf("*/", index + 2);
+                index = endOfComment == -1 ? length : endOfComment + 2;
+            } else {
+                break;
+            }
+        }
+        return index;
+    }
+
     public void initialize() {
         // nothing to initialize
     }
 
-    public void close() {
-        // nothing to close
+    public synchronized void close() {
+        if (parallelBlockExecutorService != null) {
+            parallelBlockExecutorService.shutdown();
+            parallelBlockExecutorService = null;
+        }
     }
 
     /**
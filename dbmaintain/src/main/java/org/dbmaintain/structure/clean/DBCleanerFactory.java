@@ -40,9 +40,13 @@ public class DBCleanerFactory extends FactoryWithDatabase<DBCleaner> {
 
     protected Set<DbItemIdentifier> getItemsToPreserve() {
         DbItemIdentifier executedScriptsTable = factoryWithDatabaseContext.getExecutedScriptsTable();
+        DbItemIdentifier changeCounterTable = factoryWithDatabaseContext.getExecutedScriptsChangeCounterTable();
 
         Set<DbItemIdentifier> itemsToPreserve = new HashSet<DbItemIdentifier>();
         itemsToPreserve.add(executedScriptsTable);
+        if (changeCounterTable != null) {
+            itemsToPreserve.add(changeCounterTable);
+        }
 
         itemsToPreserve.addAll(factoryWithDatabaseContext.getSchemasToPreserve(PROPERTY_PRESERVE_SCHEMAS));
         itemsToPreserve.addAll(factoryWithDatabaseContext.getSchemasToPreserve(PROPERTY_PRESERVE_DATA_SCHEMAS));
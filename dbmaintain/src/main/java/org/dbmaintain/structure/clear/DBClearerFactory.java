@@ -49,10 +49,14 @@ public class DBClearerFactory extends FactoryWithDatabase<DBClearer> {
 
     protected Set<DbItemIdentifier> getItemsToPreserve() {
         DbItemIdentifier executedScriptsTable = factoryWithDatabaseContext.getExecutedScriptsTable();
+        DbItemIdentifier changeCounterTable = factoryWithDatabaseContext.getExecutedScriptsChangeCounterTable();
         Set<DbItemIdentifier> schemasToPreserve = factoryWithDatabaseContext.getSchemasToPreserve(PROPERTY_PRESERVE_SCHEMAS);
 
         Set<DbItemIdentifier> itemsToPreserve = new HashSet<DbItemIdentifier>();
         itemsToPreserve.add(executedScriptsTable);
+        if (changeCounterTable != null) {
+            itemsToPreserve.add(changeCounterTable);
+        }
         itemsToPreserve.addAll(schemasToPreserve);
         factoryWithDatabaseContext.addSpecialHandlingItems(TABLE, PROPERTY_PRESERVE_TABLES, itemsToPreserve);
         factoryWithDatabaseContext.addSpecialHandlingItems(DATABASE_LINK, PROPERTY_PRESERVE_DATABASE_LINKS, itemsToPreserve);
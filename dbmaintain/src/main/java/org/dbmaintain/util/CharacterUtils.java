@@ -21,9 +21,13 @@ package org.dbmaintain.util;
  */
 public class CharacterUtils {
 
-    private static final Character CARRIAGE_RETURN = '\r', NEW_LINE = '\n';
+    private static final char CARRIAGE_RETURN = '\r', NEW_LINE = '\n';
 
-    public static boolean isNewLineCharacter(Character currentChar) {
-        return CARRIAGE_RETURN.equals(currentChar) || NEW_LINE.equals(currentChar);
+    /**
+     * @param currentChar The char, -1 if none
+     * @return True if the given char is a carriage return or a new line
+     */
+    public static boolean isNewLineCharacter(int currentChar) {
+        return currentChar == CARRIAGE_RETURN || currentChar == NEW_LINE;
     }
 }
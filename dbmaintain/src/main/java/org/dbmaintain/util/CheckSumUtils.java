@@ -0,0 +1,118 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.util;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Utilities for calculating and interpreting script check sums.
+ * <p/>
+ * A check sum is stored as the hexadecimal representation of the digest, prefixed with the name of the algorithm
+ * that was used, e.g. <code>SHA-256:a1b2...</code>. Check sums that were calculated with {@link #DEFAULT_CHECK_SUM_ALGORITHM}
+ * are stored without prefix, so that they remain equal to the check sums that were registered by previous versions.
+ */
+public class CheckSumUtils {
+
+    /* The algorithm that was always used before the algorithm became configurable */
+    public static final String DEFAULT_CHECK_SUM_ALGORITHM = "MD5";
+
+    /* The name of the built-in fast, non-cryptographic 128 bit hash */
+    public static final String MURMUR3_128_ALGORITHM = "MURMUR3-128";
+
+    /* The char that separates the algorithm prefix from the actual check sum */
+    public static final char ALGORITHM_SEPARATOR = ':';
+
+
+    /**
+     * @param algorithm The name of the algorithm, e.g. MD5, SHA-256 or {@link #MURMUR3_128_ALGORITHM}, not null
+     * @return The name of the algorithm in upper case, so that it can be compared with the prefix of a check sum, not null
+     * @throws DbMaintainException if the algorithm is not supported
+     */
+    public static String getValidCheckSumAlgorithm(String algorithm) {
+        String normalizedAlgorithm = algorithm.trim().toUpperCase();
+        createMessageDigest(normalizedAlgorithm);
+        return normalizedAlgorithm;
+    }
+
+
+    /**
+     * @param algorithm The name of the algorithm, not null
+     * @return A new digest for the given algorithm, not null
+     * @throws DbMaintainException if the algorithm is not supported
+     */
+    public static MessageDigest createMessageDigest(String algorithm) {
+        if (MURMUR3_128_ALGORITHM.equalsIgnoreCase(algorithm)) {
+            return new Murmur3MessageDigest();
+        }
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new DbMaintainException("Unsupported check sum algorithm " + algorithm + ". Use " + MURMUR3_128_ALGORITHM + " or an algorithm that is supported by java.security.MessageDigest, e.g. MD5 or SHA-256.", e);
+        }
+    }
+
+
+    /**
+     * @param algorithm The algorithm that was used to calculate the digest, not null
+     * @param digest    The digest, not null
+     * @return The check sum as it is stored, i.e. the hex representation of the digest with the algorithm prefix, not null
+     */
+    public static String toCheckSum(String algorithm, byte[] digest) {
+        String hexPresentation = getHexPresentation(digest);
+        if (DEFAULT_CHECK_SUM_ALGORITHM.equalsIgnoreCase(algorithm)) {
+            return hexPresentation;
+        }
+        return algorithm.toUpperCase() + ALGORITHM_SEPARATOR + hexPresentation;
+    }
+
+
+    /**
+     * @param algorithm The name of the algorithm, not null
+     * @return The nr of chars of a check sum that is calculated with the given algorithm, including the algorithm prefix
+     * @throws DbMaintainException if the algorithm is not supported
+     */
+    public static int getCheckSumLength(String algorithm) {
+        return toCheckSum(algorithm, new byte[createMessageDigest(algorithm).getDigestLength()]).length();
+    }
+
+
+    /**
+     * @param checkSum The check sum, not null
+     * @return The algorithm that was used to calculate the given check sum, {@link #DEFAULT_CHECK_SUM_ALGORITHM} if
+     *         the check sum has no prefix, not null
+     */
+    public static String getCheckSumAlgorithm(String checkSum) {
+        int separatorIndex = checkSum.indexOf(ALGORITHM_SEPARATOR);
+        if (separatorIndex == -1) {
+            return DEFAULT_CHECK_SUM_ALGORITHM;
+        }
+        return checkSum.substring(0, separatorIndex);
+    }
+
+
+    /**
+     * @param byteArray The bytes, not null
+     * @return The bytes as a lower case hex string, 2 chars per byte, not null
+     */
+    public static String getHexPresentation(byte[] byteArray) {
+        StringBuilder result = new StringBuilder(byteArray.length * 2);
+        for (byte b : byteArray) {
+            result.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.util;
+
+import java.security.MessageDigest;
+
+/**
+ * Message digest for the 128 bit x64 variant of MurmurHash3 (seed 0). This is a non-cryptographic hash that is
+ * several times faster than MD5 and is well suited for detecting changes in script content.
+ * <p/>
+ * The digest consists of the two 64 bit hash values h1 and h2, each in little-endian byte order, as in the reference
+ * implementation.
+ */
+public class Murmur3MessageDigest extends MessageDigest {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final int BLOCK_SIZE = 16;
+
+    private long h1;
+    private long h2;
+    /* The total nr of bytes that were processed */
+    private long length;
+    /* The bytes that do not yet form a complete block */
+    private byte[] tail = new byte[BLOCK_SIZE];
+    private int tailLength;
+
+
+    public Murmur3MessageDigest() {
+        super(CheckSumUtils.MURMUR3_128_ALGORITHM);
+    }
+
+
+    @Override
+    protected int engineGetDigestLength() {
+        return BLOCK_SIZE;
+    }
+
+    @Override
+    protected void engineUpdate(byte input) {
+        tail[tailLength++] = input;
+        length++;
+        if (tailLength == BLOCK_SIZE) {
+            processBlock(tail, 0);
+            tailLength = 0;
+        }
+    }
+
+    @Override
+    protected void engineUpdate(byte[] input, int offset, int len) {
+        int end = offset + len;
+        int position = offset;
+        length += len;
+
+        // complete the pending block first
+        if (tailLength > 0) {
+            int nrOfBytes = Math.min(BLOCK_SIZE - tailLength, len);
+            System.arraycopy(input, position, tail, tailLength, nrOfBytes);
+            tailLength += nrOfBytes;
+            position += nrOfBytes;
+            if (tailLength < BLOCK_SIZE) {
+                return;
+            }
+            processBlock(tail, 0);
+            tailLength = 0;
+        }
+        while (end - position >= BLOCK_SIZE) {
+            processBlock(input, position);
+            position += BLOCK_SIZE;
+        }
+        tailLength = end - position;
+        System.arraycopy(input, position, tail, 0, tailLength);
+    }
+
+    @Override
+    protected byte[] engineDigest() {
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = tailLength - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (tail[i] & 0xffL);
+        }
+        for (int i = Math.min(tailLength, 8) - 1; i >= 0; i--) {
+            k1 = (k1 << 8) | (tail[i] & 0xffL);
+        }
+        if (tailLength > 8) {
+            h2 ^= mixK2(k2);
+        }
+        if (tailLength > 0) {
+            h1 ^= mixK1(k1);
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+
+        byte[] digest = new byte[BLOCK_SIZE];
+        for (int i = 0; i < 8; i++) {
+            digest[i] = (byte) (h1 >>> (8 * i));
+            digest[8 + i] = (byte) (h2 >>> (8 * i));
+        }
+        engineReset();
+        return digest;
+    }
+
+    @Override
+    protected void engineReset() {
+        h1 = 0;
+        h2 = 0;
+        length = 0;
+        tailLength = 0;
+    }
+
+
+    private void processBlock(byte[] block, int offset) {
+        long k1 = getLittleEndianLong(block, offset);
+        long k2 = getLittleEndianLong(block, offset + 8);
+
+        h1 ^= mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long getLittleEndianLong(byte[] bytes, int offset) {
+        long result = 0;
+        for (int i = offset + 7; i >= offset; i--) {
+            result = (result << 8) | (bytes[i] & 0xffL);
+        }
+        return result;
+    }
+}
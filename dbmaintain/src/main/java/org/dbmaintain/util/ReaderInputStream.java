@@ -20,12 +20,16 @@ import java.io.InputStream;
 import java.io.Reader;
 
 /**
- * Wrapper that makes an Reader available as an InputStream
+ * Wrapper that makes an Reader available as an InputStream. Every char of the reader is returned as a single
+ * byte: only the low-order byte of the char is kept.
  */
 public class ReaderInputStream extends InputStream {
 
     private Reader reader;
 
+    /* Buffer used when reading blocks of chars, lazily created */
+    private char[] charBuffer;
+
     public ReaderInputStream(Reader reader) {
         this.reader = reader;
     }
@@ -34,4 +38,24 @@ public class ReaderInputStream extends InputStream {
         return reader.read();
     }
 
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (charBuffer == null || charBuffer.length < length) {
+            charBuffer = new char[length];
+        }
+        int nrOfChars = reader.read(charBuffer, 0, length);
+        for (int i = 0; i < nrOfChars; i++) {
+            bytes[offset + i] = (byte) charBuffer[i];
+        }
+        return nrOfChars;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain;
+
+import org.dbmaintain.database.Database;
+import org.dbmaintain.script.Script;
+import org.dbmaintain.script.ScriptContentHandle;
+import org.dbmaintain.script.executedscriptinfo.impl.DefaultExecutedScriptInfoSource;
+import org.dbmaintain.script.runner.ScriptRunner;
+import org.dbmaintain.util.DbMaintainException;
+import org.dbmaintain.util.TestUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+
+import static java.io.File.createTempFile;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.dbmaintain.util.SQLTestUtils.executeUpdateQuietly;
+import static org.dbmaintain.util.SQLTestUtils.getItemAsString;
+import static org.dbmaintain.util.TestUtils.createScriptFactory;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the execution of scripts when the check sum is calculated while the script is executed.
+ */
+public class DefaultDbMaintainerCalculateCheckSumWhileExecutingTest {
+
+    /* Tested object */
+    private DefaultDbMaintainer defaultDbMaintainer;
+
+    private DataSource dataSource;
+    private DefaultExecutedScriptInfoSource executedScriptInfoSource;
+    private ReadingScriptRunner scriptRunner = new ReadingScriptRunner();
+
+    private File scriptFile;
+    private Script script;
+    private CountingFileScriptContentHandle scriptContentHandle;
+
+
+    @Before
+    public void initialize() throws IOException {
+        Database defaultDatabase = TestUtils.getDatabases().getDefaultDatabase();
+        dataSource = defaultDatabase.getDataSource();
+        executeUpdateQuietly("drop table dbmaintain_scripts", dataSource);
+        executedScriptInfoSource = TestUtils.getDefaultExecutedScriptInfoSource(defaultDatabase, true);
+
+        defaultDbMaintainer = new DefaultDbMaintainer(scriptRunner, null, executedScriptInfoSource, false, false, false, false, false, false, null, null, null, null, null, null, 0, null, 1, true, null, 1, 1);
+
+        scriptFile = createTempFile("01_script", ".sql");
+        Writer writer = new FileWriter(scriptFile);
+        try {
+            writer.write("create table test (col1 varchar(10));\r\n");
+        } finally {
+            writer.close();
+        }
+        scriptContentHandle = new CountingFileScriptContentHandle(scriptFile);
+        script = createScriptFactory().createScriptWithContent("01_script.sql", 0L, scriptContentHandle);
+    }
+
+    @After
+    public void cleanUp() {
+        executeUpdateQuietly("drop table dbmaintain_scripts", dataSource);
+        scriptFile.delete();
+    }
+
+
+    @Test
+    public void scriptContentIsOnlyReadOnce() {
+        defaultDbMaintainer.executeScript(script);
+
+        assertEquals(1, scriptContentHandle.nrOfTimesOpened);
+        assertNull(scriptRunner.checkSumRegisteredDuringExecution);
+        assertEquals(new ScriptContentHandle.FileScriptContentHandle(scriptFile, "ISO-8859-1", false).getCheckSum(), getRegisteredCheckSum());
+        assertEquals("1", getItemAsString("select succeeded from dbmaintain_scripts", dataSource));
+    }
+
+    @Test
+    public void checkSumRegisteredWhenScriptFails() {
+        scriptRunner.fail = true;
+        try {
+            defaultDbMaintainer.executeScript(script);
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            // expected
+        }
+        assertEquals(script.getCheckSum(), getRegisteredCheckSum());
+        assertEquals("0", getItemAsString("select succeeded from dbmaintain_scripts", dataSource));
+    }
+
+    @Test
+    public void checkSumAlreadyCalculated() {
+        String checkSum = script.getCheckSum();
+        defaultDbMaintainer.executeScript(script);
+
+        assertEquals(checkSum, scriptRunner.checkSumRegisteredDuringExecution);
+        assertEquals(checkSum, getRegisteredCheckSum());
+    }
+
+
+    private String getRegisteredCheckSum() {
+        return getItemAsString("select checksum from dbmaintain_scripts", dataSource);
+    }
+
+
+    /**
+     * Runner that reads the content of the script, as a real script runner would do.
+     */
+    private class ReadingScriptRunner implements ScriptRunner {
+
+        private boolean fail;
+        private String checkSumRegisteredDuringExecution;
+
+        public void execute(Script script) {
+            checkSumRegisteredDuringExecution = getRegisteredCheckSum();
+            Reader reader = script.getScriptContentHandle().openScriptContentReader();
+            try {
+                IOUtils.toString(reader);
+            } catch (IOException e) {
+                throw new DbMaintainException(e);
+            } finally {
+                closeQuietly(reader);
+            }
+            if (fail) {
+                throw new DbMaintainException("Script failed");
+            }
+        }
+
+        public void initialize() {
+        }
+
+        public void close() {
+        }
+    }
+
+
+    private static class CountingFileScriptContentHandle extends ScriptContentHandle.FileScriptContentHandle {
+
+        private int nrOfTimesOpened;
+
+        public CountingFileScriptContentHandle(File file) {
+            super(file, "ISO-8859-1", false);
+        }
+
+        @Override
+        protected InputStream getScriptInputStream() {
+            nrOfTimesOpened++;
+            return super.getScriptInputStream();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain;
+
+import org.dbmaintain.database.impl.DefaultSQLHandler;
+import org.dbmaintain.script.ExecutedScript;
+import org.dbmaintain.script.Script;
+import org.dbmaintain.script.analyzer.ScriptUpdate;
+import org.dbmaintain.script.analyzer.ScriptUpdatesFormatter;
+import org.dbmaintain.script.runner.ScriptRunner;
+import org.dbmaintain.util.DbMaintainException;
+import org.dbmaintain.util.TestUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.dbmaintain.script.analyzer.ScriptUpdateType.HIGHER_INDEX_SCRIPT_ADDED;
+import static org.dbmaintain.util.TestUtils.createScript;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the execution of the scripts in parallel lanes per target database.
+ */
+public class DefaultDbMaintainerDatabaseLanesTest {
+
+    /* Tested object */
+    private DefaultDbMaintainer defaultDbMaintainer;
+
+    private LaneScriptRunner scriptRunner = new LaneScriptRunner();
+
+
+    @Before
+    public void initialize() {
+        defaultDbMaintainer = new DefaultDbMaintainer(scriptRunner, null, TestUtils.getExecutedScriptInfoSource(new TreeSet<ExecutedScript>()), false, false, false, false, false, false,
+                null, null, null, null, new ScriptUpdatesFormatter(), new DefaultSQLHandler(), 0, null, 1, false, TestUtils.getDatabases(), 4, 1);
+    }
+
+
+    @Test
+    public void scriptsSplitInLanesPerTargetDatabase() {
+        SortedSet<ScriptUpdate> scriptUpdates = scriptUpdates("01_a.sql", "02_@db1_b.sql", "03_@mydatabase_c.sql", "04_@db1_d.sql");
+
+        Map<String, List<ScriptUpdate>> databaseLanes = defaultDbMaintainer.getDatabaseLanes(scriptUpdates);
+
+        assertEquals(asList("mydatabase", "db1"), new ArrayList<String>(databaseLanes.keySet()));
+        assertEquals(asList("01_a.sql", "03_@mydatabase_c.sql"), getFileNames(databaseLanes.get("mydatabase")));
+        assertEquals(asList("02_@db1_b.sql", "04_@db1_d.sql"), getFileNames(databaseLanes.get("db1")));
+    }
+
+    @Test
+    public void lanesExecutedConcurrently() {
+        // the first script only finishes once the script of the other lane has started
+        scriptRunner.waitForScript = "02_@db2_b.sql";
+
+        defaultDbMaintainer.executeScriptUpdates(scriptUpdates("01_@db1_a.sql", "02_@db2_b.sql", "03_@db1_c.sql"));
+
+        assertEquals(asList("01_@db1_a.sql", "03_@db1_c.sql"), scriptRunner.getExecutedScripts("db1"));
+        assertEquals(asList("02_@db2_b.sql"), scriptRunner.getExecutedScripts("db2"));
+    }
+
+    @Test
+    public void laneStopsWhenScriptFails() {
+        scriptRunner.failingScript = "01_@db1_a.sql";
+        try {
+            defaultDbMaintainer.executeScriptUpdates(scriptUpdates("01_@db1_a.sql", "02_@db2_b.sql", "03_@db1_c.sql"));
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("01_@db1_a.sql"));
+        }
+        assertEquals(asList("01_@db1_a.sql"), scriptRunner.getExecutedScripts("db1"));
+    }
+
+    @Test
+    public void errorOfFirstFailingScriptThrown() {
+        // the script of the first lane only fails once the script of the second lane has failed
+        scriptRunner.waitForScript = "02_@db2_b.sql";
+        scriptRunner.waitForFailure = true;
+        scriptRunner.failingScript = "02_@db2_b.sql";
+        scriptRunner.otherFailingScript = "01_@db1_a.sql";
+        try {
+            defaultDbMaintainer.executeScriptUpdates(scriptUpdates("01_@db1_a.sql", "02_@db2_b.sql", "03_@db1_c.sql"));
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("02_@db2_b.sql"));
+        }
+    }
+
+    @Test
+    public void singleLaneExecutedOnCallingThread() {
+        defaultDbMaintainer.executeScriptUpdates(scriptUpdates("01_a.sql", "02_b.sql"));
+
+        assertEquals(asList("01_a.sql", "02_b.sql"), scriptRunner.getExecutedScripts(null));
+        assertEquals(Thread.currentThread(), scriptRunner.lastThread);
+    }
+
+
+    private SortedSet<ScriptUpdate> scriptUpdates(String... fileNames) {
+        SortedSet<ScriptUpdate> scriptUpdates = new TreeSet<ScriptUpdate>();
+        for (String fileName : fileNames) {
+            scriptUpdates.add(new ScriptUpdate(HIGHER_INDEX_SCRIPT_ADDED, createScript(fileName)));
+        }
+        return scriptUpdates;
+    }
+
+    private List<String> getFileNames(List<ScriptUpdate> scriptUpdates) {
+        List<String> fileNames = new ArrayList<String>();
+        for (ScriptUpdate scriptUpdate : scriptUpdates) {
+            fileNames.add(scriptUpdate.getScript().getFileName());
+        }
+        return fileNames;
+    }
+
+
+    /**
+     * Runner that records the executed scripts and can wait for the start of a script in another lane.
+     */
+    private static class LaneScriptRunner implements ScriptRunner {
+
+        private volatile String waitForScript;
+        private volatile String failingScript;
+        private volatile String otherFailingScript;
+        private volatile boolean waitForFailure;
+        private volatile Thread waitForScriptThread;
+        private volatile Thread lastThread;
+        private CountDownLatch scriptStarted = new CountDownLatch(1);
+        private List<Script> executedScripts = Collections.synchronizedList(new ArrayList<Script>());
+
+        public void execute(Script script) {
+            lastThread = Thread.currentThread();
+            executedScripts.add(script);
+            if (script.getFileName().equals(waitForScript)) {
+                waitForScriptThread = Thread.currentThread();
+                scriptStarted.countDown();
+            } else if (waitForScript != null && scriptStarted.getCount() > 0) {
+                awaitScriptStarted();
+                if (waitForFailure) {
+                    awaitLaneFinished(waitForScriptThread);
+                }
+            }
+            if (script.getFileName().equals(failingScript) || script.getFileName().equals(otherFailingScript)) {
+                throw new DbMaintainException("Script failed");
+            }
+        }
+
+        /**
+         * Waits until the given lane thread has finished its lane and waits for a new task.
+         */
+        private void awaitLaneFinished(Thread laneThread) {
+            try {
+                for (int i = 0; i < 1000 && laneThread.getState() != Thread.State.WAITING; i++) {
+                    Thread.sleep(10);
+                }
+            } catch (InterruptedException e) {
+                throw new DbMaintainException(e);
+            }
+        }
+
+        private void awaitScriptStarted() {
+            try {
+                if (!scriptStarted.await(10, TimeUnit.SECONDS)) {
+                    throw new DbMaintainException("Script " + waitForScript + " was not started concurrently");
+                }
+            } catch (InterruptedException e) {
+                throw new DbMaintainException(e);
+            }
+        }
+
+        private List<String> getExecutedScripts(String targetDatabaseName) {
+            List<String> fileNames = new ArrayList<String>();
+            synchronized (executedScripts) {
+                for (Script script : executedScripts) {
+                    String scriptTargetDatabaseName = script.getTargetDatabaseName();
+                    if (targetDatabaseName == null ? scriptTargetDatabaseName == null : targetDatabaseName.equals(scriptTargetDatabaseName)) {
+                        fileNames.add(script.getFileName());
+                    }
+                }
+            }
+            return fileNames;
+        }
+
+        public void initialize() {
+        }
+
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain;
+
+import org.dbmaintain.config.DbMaintainConfigurationLoader;
+import org.dbmaintain.util.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.util.Properties;
+
+import static java.io.File.createTempFile;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.dbmaintain.config.DbMaintainProperties.*;
+import static org.dbmaintain.util.SQLTestUtils.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests a from scratch update of a database of which the executed scripts table has a change counter table.
+ */
+public class DefaultDbMaintainerFromScratchTest {
+
+    private DataSource dataSource;
+    private File scriptRootLocation;
+    private File scriptFile;
+
+
+    @Before
+    public void initialize() throws Exception {
+        dataSource = TestUtils.getDatabases().getDefaultDatabase().getDataSource();
+        dropTables();
+
+        scriptRootLocation = createTempFile("scripts", "");
+        scriptRootLocation.delete();
+        scriptRootLocation.mkdirs();
+        scriptFile = new File(scriptRootLocation, "01_script.sql");
+        writeStringToFile(scriptFile, "create table test_table (col1 varchar(10));");
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        dropTables();
+        deleteDirectory(scriptRootLocation);
+    }
+
+
+    @Test
+    public void changeCounterTablePreservedWhenUpdatingFromScratch() throws Exception {
+        createMainFactory().createDbMaintainer().updateDatabase(false);
+        long changeCounter = getItemAsLong("select change_counter from dbmaintain_scripts_changes", dataSource);
+
+        writeStringToFile(scriptFile, "create table test_table (col1 varchar(20));");
+        scriptFile.setLastModified(System.currentTimeMillis() + 60000);
+        createMainFactory().createDbMaintainer().updateDatabase(false);
+
+        assertEquals(1, getItemAsLong("select count(*) from dbmaintain_scripts", dataSource));
+        assertEquals(1, getItemAsLong("select count(*) from dbmaintain_scripts_changes", dataSource));
+        assertTrue(getItemAsLong("select change_counter from dbmaintain_scripts_changes", dataSource) > changeCounter);
+    }
+
+    @Test
+    public void fingerprintRegisteredAfterUpdatingFromScratch() throws Exception {
+        createMainFactory().createDbMaintainer().updateDatabase(false);
+
+        writeStringToFile(scriptFile, "create table test_table (col1 varchar(20));");
+        scriptFile.setLastModified(System.currentTimeMillis() + 60000);
+        createMainFactory().createDbMaintainer().updateDatabase(false);
+
+        assertNotNull(getItemAsString("select scripts_fingerprint from dbmaintain_scripts_changes", dataSource));
+    }
+
+
+    private MainFactory createMainFactory() {
+        Properties configuration = new DbMaintainConfigurationLoader().loadDefaultConfiguration();
+        configuration.setProperty(PROPERTY_DRIVERCLASSNAME, "org.hsqldb.jdbcDriver");
+        configuration.setProperty(PROPERTY_URL, "jdbc:hsqldb:mem:unitils");
+        configuration.setProperty(PROPERTY_USERNAME, "sa");
+        configuration.setProperty(PROPERTY_DIALECT, "hsqldb");
+        configuration.setProperty(PROPERTY_SCHEMANAMES, "PUBLIC");
+        configuration.setProperty(PROPERTY_SCRIPT_LOCATIONS, scriptRootLocation.getPath());
+        configuration.setProperty(PROPERTY_AUTO_CREATE_DBMAINTAIN_SCRIPTS_TABLE, "true");
+        configuration.setProperty(PROPERTY_FROM_SCRATCH_ENABLED, "true");
+        configuration.setProperty(PROPERTY_EXECUTED_SCRIPTS_CHANGE_COUNTER_TABLE_NAME, "dbmaintain_scripts_changes");
+        return new MainFactory(configuration);
+    }
+
+    private void dropTables() {
+        executeUpdateQuietly("drop table test_table", dataSource);
+        executeUpdateQuietly("drop table dbmaintain_scripts", dataSource);
+        executeUpdateQuietly("drop table dbmaintain_scripts_changes", dataSource);
+    }
+}
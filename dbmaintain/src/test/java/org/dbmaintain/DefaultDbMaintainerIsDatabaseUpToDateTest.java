@@ -0,0 +1,160 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain;
+
+import org.dbmaintain.database.Database;
+import org.dbmaintain.database.impl.DefaultSQLHandler;
+import org.dbmaintain.script.Script;
+import org.dbmaintain.script.analyzer.ScriptUpdatesFormatter;
+import org.dbmaintain.script.executedscriptinfo.impl.DefaultExecutedScriptInfoSource;
+import org.dbmaintain.script.repository.ScriptRepository;
+import org.dbmaintain.script.runner.ScriptRunner;
+import org.dbmaintain.util.TestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.dbmaintain.util.SQLTestUtils.executeUpdateQuietly;
+import static org.dbmaintain.util.SQLTestUtils.getItemAsString;
+import static org.dbmaintain.util.TestUtils.createScriptWithContent;
+import static org.dbmaintain.util.TestUtils.getScriptRepository;
+import static org.junit.Assert.*;
+
+/**
+ * Tests checking whether the database is up to date using the fingerprint of the scripts.
+ */
+public class DefaultDbMaintainerIsDatabaseUpToDateTest {
+
+    private DataSource dataSource;
+    private Database defaultDatabase;
+
+    private SortedSet<Script> scripts = new TreeSet<Script>();
+
+
+    @Before
+    public void initialize() {
+        defaultDatabase = TestUtils.getDatabases().getDefaultDatabase();
+        dataSource = defaultDatabase.getDataSource();
+        dropTables();
+
+        scripts.add(createScriptWithContent("01_script1.sql", "script 1"));
+        scripts.add(createScriptWithContent("02_script2.sql", "script 2"));
+    }
+
+    @After
+    public void cleanUp() {
+        dropTables();
+    }
+
+
+    @Test
+    public void upToDateAfterUpdate() {
+        assertFalse(createDbMaintainer().isDatabaseUpToDate());
+
+        ScriptRepository scriptRepository = getScriptRepository(scripts);
+        createDbMaintainer(scriptRepository).updateDatabase(false);
+
+        assertEquals(scriptRepository.getFingerprint(), getItemAsString("select scripts_fingerprint from dbmaintain_scripts_changes", dataSource));
+        assertTrue(createDbMaintainer().isDatabaseUpToDate());
+    }
+
+    @Test
+    public void notUpToDateWhenScriptAdded() {
+        createDbMaintainer().updateDatabase(false);
+
+        scripts.add(createScriptWithContent("03_script3.sql", "script 3"));
+        assertFalse(createDbMaintainer().isDatabaseUpToDate());
+    }
+
+    @Test
+    public void fingerprintClearedWhenExecutedScriptsChange() {
+        createDbMaintainer().updateDatabase(false);
+
+        DefaultExecutedScriptInfoSource executedScriptInfoSource = createExecutedScriptInfoSource();
+        executedScriptInfoSource.deleteExecutedScript(executedScriptInfoSource.getExecutedScripts().last());
+
+        assertNull(executedScriptInfoSource.getScriptsFingerprint());
+        assertFalse(createDbMaintainer().isDatabaseUpToDate());
+    }
+
+
+    @Test
+    public void fingerprintRegisteredWhenMarkingDatabaseAsUpToDate() {
+        ScriptRepository scriptRepository = getScriptRepository(scripts);
+        createDbMaintainer(scriptRepository).markDatabaseAsUpToDate();
+
+        assertEquals(scriptRepository.getFingerprint(), getItemAsString("select scripts_fingerprint from dbmaintain_scripts_changes", dataSource));
+    }
+
+    @Test
+    public void checkSumsNotCalculatedWhenNotKnownWithoutReadingContent() {
+        createDbMaintainer().updateDatabase(false);
+
+        SortedSet<Script> unreadScripts = new TreeSet<Script>();
+        unreadScripts.add(createScriptWithContent("01_script1.sql", "script 1"));
+        unreadScripts.add(createScriptWithContent("02_script2.sql", "script 2"));
+        assertTrue(createDbMaintainer(getScriptRepository(unreadScripts), true).isDatabaseUpToDate());
+        for (Script script : unreadScripts) {
+            assertFalse(script.isCheckSumCalculated());
+        }
+    }
+
+    @Test
+    public void changeCounterTableNotCreatedWhenRetrievingFingerprint() {
+        assertNull(createExecutedScriptInfoSource().getScriptsFingerprint());
+        assertFalse(defaultDatabase.getTableNames().contains("DBMAINTAIN_SCRIPTS_CHANGES"));
+    }
+
+
+    private DefaultDbMaintainer createDbMaintainer() {
+        return createDbMaintainer(getScriptRepository(scripts));
+    }
+
+    private DefaultDbMaintainer createDbMaintainer(ScriptRepository scriptRepository) {
+        return createDbMaintainer(scriptRepository, false);
+    }
+
+    private DefaultDbMaintainer createDbMaintainer(ScriptRepository scriptRepository, boolean useScriptFileLastModificationDates) {
+        return new DefaultDbMaintainer(new NoOpScriptRunner(), scriptRepository, createExecutedScriptInfoSource(), false, useScriptFileLastModificationDates, false, false, false, false,
+                null, null, null, null, new ScriptUpdatesFormatter(), new DefaultSQLHandler(), 0, null, 1, false, null, 1, 1);
+    }
+
+    private DefaultExecutedScriptInfoSource createExecutedScriptInfoSource() {
+        return TestUtils.getDefaultExecutedScriptInfoSource(defaultDatabase, true, null, 1, "dbmaintain_scripts_changes");
+    }
+
+    private void dropTables() {
+        executeUpdateQuietly("drop table dbmaintain_scripts", dataSource);
+        executeUpdateQuietly("drop table dbmaintain_scripts_changes", dataSource);
+    }
+
+
+    private static class NoOpScriptRunner implements ScriptRunner {
+
+        public void execute(Script script) {
+        }
+
+        public void initialize() {
+        }
+
+        public void close() {
+        }
+    }
+}
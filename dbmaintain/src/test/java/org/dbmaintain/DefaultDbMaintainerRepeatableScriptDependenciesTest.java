@@ -0,0 +1,219 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain;
+
+import org.dbmaintain.database.impl.DefaultSQLHandler;
+import org.dbmaintain.script.ExecutedScript;
+import org.dbmaintain.script.Script;
+import org.dbmaintain.script.analyzer.ScriptUpdate;
+import org.dbmaintain.script.analyzer.ScriptUpdatesFormatter;
+import org.dbmaintain.script.runner.ScriptRunner;
+import org.dbmaintain.util.DbMaintainException;
+import org.dbmaintain.util.TestUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.dbmaintain.script.analyzer.ScriptUpdateType.HIGHER_INDEX_SCRIPT_ADDED;
+import static org.dbmaintain.script.analyzer.ScriptUpdateType.REPEATABLE_SCRIPT_UPDATED;
+import static org.dbmaintain.util.TestUtils.createScriptWithContent;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the concurrent execution of repeatable scripts according to their declared dependencies.
+ */
+public class DefaultDbMaintainerRepeatableScriptDependenciesTest {
+
+    /* Tested object */
+    private DefaultDbMaintainer defaultDbMaintainer;
+
+    private RecordingScriptRunner scriptRunner = new RecordingScriptRunner();
+
+
+    @Before
+    public void initialize() {
+        defaultDbMaintainer = new DefaultDbMaintainer(scriptRunner, null, TestUtils.getExecutedScriptInfoSource(new TreeSet<ExecutedScript>()), false, false, false, false, false, false,
+                null, null, null, null, new ScriptUpdatesFormatter(), new DefaultSQLHandler(), 0, null, 1, false, null, 1, 4);
+    }
+
+
+    @Test
+    public void scriptsStartedAfterTheirDependencies() {
+        SortedSet<ScriptUpdate> scriptUpdates = new TreeSet<ScriptUpdate>();
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/a_package.sql", "-- dbmaintain:depends-on repeatable/c_view.sql repeatable/b_view.sql\nstatement;"));
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/b_view.sql", "-- dbmaintain:depends-on repeatable/d_base_view.sql\nstatement;"));
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/c_view.sql", "-- dbmaintain:depends-on repeatable/d_base_view.sql\nstatement;"));
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/d_base_view.sql", "statement;"));
+
+        defaultDbMaintainer.executeScriptUpdates(scriptUpdates);
+
+        List<String> executedScripts = scriptRunner.executedScripts;
+        assertEquals(4, executedScripts.size());
+        assertEquals("repeatable/d_base_view.sql", executedScripts.get(0));
+        assertEquals("repeatable/a_package.sql", executedScripts.get(3));
+    }
+
+    @Test
+    public void independentScriptsExecutedConcurrently() {
+        // the first script only finishes once the second script has started
+        scriptRunner.waitForScript = "repeatable/b.sql";
+        SortedSet<ScriptUpdate> scriptUpdates = new TreeSet<ScriptUpdate>();
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/a.sql", "statement;"));
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/b.sql", "statement;"));
+
+        defaultDbMaintainer.executeScriptUpdates(scriptUpdates);
+
+        assertEquals(2, scriptRunner.executedScripts.size());
+    }
+
+    @Test
+    public void cycleExecutedInOriginalOrder() {
+        SortedSet<ScriptUpdate> scriptUpdates = new TreeSet<ScriptUpdate>();
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/a.sql", "-- dbmaintain:depends-on repeatable/b.sql\nstatement;"));
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/b.sql", "-- dbmaintain:depends-on repeatable/a.sql\nstatement;"));
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/c.sql", "statement;"));
+
+        defaultDbMaintainer.executeScriptUpdates(scriptUpdates);
+
+        assertEquals(asList("repeatable/a.sql", "repeatable/b.sql", "repeatable/c.sql"), scriptRunner.executedScripts);
+        assertEquals(Thread.currentThread(), scriptRunner.lastThread);
+    }
+
+    @Test
+    public void dependentsNotExecutedWhenScriptFails() {
+        scriptRunner.failingScript = "repeatable/b_base_view.sql";
+        SortedSet<ScriptUpdate> scriptUpdates = new TreeSet<ScriptUpdate>();
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/a_view.sql", "-- dbmaintain:depends-on repeatable/b_base_view.sql\nstatement;"));
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/b_base_view.sql", "statement;"));
+        try {
+            defaultDbMaintainer.executeScriptUpdates(scriptUpdates);
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("repeatable/b_base_view.sql"));
+        }
+        assertEquals(asList("repeatable/b_base_view.sql"), scriptRunner.executedScripts);
+    }
+
+    @Test
+    public void incrementalScriptsExecutedInOrderBeforeRepeatableScripts() {
+        SortedSet<ScriptUpdate> scriptUpdates = new TreeSet<ScriptUpdate>();
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/a.sql", "statement;"));
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/b.sql", "statement;"));
+        scriptUpdates.add(new ScriptUpdate(HIGHER_INDEX_SCRIPT_ADDED, createScriptWithContent("01_incremental/01_script.sql", "statement;")));
+        scriptUpdates.add(new ScriptUpdate(HIGHER_INDEX_SCRIPT_ADDED, createScriptWithContent("01_incremental/02_script.sql", "statement;")));
+
+        defaultDbMaintainer.executeScriptUpdates(scriptUpdates);
+
+        List<String> executedScripts = scriptRunner.executedScripts;
+        assertEquals(4, executedScripts.size());
+        assertEquals(asList("01_incremental/01_script.sql", "01_incremental/02_script.sql"), executedScripts.subList(0, 2));
+        assertTrue(executedScripts.subList(2, 4).containsAll(asList("repeatable/a.sql", "repeatable/b.sql")));
+    }
+
+    @Test
+    public void connectionsOfWorkerThreadsClosedWhenUpdateEnds() throws Exception {
+        CountingSQLHandler sqlHandler = new CountingSQLHandler();
+        defaultDbMaintainer = new DefaultDbMaintainer(scriptRunner, null, TestUtils.getExecutedScriptInfoSource(new TreeSet<ExecutedScript>()), false, false, false, false, false, false,
+                null, null, null, null, new ScriptUpdatesFormatter(), sqlHandler, 0, null, 1, false, null, 1, 4);
+        SortedSet<ScriptUpdate> scriptUpdates = new TreeSet<ScriptUpdate>();
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/a.sql", "statement;"));
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/b.sql", "statement;"));
+        scriptUpdates.add(repeatableScriptUpdate("repeatable/c.sql", "statement;"));
+
+        defaultDbMaintainer.executeScriptUpdates(scriptUpdates);
+
+        assertNull(defaultDbMaintainer.workerExecutorService);
+        for (Thread thread : scriptRunner.threads) {
+            thread.join(10000);
+        }
+        assertEquals(scriptRunner.threads.size(), sqlHandler.nrOfThreadsClosed.get());
+    }
+
+
+    private ScriptUpdate repeatableScriptUpdate(String fileName, String content) {
+        return new ScriptUpdate(REPEATABLE_SCRIPT_UPDATED, createScriptWithContent(fileName, content));
+    }
+
+
+    /**
+     * Runner that records the order in which the scripts finished and can wait for the start of another script.
+     */
+    private static class RecordingScriptRunner implements ScriptRunner {
+
+        private volatile String waitForScript;
+        private volatile String failingScript;
+        private volatile Thread lastThread;
+        private Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        private CountDownLatch scriptStarted = new CountDownLatch(1);
+        private List<String> executedScripts = Collections.synchronizedList(new ArrayList<String>());
+
+        public void execute(Script script) {
+            lastThread = Thread.currentThread();
+            threads.add(lastThread);
+            if (script.getFileName().equals(waitForScript)) {
+                scriptStarted.countDown();
+            } else if (waitForScript != null) {
+                awaitScriptStarted();
+            }
+            executedScripts.add(script.getFileName());
+            if (script.getFileName().equals(failingScript)) {
+                throw new DbMaintainException("Script failed");
+            }
+        }
+
+        private void awaitScriptStarted() {
+            try {
+                if (!scriptStarted.await(10, TimeUnit.SECONDS)) {
+                    throw new DbMaintainException("Script " + waitForScript + " was not started concurrently");
+                }
+            } catch (InterruptedException e) {
+                throw new DbMaintainException(e);
+            }
+        }
+
+        public void initialize() {
+        }
+
+        public void close() {
+        }
+    }
+
+
+    /**
+     * SQL handler that counts the threads of which the connections were closed.
+     */
+    private static class CountingSQLHandler extends DefaultSQLHandler {
+
+        private AtomicInteger nrOfThreadsClosed = new AtomicInteger();
+
+        @Override
+        public void closeConnectionsOfCurrentThread() {
+            nrOfThreadsClosed.incrementAndGet();
+            super.closeConnectionsOfCurrentThread();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+
+import static java.io.File.createTempFile;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the block based check sum calculation of the script content handles with the former byte per byte
+ * calculation for scripts of 1KB, 1MB and 100MB. This is not a unit test: it is only run with the benchmark profile,
+ * using mvn test -Pbenchmark.
+ */
+public class ScriptContentHandleCheckSumBenchmark {
+
+    private static final int[] SCRIPT_SIZES = {1024, 1024 * 1024, 100 * 1024 * 1024};
+
+    private static final int NR_OF_RUNS = 3;
+
+
+    @Test
+    public void compareCheckSumCalculations() throws Exception {
+        for (int scriptSize : SCRIPT_SIZES) {
+            File scriptFile = createScriptFile(scriptSize);
+            try {
+                for (boolean ignoreCarriageReturns : new boolean[]{false, true}) {
+                    long byteByByteTime = Long.MAX_VALUE;
+                    long blockTime = Long.MAX_VALUE;
+                    String byteByByteCheckSum = null;
+                    String blockCheckSum = null;
+                    for (int run = 0; run < NR_OF_RUNS; run++) {
+                        long start = System.nanoTime();
+                        byteByByteCheckSum = getByteByByteCheckSum(scriptFile, ignoreCarriageReturns);
+                        byteByByteTime = Math.min(byteByByteTime, System.nanoTime() - start);
+
+                        start = System.nanoTime();
+                        blockCheckSum = new ScriptContentHandle.FileScriptContentHandle(scriptFile, "ISO-8859-1", ignoreCarriageReturns).getCheckSum();
+                        blockTime = Math.min(blockTime, System.nanoTime() - start);
+                    }
+                    assertEquals("Check sums differ for script of " + scriptSize + " bytes", byteByByteCheckSum, blockCheckSum);
+                    System.out.println("size: " + scriptSize + " bytes, ignore carriage returns: " + ignoreCarriageReturns +
+                            ", byte per byte: " + byteByByteTime / 1000 + " us, blocks: " + blockTime / 1000 + " us");
+                }
+            } finally {
+                scriptFile.delete();
+            }
+        }
+    }
+
+
+    private static File createScriptFile(int size) throws Exception {
+        byte[] line = "insert into person (id, name) values (1, 'script content');\r\n".getBytes("ISO-8859-1");
+        File scriptFile = createTempFile("benchmark", ".sql");
+        OutputStream outputStream = new FileOutputStream(scriptFile);
+        try {
+            for (int written = 0; written < size; written += line.length) {
+                outputStream.write(line, 0, Math.min(line.length, size - written));
+            }
+        } finally {
+            outputStream.close();
+        }
+        return scriptFile;
+    }
+
+    /**
+     * The check sum calculation as it was done before: reading the content of the script url byte per byte.
+     */
+    private static String getByteByByteCheckSum(File scriptFile, boolean ignoreCarriageReturns) throws Exception {
+        InputStream inputStream = scriptFile.toURI().toURL().openStream();
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+            int b;
+            while ((b = inputStream.read()) != -1) {
+                if (ignoreCarriageReturns && b == '\r') {
+                    continue;
+                }
+                messageDigest.update((byte) b);
+            }
+            StringBuffer result = new StringBuffer();
+            for (byte digestByte : messageDigest.digest()) {
+                result.append(Integer.toString((digestByte & 0xff) + 0x100, 16).substring(1));
+            }
+            return result.toString();
+        } finally {
+            closeQuietly(inputStream);
+        }
+    }
+}
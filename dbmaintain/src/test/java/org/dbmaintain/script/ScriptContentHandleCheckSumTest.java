@@ -0,0 +1,161 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.security.MessageDigest;
+
+import static java.io.File.createTempFile;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.dbmaintain.util.FileUtils.getUrl;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the block based check sum calculation gives the same result as a byte per byte calculation.
+ */
+public class ScriptContentHandleCheckSumTest {
+
+    /* Content that spans multiple read buffers and has carriage returns around the buffer boundaries */
+    private byte[] content;
+
+    private File scriptFile;
+
+
+    @Before
+    public void initialize() throws IOException {
+        int bufferSize = ScriptContentHandle.CHECK_SUM_BUFFER_SIZE;
+        content = new byte[3 * bufferSize + 17];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        content[0] = '\r';
+        content[bufferSize - 1] = '\r';
+        content[bufferSize] = '\r';
+        content[2 * bufferSize + 1] = '\r';
+        content[content.length - 1] = '\r';
+
+        scriptFile = createTempFile("script", ".sql");
+        OutputStream outputStream = new FileOutputStream(scriptFile);
+        try {
+            outputStream.write(content);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    @After
+    public void cleanup() {
+        scriptFile.delete();
+    }
+
+
+    @Test
+    public void fileHandle() throws Exception {
+        assertEquals(getByteByByteCheckSum(content, false), new ScriptContentHandle.FileScriptContentHandle(scriptFile, "ISO-8859-1", false).getCheckSum());
+        assertEquals(getByteByByteCheckSum(content, true), new ScriptContentHandle.FileScriptContentHandle(scriptFile, "ISO-8859-1", true).getCheckSum());
+    }
+
+    @Test
+    public void urlHandle() throws Exception {
+        assertEquals(getByteByByteCheckSum(content, false), new ScriptContentHandle.UrlScriptContentHandle(getUrl(scriptFile), "ISO-8859-1", false).getCheckSum());
+        assertEquals(getByteByByteCheckSum(content, true), new ScriptContentHandle.UrlScriptContentHandle(getUrl(scriptFile), "ISO-8859-1", true).getCheckSum());
+    }
+
+    @Test
+    public void stringHandle() throws Exception {
+        String stringContent = new String(content, "ISO-8859-1");
+        assertEquals(getByteByByteCheckSum(content, false), new ScriptContentHandle.StringScriptContentHandle(stringContent, "ISO-8859-1", false).getCheckSum());
+        assertEquals(getByteByByteCheckSum(content, true), new ScriptContentHandle.StringScriptContentHandle(stringContent, "ISO-8859-1", true).getCheckSum());
+    }
+
+    /**
+     * A char with a low-order byte equal to a carriage return is not a carriage return: it should never be skipped.
+     */
+    @Test
+    public void stringHandleWithCharThatLooksLikeCarriageReturn() throws Exception {
+        byte[] expectedBytes = new byte[]{'a', '\r', 'b'};
+        ScriptContentHandle scriptContentHandle = new ScriptContentHandle.StringScriptContentHandle("a\u010D\rb", "ISO-8859-1", true);
+
+        assertEquals(getByteByByteCheckSum(expectedBytes, false), scriptContentHandle.getCheckSum());
+    }
+
+    @Test
+    public void checkSumCanBeRetrievedMoreThanOnce() throws Exception {
+        ScriptContentHandle scriptContentHandle = new ScriptContentHandle.FileScriptContentHandle(scriptFile, "ISO-8859-1", false);
+
+        assertEquals(scriptContentHandle.getCheckSum(), scriptContentHandle.getCheckSum());
+    }
+
+
+    @Test
+    public void checkSumCalculatedWhileReadingContent() throws Exception {
+        assertCheckSumCalculatedWhileReading(new ScriptContentHandle.FileScriptContentHandle(scriptFile, "ISO-8859-1", false), false);
+        assertCheckSumCalculatedWhileReading(new ScriptContentHandle.FileScriptContentHandle(scriptFile, "ISO-8859-1", true), true);
+        assertCheckSumCalculatedWhileReading(new ScriptContentHandle.UrlScriptContentHandle(getUrl(scriptFile), "ISO-8859-1", false), false);
+        assertCheckSumCalculatedWhileReading(new ScriptContentHandle.UrlScriptContentHandle(getUrl(scriptFile), "ISO-8859-1", true), true);
+    }
+
+    @Test
+    public void checkSumNotCalculatedWhenContentIsNotReadCompletely() throws Exception {
+        ScriptContentHandle scriptContentHandle = new ScriptContentHandle.FileScriptContentHandle(scriptFile, "ISO-8859-1", false);
+        Reader reader = scriptContentHandle.openScriptContentReader();
+        try {
+            reader.read(new char[10]);
+        } finally {
+            closeQuietly(reader);
+        }
+        assertFalse(scriptContentHandle.isCheckSumCalculated());
+        assertEquals(getByteByByteCheckSum(content, false), scriptContentHandle.getCheckSum());
+    }
+
+
+    private void assertCheckSumCalculatedWhileReading(ScriptContentHandle scriptContentHandle, boolean ignoreCarriageReturns) throws Exception {
+        Reader reader = scriptContentHandle.openScriptContentReader();
+        try {
+            assertEquals(new String(content, "ISO-8859-1"), IOUtils.toString(reader));
+        } finally {
+            closeQuietly(reader);
+        }
+        assertTrue(scriptContentHandle.isCheckSumCalculated());
+        assertEquals(getByteByByteCheckSum(content, ignoreCarriageReturns), scriptContentHandle.getCheckSum());
+    }
+
+    private String getByteByByteCheckSum(byte[] bytes, boolean ignoreCarriageReturns) throws Exception {
+        MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+        for (byte b : bytes) {
+            if (ignoreCarriageReturns && b == '\r') {
+                continue;
+            }
+            messageDigest.update(b);
+        }
+        StringBuffer result = new StringBuffer();
+        for (byte b : messageDigest.digest()) {
+            result.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+        }
+        return result.toString();
+    }
+}
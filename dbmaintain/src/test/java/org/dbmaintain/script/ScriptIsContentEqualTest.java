@@ -50,6 +50,30 @@ public class ScriptIsContentEqualTest {
         assertDifferentScriptContent(script, scriptWithDifferentChecksumAndModificationDate, false);
     }
 
+    @Test
+    public void testIsScriptContentEqualTo_checkSumRegisteredWithOtherAlgorithm() {
+        Script md5Script = createScriptWithContent("fileName", "script content");
+        Script murmurScript = createScriptWithContent("fileName", "script content", "MURMUR3-128");
+        assertTrue(murmurScript.getCheckSum().startsWith("MURMUR3-128:"));
+
+        Script registeredMd5Script = createScriptWithModificationDateAndCheckSum("fileName", 1L, md5Script.getCheckSum());
+        assertEqualScriptContent(murmurScript, registeredMd5Script, false);
+        assertEqualScriptContent(registeredMd5Script, murmurScript, false);
+
+        Script registeredMurmurScript = createScriptWithModificationDateAndCheckSum("fileName", 1L, murmurScript.getCheckSum());
+        assertEqualScriptContent(md5Script, registeredMurmurScript, false);
+
+        Script changedMurmurScript = createScriptWithContent("fileName", "changed script content", "MURMUR3-128");
+        assertDifferentScriptContent(changedMurmurScript, registeredMd5Script, false);
+    }
+
+    @Test
+    public void testIsScriptContentEqualTo_bothWithoutContentAndOtherAlgorithm() {
+        Script registeredMd5Script = createScriptWithModificationDateAndCheckSum("fileName", 1L, "abc");
+        Script registeredSha256Script = createScriptWithModificationDateAndCheckSum("fileName", 2L, "SHA-256:abc");
+        assertDifferentScriptContent(registeredMd5Script, registeredSha256Script, false);
+    }
+
 
     private void assertEqualScriptContent(Script script1, Script script2, boolean useLastModificationDates) {
         assertTrue(script1.isScriptContentEqualTo(script2, useLastModificationDates));
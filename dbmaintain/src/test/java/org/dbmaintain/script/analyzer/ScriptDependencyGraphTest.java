@@ -0,0 +1,90 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script.analyzer;
+
+import org.dbmaintain.script.Script;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.dbmaintain.util.TestUtils.createScriptWithContent;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the dependency graph of scripts.
+ */
+public class ScriptDependencyGraphTest {
+
+    private Script baseView = createScriptWithContent("repeatable/base_view.sql", "create view base_view as select 1 from dual;");
+    private Script view = createScriptWithContent("repeatable/view.sql", "-- views on top of the base view\n" +
+            "-- dbmaintain:depends-on repeatable/base_view.sql\n\n" +
+            "create view view as select * from base_view;");
+    private Script packageBody = createScriptWithContent("repeatable/package.sql", "--dbmaintain:depends-on repeatable/view.sql,  repeatable/base_view.sql\n" +
+            "-- dbmaintain:depends-on repeatable/unknown.sql repeatable/package.sql\n" +
+            "create package body ...;\n" +
+            "-- dbmaintain:depends-on repeatable/other.sql\n");
+    private Script other = createScriptWithContent("repeatable/other.sql", "create view other as select 1 from dual;");
+
+
+    @Test
+    public void dependencies() {
+        ScriptDependencyGraph scriptDependencyGraph = new ScriptDependencyGraph(asList(baseView, view, packageBody, other));
+
+        assertEquals(new ArrayList<Script>(), scriptDependencyGraph.getDependencies(baseView));
+        assertEquals(asList(baseView), scriptDependencyGraph.getDependencies(view));
+        assertEquals(asList(view, baseView), scriptDependencyGraph.getDependencies(packageBody));
+        assertEquals(new ArrayList<Script>(), scriptDependencyGraph.getDependencies(other));
+    }
+
+    @Test
+    public void dependents() {
+        ScriptDependencyGraph scriptDependencyGraph = new ScriptDependencyGraph(asList(baseView, view, packageBody, other));
+
+        assertEquals(asList(view, packageBody), scriptDependencyGraph.getDependents(baseView));
+        assertEquals(asList(packageBody), scriptDependencyGraph.getDependents(view));
+        assertEquals(new ArrayList<Script>(), scriptDependencyGraph.getDependents(other));
+    }
+
+    @Test
+    public void dependencyOnScriptThatIsNotPartOfTheGraph() {
+        ScriptDependencyGraph scriptDependencyGraph = new ScriptDependencyGraph(asList(view, packageBody));
+
+        assertEquals(new ArrayList<Script>(), scriptDependencyGraph.getDependencies(view));
+        assertEquals(asList(view), scriptDependencyGraph.getDependencies(packageBody));
+    }
+
+    @Test
+    public void noCycle() {
+        ScriptDependencyGraph scriptDependencyGraph = new ScriptDependencyGraph(asList(baseView, view, packageBody, other));
+
+        assertTrue(scriptDependencyGraph.getScriptsInCycle().isEmpty());
+    }
+
+    @Test
+    public void cycle() {
+        Script script1 = createScriptWithContent("repeatable/script1.sql", "-- dbmaintain:depends-on repeatable/script2.sql\nstatement;");
+        Script script2 = createScriptWithContent("repeatable/script2.sql", "-- dbmaintain:depends-on repeatable/script1.sql\nstatement;");
+        Script script3 = createScriptWithContent("repeatable/script3.sql", "-- dbmaintain:depends-on repeatable/script2.sql\nstatement;");
+        List<Script> scripts = asList(baseView, script1, script2, script3);
+
+        ScriptDependencyGraph scriptDependencyGraph = new ScriptDependencyGraph(scripts);
+
+        assertEquals(asList(script1, script2, script3), scriptDependencyGraph.getScriptsInCycle());
+    }
+}
@@ -17,15 +17,19 @@ package org.dbmaintain.script.analyzer;
 
 import org.dbmaintain.script.ExecutedScript;
 import org.dbmaintain.script.Script;
+import org.dbmaintain.script.ScriptFactory;
 import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 import static org.dbmaintain.script.analyzer.ScriptUpdateType.*;
 import static org.dbmaintain.util.TestUtils.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -198,6 +202,76 @@ public class ScriptUpdatesAnalyzerTest {
         assertPostProcessingScriptUpdate(POSTPROCESSING_SCRIPT_RENAMED, POSTPROCESSING_3, POSTPROCESSING_3_RENAMED_WITH_INDEX_1);
     }
 
+    @Test
+    public void onlyCheckSumsOfRenameCandidatesAreCalculated() {
+        Script indexedScript = createScriptWithContent("1_indexed1.sql", "indexed script content");
+        Script newRepeatableScript = createScriptWithContent("repeatable3.sql", "repeatable script content");
+        executedScripts(createScriptWithModificationDateAndCheckSum("1_indexed1.sql", 0L, "indexed script checksum"), REPEATABLE_1);
+        scripts(indexedScript, newRepeatableScript);
+        calculateScriptUpdates();
+
+        assertRepeatableScriptDeletion(REPEATABLE_1);
+        // the script with the same name as an executed script is no rename candidate
+        assertFalse(indexedScript.isCheckSumCalculated());
+        assertTrue(newRepeatableScript.isCheckSumCalculated());
+    }
+
+    @Test
+    public void indexedScriptMovedToRepeatableScriptIsNoDeletion() {
+        Script repeatableWithContentOfIndexed1 = createRenamedScript(INDEXED_1, "repeatable_indexed1.sql");
+        executedScripts(INDEXED_1, INDEXED_2);
+        scripts(repeatableWithContentOfIndexed1, INDEXED_2);
+        calculateScriptUpdates();
+
+        assertNoIrregularScriptUpdates();
+        assertRegularScriptUpdate(REPEATABLE_SCRIPT_ADDED, repeatableWithContentOfIndexed1);
+    }
+
+    @Test
+    public void scriptOfOtherTypeWithSameContentMakesRenameAmbiguous() {
+        Script indexedWithContentOfRepeatable1 = createRenamedScript(REPEATABLE_1, "3_indexed_repeatable1.sql");
+        executedScripts(INDEXED_1, REPEATABLE_1);
+        scripts(INDEXED_1, REPEATABLE_1_RENAMED, indexedWithContentOfRepeatable1);
+        calculateScriptUpdates();
+
+        assertRepeatableScriptDeletion(REPEATABLE_1);
+        assertRegularScriptUpdate(REPEATABLE_SCRIPT_ADDED, REPEATABLE_1_RENAMED);
+        assertRegularScriptUpdate(HIGHER_INDEX_SCRIPT_ADDED, indexedWithContentOfRepeatable1);
+    }
+
+    @Test
+    public void executedScriptsScannedIndependentlyOfNrOfScripts() {
+        int nrOfScansFor10Scripts = calculateScriptUpdatesForNewScripts(10);
+        int nrOfScansFor1000Scripts = calculateScriptUpdatesForNewScripts(1000);
+        // if the executed scripts would be scanned for every new script, the analysis time would grow quadratically
+        assertEquals(nrOfScansFor10Scripts, nrOfScansFor1000Scripts);
+    }
+
+    /**
+     * Analyzes the given nr of indexed scripts, of which the first half was already executed.
+     *
+     * @param nrOfScripts The nr of scripts
+     * @return The nr of times the executed scripts were iterated during the analysis
+     */
+    private int calculateScriptUpdatesForNewScripts(int nrOfScripts) {
+        ScriptFactory scriptFactory = createScriptFactory();
+        SortedSet<Script> scripts = new TreeSet<Script>();
+        ScanCountingSet<ExecutedScript> executedScripts = new ScanCountingSet<ExecutedScript>();
+        for (int i = 1; i <= nrOfScripts; i++) {
+            Script script = scriptFactory.createScriptWithoutContent(i + "_script.sql", 0L, "checksum" + i);
+            scripts.add(script);
+            if (i <= nrOfScripts / 2) {
+                executedScripts.add(new ExecutedScript(script, new Date(), true));
+            }
+        }
+        ScriptUpdatesAnalyzer scriptUpdatesAnalyzer = new ScriptUpdatesAnalyzer(getScriptRepository(scripts), getExecutedScriptInfoSource(executedScripts), true, false);
+        ScriptUpdates result = scriptUpdatesAnalyzer.calculateScriptUpdates();
+
+        assertEquals(nrOfScripts - nrOfScripts / 2, result.getRegularlyAddedOrModifiedScripts().size());
+        assertTrue(result.getIrregularScriptUpdates().isEmpty());
+        return executedScripts.nrOfScans;
+    }
+
     private void scripts(Script... scripts) {
         this.scripts.addAll(Arrays.asList(scripts));
     }
@@ -267,4 +341,19 @@ public class ScriptUpdatesAnalyzerTest {
     private static Script createRenamedScript(Script originalScript, String newName) {
         return createScriptWithModificationDateAndCheckSum(newName, originalScript.getFileLastModifiedAt(), originalScript.getCheckSum());
     }
+
+
+    /**
+     * Sorted set that counts how many times it is iterated.
+     */
+    private static class ScanCountingSet<T> extends TreeSet<T> {
+
+        private int nrOfScans;
+
+        @Override
+        public Iterator<T> iterator() {
+            nrOfScans++;
+            return super.iterator();
+        }
+    }
 }
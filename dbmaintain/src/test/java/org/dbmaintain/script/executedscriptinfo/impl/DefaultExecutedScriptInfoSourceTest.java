@@ -26,13 +26,19 @@ import org.junit.Test;
 
 import javax.sql.DataSource;
 import java.text.ParseException;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
+import static java.util.Arrays.asList;
 import static junit.framework.Assert.*;
 import static org.apache.commons.lang.time.DateUtils.parseDate;
 import static org.dbmaintain.util.SQLTestUtils.executeUpdate;
 import static org.dbmaintain.util.SQLTestUtils.executeUpdateQuietly;
+import static org.dbmaintain.util.SQLTestUtils.getItemAsLong;
 import static org.dbmaintain.util.TestUtils.createScript;
+import static org.dbmaintain.util.TestUtils.createScriptWithCheckSum;
+import static org.dbmaintain.util.TestUtils.createScriptWithContent;
 
 /**
  * Test class for {@link org.dbmaintain.script.executedscriptinfo.impl.DefaultExecutedScriptInfoSource}. The implementation is tested using a
@@ -105,6 +111,33 @@ public class DefaultExecutedScriptInfoSourceTest {
         assertTrue(executedScripts2.contains(executedScript2));
     }
 
+    @Test
+    public void retrieveExecutedScriptWithParsedFileNameOfRepositoryScript() throws ParseException {
+        executedScriptInfoSource.registerExecutedScript(executedScript1);
+        initExecutedScriptInfoSource();
+        Script repositoryScript = createScript("1_script1.sql");
+        executedScriptInfoSource.setRepositoryScripts(asList(repositoryScript));
+
+        ExecutedScript executedScript = executedScriptInfoSource.getExecutedScripts().first();
+        assertEquals(executedScript1, executedScript);
+        assertSame(repositoryScript.getScriptIndexes(), executedScript.getScript().getScriptIndexes());
+        assertEquals(parseDate("20/05/2008", new String[]{"dd/MM/yyyy"}), executedScript.getExecutedAt());
+    }
+
+    @Test
+    public void registerExecutedScripts() {
+        executedScriptInfoSource.registerExecutedScript(executedScript1);
+        executedScript1.setSuccessful(true);
+        executedScriptInfoSource.registerExecutedScripts(asList(executedScript1, executedScript2, executedPostprocessingScript));
+        assertEquals(3, executedScriptInfoSource.getExecutedScripts().size());
+        initExecutedScriptInfoSource();
+        Set<ExecutedScript> executedScripts = executedScriptInfoSource.getExecutedScripts();
+        assertEquals(3, executedScripts.size());
+        assertTrue(executedScripts.contains(executedScript2));
+        assertTrue(executedScripts.contains(executedPostprocessingScript));
+        assertTrue(executedScriptInfoSource.getExecutedScripts().first().isSuccessful());
+    }
+
     @Test(expected = DbMaintainException.class)
     public void registerExecutedScript_NoExecutedScriptsTable() {
         dropExecutedScriptsTable();
@@ -132,6 +165,19 @@ public class DefaultExecutedScriptInfoSourceTest {
         assertTrue(executedScriptInfoSource.getExecutedScripts().first().isSuccessful());
     }
 
+    @Test
+    public void updateExecutedScripts() {
+        executedScriptInfoSource.registerExecutedScript(executedScript1);
+        executedScriptInfoSource.registerExecutedScript(executedScript2);
+        executedScript1.renameTo(createScriptWithCheckSum("1_script1.sql", "MURMUR3-128:0123"));
+        executedScript2.renameTo(createScriptWithCheckSum("script2.sql", "MURMUR3-128:4567"));
+        executedScriptInfoSource.updateExecutedScripts(asList(executedScript1, executedScript2));
+
+        initExecutedScriptInfoSource();
+        assertEquals("MURMUR3-128:0123", executedScriptInfoSource.getExecutedScripts().first().getScript().getCheckSum());
+        assertEquals("MURMUR3-128:4567", executedScriptInfoSource.getExecutedScripts().last().getScript().getCheckSum());
+    }
+
     @Test
     public void renameExecutedScript() {
         executedScriptInfoSource.registerExecutedScript(executedScript1);
@@ -162,6 +208,21 @@ public class DefaultExecutedScriptInfoSourceTest {
         assertEquals(0, executedScriptInfoSource.getExecutedScripts().size());
     }
 
+    @Test
+    public void deleteAndRenameExecutedScripts() {
+        executedScriptInfoSource.registerExecutedScript(executedScript1);
+        executedScriptInfoSource.registerExecutedScript(executedScript2);
+        Script renamedToScript = createScript("0_script1_renamed.sql");
+        Map<ExecutedScript, Script> renamedExecutedScripts = new TreeMap<ExecutedScript, Script>();
+        renamedExecutedScripts.put(executedScript1, renamedToScript);
+        executedScriptInfoSource.deleteAndRenameExecutedScripts(asList(executedScript2), renamedExecutedScripts);
+        assertEquals(1, executedScriptInfoSource.getExecutedScripts().size());
+        assertEquals(renamedToScript, executedScriptInfoSource.getExecutedScripts().first().getScript());
+        initExecutedScriptInfoSource();
+        assertEquals(1, executedScriptInfoSource.getExecutedScripts().size());
+        assertEquals(renamedToScript, executedScriptInfoSource.getExecutedScripts().first().getScript());
+    }
+
 
     @Test
     public void deleteAllExecutedPostprocessingScripts() {
@@ -176,6 +237,130 @@ public class DefaultExecutedScriptInfoSourceTest {
         assertEquals(executedScript1, executedScriptInfoSource.getExecutedScripts().first());
     }
 
+    @Test
+    public void registerAndRetrieveExecutedScriptVersion2Table() {
+        dropExecutedScriptsTable();
+        DefaultExecutedScriptInfoSource executedScriptInfoSourceVersion2 = TestUtils.getDefaultExecutedScriptInfoSource(defaultDatabase, true, null, 2);
+        executedScript1.setSuccessful(true);
+        executedScript1.setExecutionTime(1234L);
+        executedScriptInfoSourceVersion2.registerExecutedScripts(asList(executedScript1, executedScript2));
+
+        executedScriptInfoSourceVersion2 = TestUtils.getDefaultExecutedScriptInfoSource(defaultDatabase, false, null, 2);
+        ExecutedScript retrievedExecutedScript1 = executedScriptInfoSourceVersion2.getExecutedScripts().first();
+        ExecutedScript retrievedExecutedScript2 = executedScriptInfoSourceVersion2.getExecutedScripts().last();
+        assertEquals(executedScript1, retrievedExecutedScript1);
+        assertEquals(executedScript1.getExecutedAt(), retrievedExecutedScript1.getExecutedAt());
+        assertTrue(retrievedExecutedScript1.isSuccessful());
+        assertEquals(Long.valueOf(1234), retrievedExecutedScript1.getExecutionTime());
+        assertFalse(retrievedExecutedScript2.isSuccessful());
+        assertNull(retrievedExecutedScript2.getExecutionTime());
+    }
+
+    @Test
+    public void migrateVersion1TableToVersion2() throws ParseException {
+        executedScript1.setSuccessful(true);
+        executedScriptInfoSource.registerExecutedScript(executedScript1);
+        executedScriptInfoSource.registerExecutedScript(executedScript2);
+
+        DefaultExecutedScriptInfoSource executedScriptInfoSourceVersion2 = TestUtils.getDefaultExecutedScriptInfoSource(defaultDatabase, false, null, 2);
+        assertEquals(2, executedScriptInfoSourceVersion2.getExecutedScripts().size());
+        assertTrue(executedScriptInfoSourceVersion2.isExecutedScriptsTableValid());
+        assertTrue(executedScriptInfoSourceVersion2.getExecutedScripts().first().isSuccessful());
+        assertFalse(executedScriptInfoSourceVersion2.getExecutedScripts().last().isSuccessful());
+        // the version 1 table only stored the date part of the timestamp
+        assertEquals(parseDate("20/05/2008", new String[]{"dd/MM/yyyy"}), executedScriptInfoSourceVersion2.getExecutedScripts().first().getExecutedAt());
+        assertFalse(defaultDatabase.getTableNames().contains("DBMAINTAIN_SCRIPTS_V1"));
+    }
+
+    @Test
+    public void checkSumsThatDoNotFitInChecksumColumn() {
+        executedScriptInfoSource.setRepositoryScripts(asList(createScriptWithContent("01_script.sql", "content", "MURMUR3-128")));
+        try {
+            executedScriptInfoSource.setRepositoryScripts(asList(createScriptWithContent("01_script.sql", "content", "SHA-256")));
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("SHA-256"));
+        }
+    }
+
+    @Test
+    public void resumeIncompleteMigrationFromBackupTable() {
+        executedScriptInfoSource.registerExecutedScript(executedScript1);
+        executedScriptInfoSource.registerExecutedScript(executedScript2);
+        // simulate a migration that failed after the version table was dropped
+        executeUpdate("alter table dbmaintain_scripts rename to dbmaintain_scripts_v1", dataSource);
+
+        DefaultExecutedScriptInfoSource executedScriptInfoSourceVersion2 = TestUtils.getDefaultExecutedScriptInfoSource(defaultDatabase, true, null, 2);
+        assertEquals(2, executedScriptInfoSourceVersion2.getExecutedScripts().size());
+        assertTrue(executedScriptInfoSourceVersion2.isExecutedScriptsTableValid());
+        assertFalse(defaultDatabase.getTableNames().contains("DBMAINTAIN_SCRIPTS_V1"));
+    }
+
+    @Test
+    public void backupTableDroppedWhenCopyFails() {
+        // a version 1 table with a record that cannot be copied to the backup table
+        dropExecutedScriptsTable();
+        executeUpdate("create table dbmaintain_scripts (file_name varchar(150), file_last_modified_at bigint, checksum varchar(50), executed_at varchar(50), succeeded varchar(10))", dataSource);
+        executeUpdate("insert into dbmaintain_scripts values ('1_script1.sql', 0, 'checksum', '20/05/2008', 'invalid')", dataSource);
+
+        DefaultExecutedScriptInfoSource executedScriptInfoSourceVersion2 = TestUtils.getDefaultExecutedScriptInfoSource(defaultDatabase, false, null, 2);
+        try {
+            executedScriptInfoSourceVersion2.getExecutedScripts();
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            // expected
+        }
+        assertFalse(defaultDatabase.getTableNames().contains("DBMAINTAIN_SCRIPTS_V1"));
+        assertEquals(1, getItemAsLong("select count(*) from dbmaintain_scripts", dataSource));
+    }
+
+    @Test
+    public void incompleteBackupTableNotUsedWhenVersionTableIntact() {
+        executedScriptInfoSource.registerExecutedScript(executedScript1);
+        executedScriptInfoSource.registerExecutedScript(executedScript2);
+        // simulate a migration that was interrupted while copying the records to the backup table
+        executeUpdate(executedScriptInfoSource.getCreateVersion1ExecutedScriptTableStatement("dbmaintain_scripts_v1"), dataSource);
+
+        DefaultExecutedScriptInfoSource executedScriptInfoSourceVersion2 = TestUtils.getDefaultExecutedScriptInfoSource(defaultDatabase, false, null, 2);
+        assertEquals(2, executedScriptInfoSourceVersion2.getExecutedScripts().size());
+        assertTrue(executedScriptInfoSourceVersion2.isExecutedScriptsTableValid());
+        assertFalse(defaultDatabase.getTableNames().contains("DBMAINTAIN_SCRIPTS_V1"));
+    }
+
+    @Test
+    public void resetCachedStateOnlyIfChangedByOtherProcess() {
+        DefaultExecutedScriptInfoSource executedScriptInfoSource1 = TestUtils.getDefaultExecutedScriptInfoSource(defaultDatabase, true, null, 1, "dbmaintain_scripts_changes");
+        DefaultExecutedScriptInfoSource executedScriptInfoSource2 = TestUtils.getDefaultExecutedScriptInfoSource(defaultDatabase, true, null, 1, "dbmaintain_scripts_changes");
+        assertEquals(0, executedScriptInfoSource1.getExecutedScripts().size());
+        assertFalse(executedScriptInfoSource1.resetCachedStateIfChanged());
+
+        // own changes keep the cached state valid
+        executedScriptInfoSource1.registerExecutedScript(executedScript1);
+        assertFalse(executedScriptInfoSource1.resetCachedStateIfChanged());
+        assertEquals(1, executedScriptInfoSource1.getExecutedScripts().size());
+
+        // changes of another process invalidate the cached state
+        executedScriptInfoSource2.registerExecutedScript(executedScript2);
+        assertTrue(executedScriptInfoSource1.resetCachedStateIfChanged());
+        assertEquals(2, executedScriptInfoSource1.getExecutedScripts().size());
+        assertFalse(executedScriptInfoSource1.resetCachedStateIfChanged());
+    }
+
+    @Test
+    public void registrationRolledBackIfChangeCounterCannotBeUpdated() {
+        DefaultExecutedScriptInfoSource executedScriptInfoSource = TestUtils.getDefaultExecutedScriptInfoSource(defaultDatabase, true, null, 1, "dbmaintain_scripts_changes");
+        executedScriptInfoSource.registerExecutedScript(executedScript1);
+        executeUpdate("drop table dbmaintain_scripts_changes", dataSource);
+
+        try {
+            executedScriptInfoSource.registerExecutedScript(executedScript2);
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            // expected
+        }
+        assertEquals(1, getItemAsLong("select count(*) from dbmaintain_scripts", dataSource));
+    }
+
 
     private void createExecutedScriptsTable() {
         executeUpdate(executedScriptInfoSource.getCreateExecutedScriptTableStatement(), dataSource);
@@ -183,6 +368,8 @@ public class DefaultExecutedScriptInfoSourceTest {
 
     private void dropExecutedScriptsTable() {
         executeUpdateQuietly("drop table dbmaintain_scripts", dataSource);
+        executeUpdateQuietly("drop table dbmaintain_scripts_v1", dataSource);
+        executeUpdateQuietly("drop table dbmaintain_scripts_changes", dataSource);
     }
 
 }
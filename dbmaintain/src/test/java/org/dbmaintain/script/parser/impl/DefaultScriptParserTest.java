@@ -23,6 +23,7 @@ import java.io.StringReader;
 import java.util.Properties;
 
 import static junit.framework.Assert.assertEquals;
+import static org.apache.commons.lang.StringUtils.repeat;
 
 /**
  * Tests the SQL script parser
@@ -121,6 +122,15 @@ public class DefaultScriptParserTest extends ScriptParserTestBase {
                 "statement\ron\r\nmultiple\nlines;");
     }
 
+    @Test
+    public void statementsLargerThanReadBuffer() {
+        // the carriage return is the last character of the first block that is read, the new line the first of the second
+        String line1 = repeat("a", DefaultScriptParser.BUFFER_SIZE - 1);
+        String line2 = repeat("b", DefaultScriptParser.BUFFER_SIZE);
+        assertTwoStatementsEqualTo(line1 + "\n" + line2, "second statement",
+                line1 + "\r\n" + line2 + ";second statement;");
+    }
+
     @Test
     public void replaceParameters() {
         Properties scriptParameters = new Properties();
@@ -17,10 +17,18 @@ package org.dbmaintain.script.parser.impl;
 
 import org.dbmaintain.script.parser.ScriptParser;
 import org.dbmaintain.script.parser.ScriptParserFactory;
+import org.dbmaintain.script.parser.parsingstate.PlSqlBlockMatcher;
+import org.dbmaintain.script.parser.parsingstate.impl.BasePlSqlBlockMatcher.PlSqlBlockMatch;
+import org.dbmaintain.script.parser.parsingstate.impl.OraclePlSqlBlockMatcher;
 import org.dbmaintain.util.DbMaintainException;
 import org.junit.Test;
 
 import java.io.Reader;
+import java.io.StringReader;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
 
 /**
  * Tests the Oracle SQL and PL-SQL script parser
@@ -73,6 +81,12 @@ public class OracleScriptParserTest extends ScriptParserTestBase {
                 "create /* comment */ or--another comment\nreplace function\nstatement 1; statement 2;\n/\n");
     }
 
+    @Test
+    public void slashSurroundedByWhitespace() {
+        assertTwoStatementsEqualTo("create procedure p1\nstatement 1; x := 4 / 2;\n/ /\n", "\ncreate procedure p2\nstatement 1;\n",
+                "create procedure p1\nstatement 1; x := 4 / 2;\n/ /\n \t/  \r\ncreate procedure p2\nstatement 1;\n/");
+    }
+
     @Test(expected = DbMaintainException.class)
     public void scriptNotEndingWithSlash() {
         assertOneStatement("create procedure something;");
@@ -83,6 +97,65 @@ public class OracleScriptParserTest extends ScriptParserTestBase {
         assertOneStatement("create procedure s;\n/");
     }
 
+    /**
+     * Regression test for the parsing of very long statements: the statement must only be matched against the pl-sql
+     * block patterns until it is clear that it is not a pl-sql block, not on every whitespace character.
+     */
+    @Test
+    public void largeStatementIsOnlyMatchedForTheFirstKeywords() {
+        StringBuilder script = new StringBuilder("insert into table1 (column1, column2) values ");
+        for (int i = 0; i < 100000; i++) {
+            script.append("\n(").append(i).append(", 'value ").append(i).append("'),");
+        }
+        script.append("\n(0, 'end');");
+
+        final int[] nrOfMatches = new int[1];
+        ScriptParserFactory factory = new OracleScriptParserFactory(true, null) {
+            @Override
+            protected PlSqlBlockMatcher createStoredProcedureMatcher() {
+                return new OraclePlSqlBlockMatcher() {
+                    @Override
+                    public PlSqlBlockMatch matchStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
+                        nrOfMatches[0]++;
+                        return super.matchStartOfPlSqlBlock(statementWithoutCommentsOrWhitespace);
+                    }
+                };
+            }
+        };
+        ScriptParser parser = factory.createScriptParser(new StringReader(script.toString()));
+
+        long startTime = System.currentTimeMillis();
+        String statement = parser.getNextStatement();
+        long parseTime = System.currentTimeMillis() - startTime;
+
+        assertEquals(script.length() - 1, statement.length());
+        assertNull(parser.getNextStatement());
+        // matched once after the insert keyword and once for the empty remainder of the script
+        assertEquals(2, nrOfMatches[0]);
+        assertTrue("Parsing a " + script.length() + " character statement took " + parseTime + " ms", parseTime < 10000);
+    }
+
+    /**
+     * Matchers that only implement the pl-sql block matcher interface are consulted for the whole statement.
+     */
+    @Test
+    public void customPlSqlBlockMatcher() {
+        ScriptParserFactory factory = new OracleScriptParserFactory(true, null) {
+            @Override
+            protected PlSqlBlockMatcher createStoredProcedureMatcher() {
+                return new PlSqlBlockMatcher() {
+                    public boolean isStartOfPlSqlBlock(StringBuilder statementWithoutCommentsOrWhitespace) {
+                        return "CREATE OR REPLACE CUSTOM BLOCK".equals(statementWithoutCommentsOrWhitespace.toString());
+                    }
+                };
+            }
+        };
+        ScriptParser parser = factory.createScriptParser(new StringReader("create or replace custom block b1\nstatement 1; statement 2;\n/\n"));
+
+        assertEquals("create or replace custom block b1\nstatement 1; statement 2;\n", parser.getNextStatement());
+        assertNull(parser.getNextStatement());
+    }
+
     @Override
     protected ScriptParser createScriptParser(Reader scriptReader) {
         ScriptParserFactory factory = new OracleScriptParserFactory(true, null);
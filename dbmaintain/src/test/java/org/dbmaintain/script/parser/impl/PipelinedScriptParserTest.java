@@ -0,0 +1,114 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script.parser.impl;
+
+import org.dbmaintain.script.parser.ScriptParser;
+import org.dbmaintain.util.DbMaintainException;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+/**
+ * Tests the script parser that parses the statements in a separate thread
+ */
+public class PipelinedScriptParserTest {
+
+    @Test
+    public void statementsAreReturnedInOrder() {
+        PipelinedScriptParser parser = new PipelinedScriptParser(createDefaultScriptParser("statement 1;statement 2;statement 3;statement 4;"), 1);
+        try {
+            assertEquals("statement 1", parser.getNextStatement());
+            assertEquals("statement 2", parser.getNextStatement());
+            assertEquals("statement 3", parser.getNextStatement());
+            assertEquals("statement 4", parser.getNextStatement());
+            assertNull(parser.getNextStatement());
+            assertNull(parser.getNextStatement());
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Test
+    public void parseErrorIsThrownAfterPrecedingStatements() {
+        PipelinedScriptParser parser = new PipelinedScriptParser(createDefaultScriptParser("statement 1;statement without semicolon"), 10);
+        try {
+            assertEquals("statement 1", parser.getNextStatement());
+            parser.getNextStatement();
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            // expected
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Test
+    public void unexpectedErrorIsWrapped() {
+        PipelinedScriptParser parser = new PipelinedScriptParser(new ScriptParser() {
+            public String getNextStatement() {
+                throw new IllegalStateException("parse failure");
+            }
+        }, 10);
+        try {
+            parser.getNextStatement();
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Test
+    public void closeStopsParserThreadWaitingForFullQueue() {
+        InfiniteScriptParser infiniteScriptParser = new InfiniteScriptParser();
+        PipelinedScriptParser parser = new PipelinedScriptParser(infiniteScriptParser, 2);
+        assertEquals("statement", parser.getNextStatement());
+
+        parser.close();
+        assertFalse(parser.parserThread.isAlive());
+        // the queue is bounded: the parser thread did not run ahead more than the queue size
+        assertTrue(infiniteScriptParser.nrOfStatements <= 4);
+    }
+
+    @Test
+    public void closeWithoutStatementsRequested() {
+        PipelinedScriptParser parser = new PipelinedScriptParser(new InfiniteScriptParser(), 2);
+        parser.close();
+    }
+
+
+    private ScriptParser createDefaultScriptParser(String script) {
+        return new DefaultScriptParserFactory(false, null).createScriptParser(new StringReader(script));
+    }
+
+
+    private static class InfiniteScriptParser implements ScriptParser {
+
+        private volatile int nrOfStatements;
+
+        public String getNextStatement() {
+            nrOfStatements++;
+            return "statement";
+        }
+    }
+}
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Random;
 
 import static junit.framework.Assert.assertEquals;
+import static org.dbmaintain.script.parser.parsingstate.impl.BasePlSqlBlockMatcher.PlSqlBlockMatch.*;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -49,6 +50,17 @@ public class OracleStoredProcedureMatcherTest {
         assertIsNotStartOfStoredProcedure(" CREATE PACKAGE", "CREATE  PACKAGE", "CREATE PACKAGE SOMETHING", "CREATE\nPACKAGE");
     }
 
+    @Test
+    public void testMatchStartOfStoredProcedure() {
+        assertEquals(POSSIBLE_MATCH, matcher.matchStartOfPlSqlBlock(new StringBuilder("")));
+        assertEquals(POSSIBLE_MATCH, matcher.matchStartOfPlSqlBlock(new StringBuilder("CREATE")));
+        assertEquals(POSSIBLE_MATCH, matcher.matchStartOfPlSqlBlock(new StringBuilder("CREATE OR REPLACE")));
+        assertEquals(MATCH, matcher.matchStartOfPlSqlBlock(new StringBuilder("CREATE OR REPLACE PACKAGE")));
+        assertEquals(NO_MATCH, matcher.matchStartOfPlSqlBlock(new StringBuilder("INSERT")));
+        assertEquals(NO_MATCH, matcher.matchStartOfPlSqlBlock(new StringBuilder("CREATE TABLE")));
+        assertEquals(NO_MATCH, matcher.matchStartOfPlSqlBlock(new StringBuilder("CREATE PACKAGE SOMETHING")));
+    }
+
     private void assertIsStartOfStoredProcedure(String... testStrings) {
         for (String testString : testStrings) {
             assertTrue(matcher.isStartOfPlSqlBlock(new StringBuilder(testString)));
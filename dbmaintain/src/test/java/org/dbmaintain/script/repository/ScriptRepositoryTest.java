@@ -20,11 +20,17 @@ import org.dbmaintain.util.DbMaintainException;
 import org.junit.Before;
 import org.junit.Test;
 
+import static java.util.Arrays.asList;
 import static org.dbmaintain.util.CollectionUtils.asSet;
 import static org.dbmaintain.util.CollectionUtils.asSortedSet;
 import static org.dbmaintain.util.TestUtils.*;
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
 /**
  * @author Filip Neven
  * @author Tim Ducheyne
@@ -59,6 +65,32 @@ public class ScriptRepositoryTest {
         assertEquals(asSortedSet(postProcessing1, postProcessing2), scriptRepository.getPostProcessingScripts());
     }
 
+    @Test
+    public void getAllScriptsMergedFromAllLocations() {
+        ScriptRepository scriptRepository = new ScriptRepository(asSet(scriptLocation1, scriptLocation2), getTrivialQualifierEvaluator());
+
+        assertEquals(asList(indexed1, indexed2, repeatable1, repeatable2, postProcessing1, postProcessing2), new ArrayList<Script>(scriptRepository.getAllScripts()));
+        assertEquals(asList(indexed1, indexed2, repeatable1, repeatable2), new ArrayList<Script>(scriptRepository.getAllUpdateScripts()));
+    }
+
+    @Test
+    public void calculateCheckSumsInParallel() {
+        SortedSet<Script> scripts = new TreeSet<Script>();
+        SortedSet<Script> expectedScripts = new TreeSet<Script>();
+        for (int i = 1; i <= 100; i++) {
+            scripts.add(createScriptWithContent(i + "_script.sql", "content of script " + i));
+            expectedScripts.add(createScriptWithContent(i + "_script.sql", "content of script " + i));
+        }
+        ScriptRepository scriptRepository = new ScriptRepository(asSet((ScriptLocation) createArchiveScriptLocation(scripts, null)), getTrivialQualifierEvaluator());
+
+        scriptRepository.calculateCheckSums(4);
+
+        Iterator<Script> expectedScriptIterator = expectedScripts.iterator();
+        for (Script script : scriptRepository.getAllScripts()) {
+            assertEquals(expectedScriptIterator.next().getCheckSum(), script.getCheckSum());
+        }
+    }
+
     @Test(expected = DbMaintainException.class)
     public void errorInCaseOfDuplicateScript() {
         ScriptLocation location = createArchiveScriptLocation(asSortedSet(indexed2, repeatable1, postProcessing2), null);
@@ -0,0 +1,90 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script.repository.impl;
+
+import org.apache.commons.io.IOUtils;
+import org.dbmaintain.script.Script;
+import org.dbmaintain.script.qualifier.Qualifier;
+import org.dbmaintain.util.TestUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.jar.JarFile;
+
+import static java.io.File.createTempFile;
+import static java.util.Collections.singleton;
+import static junit.framework.Assert.assertEquals;
+import static org.dbmaintain.util.CollectionUtils.asSet;
+import static org.dbmaintain.util.CollectionUtils.asSortedSet;
+
+/**
+ * Tests that an archive script location opens its jar file only once.
+ */
+public class ArchiveScriptLocationJarFileTest {
+
+    private File jarFile;
+
+
+    @Before
+    public void init() throws IOException {
+        Script script1 = TestUtils.createScriptWithContent("01_script1.sql", "Script 1 content");
+        Script script2 = TestUtils.createScriptWithContent("02_script2.sql", "Script 2 content");
+        jarFile = createTempFile("scriptjar", ".jar");
+        new ArchiveScriptLocation(asSortedSet(script1, script2), "ISO-8859-1", "postprocessing", asSet(new Qualifier("qualifier1")), singleton(new Qualifier("patch")),
+                "^([0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", asSet("sql"), null, false, "MD5").writeToJarFile(jarFile);
+    }
+
+
+    @Test
+    public void jarFileOpenedOnce() throws IOException {
+        CountingArchiveScriptLocation archiveScriptLocation = new CountingArchiveScriptLocation(jarFile);
+        for (Script script : archiveScriptLocation.getScripts()) {
+            IOUtils.toString(script.getScriptContentHandle().openScriptContentReader());
+        }
+        assertEquals(1, archiveScriptLocation.nrOfJarFilesCreated);
+        archiveScriptLocation.close();
+    }
+
+    @Test
+    public void jarFileOpenedAgainWhenReadAfterClose() throws IOException {
+        CountingArchiveScriptLocation archiveScriptLocation = new CountingArchiveScriptLocation(jarFile);
+        Script script = archiveScriptLocation.getScripts().first();
+        archiveScriptLocation.close();
+
+        assertEquals("Script 1 content", IOUtils.toString(script.getScriptContentHandle().openScriptContentReader()));
+        assertEquals(2, archiveScriptLocation.nrOfJarFilesCreated);
+        archiveScriptLocation.close();
+    }
+
+
+    private static class CountingArchiveScriptLocation extends ArchiveScriptLocation {
+
+        private int nrOfJarFilesCreated;
+
+        public CountingArchiveScriptLocation(File jarLocation) {
+            super(jarLocation, "ISO-8859-1", "postprocessing", asSet(new Qualifier("qualifier1")), singleton(new Qualifier("patch")),
+                    "^([0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", asSet("sql"), null, false, "MD5");
+        }
+
+        @Override
+        protected JarFile createJarFile(File jarFile) {
+            nrOfJarFilesCreated++;
+            return super.createJarFile(jarFile);
+        }
+    }
+}
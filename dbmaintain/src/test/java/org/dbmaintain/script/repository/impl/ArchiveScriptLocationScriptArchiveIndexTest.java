@@ -0,0 +1,175 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script.repository.impl;
+
+import org.dbmaintain.script.Script;
+import org.dbmaintain.script.ScriptContentHandle;
+import org.dbmaintain.script.qualifier.Qualifier;
+import org.dbmaintain.util.TestUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import static java.io.File.createTempFile;
+import static java.util.Collections.singleton;
+import static junit.framework.Assert.*;
+import static org.apache.commons.io.IOUtils.closeQuietly;
+import static org.apache.commons.io.IOUtils.copy;
+import static org.dbmaintain.util.CollectionUtils.asSet;
+import static org.dbmaintain.util.CollectionUtils.asSortedSet;
+
+/**
+ * Tests loading a script archive using its script archive index.
+ */
+public class ArchiveScriptLocationScriptArchiveIndexTest {
+
+    private SortedSet<Script> scripts;
+
+    private File jarFile;
+    private File modifiedJarFile;
+
+    @Before
+    public void init() throws IOException {
+        Script script1 = TestUtils.createScriptWithContent("01_@db1_folder1/01_#patch_script1.sql", "Script 1 content");
+        Script script2 = TestUtils.createScriptWithContent("@db1_folder2/script2.sql", "Script 2 content");
+        Script script3 = TestUtils.createScriptWithContent("postprocessing/01_script3.sql", "Script 3 content");
+        scripts = asSortedSet(script1, script2, script3);
+        jarFile = createTempFile("scriptjar", ".jar");
+        modifiedJarFile = createTempFile("scriptjar", ".jar");
+
+        createArchiveScriptLocation(scripts).writeToJarFile(jarFile);
+    }
+
+
+    @Test
+    public void scriptsLoadedFromIndex() {
+        SortedSet<Script> scriptsFromFile = createArchiveScriptLocation(jarFile).getScripts();
+
+        assertEquals(3, scriptsFromFile.size());
+        Iterator<Script> scriptsFromFileIterator = scriptsFromFile.iterator();
+        for (Script originalScript : scripts) {
+            Script scriptFromFile = scriptsFromFileIterator.next();
+            // the check sum was taken from the index, the content was not read
+            assertTrue(scriptFromFile.isCheckSumCalculated());
+            assertEquals(originalScript.getFileName(), scriptFromFile.getFileName());
+            assertEquals(originalScript.getScriptIndexes(), scriptFromFile.getScriptIndexes());
+            assertEquals(originalScript.getTargetDatabaseName(), scriptFromFile.getTargetDatabaseName());
+            assertEquals(originalScript.getQualifiers(), scriptFromFile.getQualifiers());
+            assertEquals(originalScript.isPostProcessingScript(), scriptFromFile.isPostProcessingScript());
+            assertEquals(originalScript.getCheckSum(), scriptFromFile.getCheckSum());
+        }
+    }
+
+    @Test
+    public void indexIsIgnoredWhenScriptWasModified() throws IOException {
+        copyJarReplacingScript("@db1_folder2/script2.sql", "Modified script 2 content");
+
+        SortedSet<Script> scriptsFromFile = createArchiveScriptLocation(modifiedJarFile).getScripts();
+
+        assertEquals(3, scriptsFromFile.size());
+        for (Script scriptFromFile : scriptsFromFile) {
+            assertFalse(scriptFromFile.isCheckSumCalculated());
+        }
+        Script modifiedScript = TestUtils.createScriptWithContent("@db1_folder2/script2.sql", "Modified script 2 content");
+        assertEquals(modifiedScript.getCheckSum(), getScript(scriptsFromFile, "@db1_folder2/script2.sql").getCheckSum());
+    }
+
+    @Test
+    public void indexIsIgnoredWhenScriptWasAdded() throws IOException {
+        copyJarReplacingScript("02_script4.sql", "Script 4 content");
+
+        SortedSet<Script> scriptsFromFile = createArchiveScriptLocation(modifiedJarFile).getScripts();
+
+        assertEquals(4, scriptsFromFile.size());
+        assertFalse(scriptsFromFile.first().isCheckSumCalculated());
+    }
+
+
+    @Test
+    public void lastModificationDateOfIndexEqualsJarEntryTime() throws IOException {
+        // jar entries only store the time with a precision of 2 seconds
+        Script script = TestUtils.createScriptFactory().createScriptWithContent("01_script1.sql", 1700000001234L,
+                new ScriptContentHandle.StringScriptContentHandle("Script 1 content", "ISO-8859-1", false));
+        createArchiveScriptLocation(asSortedSet(script)).writeToJarFile(jarFile);
+
+        Script scriptFromFile = createArchiveScriptLocation(jarFile).getScripts().first();
+        assertTrue(scriptFromFile.isCheckSumCalculated());
+        JarFile scriptJarFile = new JarFile(jarFile);
+        try {
+            assertEquals(scriptJarFile.getJarEntry("01_script1.sql").getTime(), scriptFromFile.getFileLastModifiedAt().longValue());
+        } finally {
+            scriptJarFile.close();
+        }
+    }
+
+
+    private Script getScript(SortedSet<Script> scripts, String fileName) {
+        for (Script script : scripts) {
+            if (fileName.equals(script.getFileName())) {
+                return script;
+            }
+        }
+        fail("Script " + fileName + " not found");
+        return null;
+    }
+
+    /**
+     * Copies the test jar, replacing or adding the given script without updating the index.
+     */
+    private void copyJarReplacingScript(String scriptName, String scriptContent) throws IOException {
+        JarFile originalJarFile = new JarFile(jarFile);
+        JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(modifiedJarFile));
+        try {
+            for (Enumeration<JarEntry> jarEntries = originalJarFile.entries(); jarEntries.hasMoreElements();) {
+                JarEntry jarEntry = jarEntries.nextElement();
+                if (scriptName.equals(jarEntry.getName())) {
+                    continue;
+                }
+                jarOutputStream.putNextEntry(new JarEntry(jarEntry.getName()));
+                InputStream inputStream = originalJarFile.getInputStream(jarEntry);
+                copy(inputStream, jarOutputStream);
+                closeQuietly(inputStream);
+                jarOutputStream.closeEntry();
+            }
+            jarOutputStream.putNextEntry(new JarEntry(scriptName));
+            jarOutputStream.write(scriptContent.getBytes("ISO-8859-1"));
+            jarOutputStream.closeEntry();
+        } finally {
+            closeQuietly(jarOutputStream);
+            originalJarFile.close();
+        }
+    }
+
+    private ArchiveScriptLocation createArchiveScriptLocation(SortedSet<Script> scripts) {
+        return new ArchiveScriptLocation(scripts, "ISO-8859-1", "postprocessing", asSet(new Qualifier("qualifier1")), singleton(new Qualifier("patch")),
+                "^([0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", asSet("sql", "ddl"), null, false, "MD5");
+    }
+
+    private ArchiveScriptLocation createArchiveScriptLocation(File jarFile) {
+        return new ArchiveScriptLocation(jarFile, "ISO-8859-1", "postprocessing", asSet(new Qualifier("qualifier1")), singleton(new Qualifier("patch")),
+                "^([0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", asSet("sql", "ddl"), null, false, "MD5");
+    }
+}
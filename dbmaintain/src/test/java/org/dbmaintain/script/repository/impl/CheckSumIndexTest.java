@@ -0,0 +1,158 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.script.repository.impl;
+
+import org.dbmaintain.script.Script;
+import org.dbmaintain.script.qualifier.Qualifier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+
+import static java.io.File.createTempFile;
+import static org.apache.commons.io.FileUtils.deleteDirectory;
+import static org.apache.commons.io.FileUtils.readFileToString;
+import static org.apache.commons.io.FileUtils.writeStringToFile;
+import static org.dbmaintain.util.CollectionUtils.asSet;
+import static org.junit.Assert.*;
+
+/**
+ * Tests the check sum index of a file system script location.
+ */
+public class CheckSumIndexTest {
+
+    private File scriptRootLocation;
+    private File scriptFile;
+    private File indexFile;
+
+
+    @Before
+    public void initialize() throws Exception {
+        scriptRootLocation = createTempFile("scripts", "");
+        scriptRootLocation.delete();
+        scriptRootLocation.mkdirs();
+
+        scriptFile = new File(scriptRootLocation, "01_script.sql");
+        writeStringToFile(scriptFile, "script content");
+        scriptFile.setLastModified(System.currentTimeMillis() - 60000);
+
+        indexFile = new File(scriptRootLocation, CheckSumIndex.CHECK_SUM_INDEX_FILENAME);
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        deleteDirectory(scriptRootLocation);
+    }
+
+
+    @Test
+    public void checkSumIsStoredInIndex() throws Exception {
+        FileSystemScriptLocation scriptLocation = createFileSystemScriptLocation(true);
+        String checkSum = getScript(scriptLocation).getCheckSum();
+        scriptLocation.close();
+
+        assertTrue(readFileToString(indexFile, "UTF-8").contains("01_script.sql\t14\t" + scriptFile.lastModified() + "\tfalse\t" + checkSum));
+    }
+
+    @Test
+    public void checkSumIsTakenFromIndexIfFileWasNotTouched() throws Exception {
+        writeIndex("01_script.sql\t14\t" + scriptFile.lastModified() + "\tfalse\tindexedCheckSum");
+
+        FileSystemScriptLocation scriptLocation = createFileSystemScriptLocation(true);
+        assertEquals("indexedCheckSum", getScript(scriptLocation).getCheckSum());
+    }
+
+    @Test
+    public void checkSumIsKnownWithoutReadingContentIfIndexed() throws Exception {
+        assertFalse(getScript(createFileSystemScriptLocation(true)).isCheckSumCalculated());
+
+        writeIndex("01_script.sql\t14\t" + scriptFile.lastModified() + "\tfalse\tindexedCheckSum");
+        assertTrue(getScript(createFileSystemScriptLocation(true)).isCheckSumCalculated());
+    }
+
+    @Test
+    public void fileSizeAndIndexOnlyCheckedOnce() throws Exception {
+        final int[] nrOfLengthCalls = new int[1];
+        File countingScriptFile = new File(scriptFile.getPath()) {
+            @Override
+            public long length() {
+                nrOfLengthCalls[0]++;
+                return super.length();
+            }
+        };
+        CheckSumIndex checkSumIndex = new CheckSumIndex(indexFile);
+        FileSystemScriptLocation.IndexedFileScriptContentHandle scriptContentHandle = new FileSystemScriptLocation.IndexedFileScriptContentHandle(
+                countingScriptFile, "01_script.sql", scriptFile.lastModified(), "ISO-8859-1", false, "MD5", checkSumIndex);
+
+        assertFalse(scriptContentHandle.isCheckSumCalculated());
+        assertFalse(scriptContentHandle.isCheckSumCalculated());
+        String checkSum = scriptContentHandle.getCheckSum();
+
+        assertEquals(1, nrOfLengthCalls[0]);
+        assertEquals(checkSum, checkSumIndex.getCheckSum("01_script.sql", 14, scriptFile.lastModified(), false));
+    }
+
+    @Test
+    public void checkSumIsRecalculatedIfFileWasTouched() throws Exception {
+        writeIndex("01_script.sql\t14\t" + (scriptFile.lastModified() - 1000) + "\tfalse\tindexedCheckSum");
+        String expectedCheckSum = getScript(createFileSystemScriptLocation(false)).getCheckSum();
+
+        FileSystemScriptLocation scriptLocation = createFileSystemScriptLocation(true);
+        assertEquals(expectedCheckSum, getScript(scriptLocation).getCheckSum());
+    }
+
+    @Test
+    public void checkSumIsRecalculatedIfCarriageReturnSettingDiffers() throws Exception {
+        writeIndex("01_script.sql\t14\t" + scriptFile.lastModified() + "\ttrue\tindexedCheckSum");
+
+        FileSystemScriptLocation scriptLocation = createFileSystemScriptLocation(true);
+        assertFalse("indexedCheckSum".equals(getScript(scriptLocation).getCheckSum()));
+    }
+
+    @Test
+    public void invalidIndexIsIgnored() throws Exception {
+        writeStringToFile(indexFile, "invalid content", "UTF-8");
+        String expectedCheckSum = getScript(createFileSystemScriptLocation(false)).getCheckSum();
+
+        FileSystemScriptLocation scriptLocation = createFileSystemScriptLocation(true);
+        assertEquals(expectedCheckSum, getScript(scriptLocation).getCheckSum());
+    }
+
+    @Test
+    public void noIndexWrittenIfDisabled() throws Exception {
+        FileSystemScriptLocation scriptLocation = createFileSystemScriptLocation(false);
+        getScript(scriptLocation).getCheckSum();
+        scriptLocation.close();
+
+        assertFalse(indexFile.exists());
+    }
+
+
+    private void writeIndex(String entry) throws Exception {
+        writeStringToFile(indexFile, "# dbmaintain check sum index v1\n" + entry + "\n", "UTF-8");
+    }
+
+    private Script getScript(FileSystemScriptLocation scriptLocation) {
+        return scriptLocation.getScripts().first();
+    }
+
+    private FileSystemScriptLocation createFileSystemScriptLocation(boolean useCheckSumIndex) {
+        return new FileSystemScriptLocation(scriptRootLocation, "ISO-8859-1", "postprocessing", Collections.<Qualifier>emptySet(),
+                asSet(new Qualifier("patch")), "^([0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", asSet("sql"), null, false, "MD5", useCheckSumIndex, 1);
+    }
+}
@@ -51,4 +51,10 @@ public class FileSystemScriptLocationTest {
     public void testGetAllFiles() {
         assertEquals(asSet(indexed1, repeatable1, postProcessing1), fileSystemScriptLocation.getScripts());
     }
+
+    @Test
+    public void testGetAllFilesInParallel() {
+        FileSystemScriptLocation parallelFileSystemScriptLocation = TestUtils.createFileSystemLocation(scriptRootLocation, 4);
+        assertEquals(asSet(indexed1, repeatable1, postProcessing1), parallelFileSystemScriptLocation.getScripts());
+    }
 }
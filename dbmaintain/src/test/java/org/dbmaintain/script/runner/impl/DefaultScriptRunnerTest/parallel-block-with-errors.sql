@@ -0,0 +1,8 @@
+
+insert into table1 (col1) values (1);
+-- dbmaintain:parallel begin
+insert into table1 (col1) values (2);
+insert into table1 (unknown_column) values (3);
+insert into unknown_table (col1) values (4);
+-- dbmaintain:parallel end
+insert into table1 (col1) values (5);
@@ -0,0 +1,7 @@
+
+-- dbmaintain:parallel begin
+insert into table1 (col1) values (1);
+insert into table1 (col1) values (2);
+insert into table1 (col1) values (3);
+-- dbmaintain:parallel end
+insert into table1 (col1) values (4);
@@ -32,7 +32,12 @@ import javax.sql.DataSource;
 import java.util.HashMap;
 import java.util.Map;
 
+import static java.util.Arrays.asList;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.dbmaintain.script.runner.impl.JdbcScriptRunner.PARALLEL_BEGIN_DIRECTIVE;
+import static org.dbmaintain.script.runner.impl.JdbcScriptRunner.PARALLEL_END_DIRECTIVE;
 import static org.dbmaintain.util.SQLTestUtils.*;
 import static org.dbmaintain.util.TestUtils.createScriptFactory;
 import static org.junit.Assert.assertEquals;
@@ -47,6 +52,12 @@ public class JdbcScriptRunnerTest {
 
     /* The tested object */
     private JdbcScriptRunner defaultScriptRunner;
+    /* The tested object, configured to execute DML statements in batches of 2 */
+    private JdbcScriptRunner batchingScriptRunner;
+    /* The tested object, configured to parse the statements in a separate thread */
+    private JdbcScriptRunner pipelinedScriptRunner;
+    /* The tested object, configured to execute the statements of parallel blocks concurrently */
+    private JdbcScriptRunner parallelBlockScriptRunner;
 
     /* DataSource for the test database */
     protected DataSource dataSource;
@@ -62,6 +73,12 @@ public class JdbcScriptRunnerTest {
     private Script insertsWithCommit;
     /* A test script performing inserts with a rollback in the script */
     private Script insertsWithRollback;
+    /* A test script performing inserts of which one fails */
+    private Script insertsWithFailingInsert;
+    /* A test script performing inserts in a parallel block */
+    private Script parallelBlock;
+    /* A test script performing inserts in a parallel block of which two fail */
+    private Script parallelBlockWithErrors;
     /* A test script performing a select statement */
     private Script scriptWithQuery;
     /* An empty test script */
@@ -76,6 +93,9 @@ public class JdbcScriptRunnerTest {
         Map<String, ScriptParserFactory> databaseDialectScriptParserClassMap = new HashMap<String, ScriptParserFactory>();
         databaseDialectScriptParserClassMap.put("hsqldb", new DefaultScriptParserFactory(false, null));
         defaultScriptRunner = new JdbcScriptRunner(databaseDialectScriptParserClassMap, databases, new DefaultSQLHandler());
+        batchingScriptRunner = new JdbcScriptRunner(databaseDialectScriptParserClassMap, databases, new DefaultSQLHandler(), 2);
+        pipelinedScriptRunner = new JdbcScriptRunner(databaseDialectScriptParserClassMap, databases, new DefaultSQLHandler(), 0, 1);
+        parallelBlockScriptRunner = new JdbcScriptRunner(databaseDialectScriptParserClassMap, databases, new DefaultSQLHandler(), 0, 0, 4);
 
         script1 = createScript("script1.sql");
         script2 = createScript("script2.sql");
@@ -83,6 +103,9 @@ public class JdbcScriptRunnerTest {
         insertsWithoutError = createScript("inserts-without-error.sql");
         insertsWithCommit = createScript("inserts-with-commit.sql");
         insertsWithRollback = createScript("inserts-with-rollback.sql");
+        insertsWithFailingInsert = createScript("inserts-with-failing-insert.sql");
+        parallelBlock = createScript("parallel-block.sql");
+        parallelBlockWithErrors = createScript("parallel-block-with-errors.sql");
         scriptWithQuery = createScript("script-with-query.sql");
         emptyScript = createScript("empty-script.sql");
 
@@ -91,6 +114,7 @@ public class JdbcScriptRunnerTest {
 
     @After
     public void cleanUp() throws Exception {
+        parallelBlockScriptRunner.close();
         cleanupTestDatabase();
     }
 
@@ -152,6 +176,110 @@ public class JdbcScriptRunnerTest {
     }
 
 
+    @Test
+    public void batchedStatements() throws Exception {
+        batchingScriptRunner.execute(script1);
+        batchingScriptRunner.execute(insertsWithoutError);
+
+        assertEquals(3, getItemAsLong("select count(1) from table1", dataSource));
+    }
+
+    @Test
+    public void batchedStatementsFlushedBeforeOtherStatements() throws Exception {
+        batchingScriptRunner.execute(script1);
+        batchingScriptRunner.execute(insertsWithRollback);
+
+        assertEquals(1, getItemAsLong("select count(1) from table1", dataSource));
+    }
+
+    @Test
+    public void rollbackBatchedStatementsWhenErrorOccurs() throws Exception {
+        batchingScriptRunner.execute(script1);
+        try {
+            batchingScriptRunner.execute(insertsWithFailingInsert);
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("unknown_column"));
+        }
+        assertTrue("All inserts should have been rolled back", isEmpty("table1", dataSource));
+    }
+
+    @Test
+    public void pipelinedParsing() throws Exception {
+        pipelinedScriptRunner.execute(script1);
+        pipelinedScriptRunner.execute(insertsWithoutError);
+
+        assertEquals(3, getItemAsLong("select count(1) from table1", dataSource));
+    }
+
+    @Test
+    public void rollbackPipelinedParsingWhenErrorOccurs() throws Exception {
+        pipelinedScriptRunner.execute(script1);
+        try {
+            pipelinedScriptRunner.execute(insertsWithFailingInsert);
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            // expected
+        }
+        assertTrue("All inserts should have been rolled back", isEmpty("table1", dataSource));
+    }
+
+    @Test
+    public void parallelBlock() throws Exception {
+        parallelBlockScriptRunner.execute(script1);
+        parallelBlockScriptRunner.execute(parallelBlock);
+
+        assertEquals(4, getItemAsLong("select count(1) from table1", dataSource));
+    }
+
+    @Test
+    public void parallelBlockWithErrors() throws Exception {
+        parallelBlockScriptRunner.execute(script1);
+        try {
+            parallelBlockScriptRunner.execute(parallelBlockWithErrors);
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("2 of the 3 statements of a parallel block failed"));
+            assertTrue(e.getMessage(), e.getMessage().contains("unknown_column"));
+            assertTrue(e.getMessage(), e.getMessage().contains("unknown_table"));
+        }
+        // the statements before and in the block are committed, the statements after the block are not executed
+        assertEquals(2, getItemAsLong("select count(1) from table1", dataSource));
+    }
+
+    @Test
+    public void parallelBlockIgnoredWhenParallelismIsDisabled() throws Exception {
+        defaultScriptRunner.execute(script1);
+        try {
+            defaultScriptRunner.execute(parallelBlockWithErrors);
+            fail("DbMaintainException expected");
+        } catch (DbMaintainException e) {
+            // expected
+        }
+        assertTrue("All inserts should have been rolled back", isEmpty("table1", dataSource));
+    }
+
+    @Test
+    public void parallelDirectives() {
+        assertEquals(asList(PARALLEL_BEGIN_DIRECTIVE), parallelBlockScriptRunner.getParallelDirectives("\n-- dbmaintain:parallel begin\ncreate index"));
+        assertEquals(asList(PARALLEL_END_DIRECTIVE, PARALLEL_BEGIN_DIRECTIVE),
+                parallelBlockScriptRunner.getParallelDirectives("--  DbMaintain:Parallel   End \r\n/* comment */\n--dbmaintain:parallel begin\ncreate index"));
+        assertTrue(parallelBlockScriptRunner.getParallelDirectives("create index -- dbmaintain:parallel begin").isEmpty());
+        assertTrue(parallelBlockScriptRunner.getParallelDirectives("-- dbmaintain:parallel begin of something\ncreate index").isEmpty());
+    }
+
+    @Test
+    public void batchableStatements() {
+        assertTrue(batchingScriptRunner.isBatchableStatement("insert into table1 values (1)"));
+        assertTrue(batchingScriptRunner.isBatchableStatement("\n-- comment\n/* comment */ UPDATE table1 set col1 = 1"));
+        assertTrue(batchingScriptRunner.isBatchableStatement("delete from table1"));
+        assertFalse(batchingScriptRunner.isBatchableStatement("create table table1 (col1 smallint)"));
+        assertFalse(batchingScriptRunner.isBatchableStatement("select * from table1"));
+        assertFalse(batchingScriptRunner.isBatchableStatement("inserted_procedure()"));
+        assertFalse(batchingScriptRunner.isBatchableStatement("-- only a comment"));
+    }
+
+
     private void cleanupTestDatabase() {
         executeUpdateQuietly("drop table table1", dataSource);
         executeUpdateQuietly("drop table table2", dataSource);
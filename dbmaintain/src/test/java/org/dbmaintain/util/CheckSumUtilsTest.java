@@ -0,0 +1,97 @@
+/*
+ * Copyright DbMaintain.org
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dbmaintain.util;
+
+import org.junit.Test;
+
+import java.security.MessageDigest;
+
+import static junit.framework.Assert.assertEquals;
+import static org.dbmaintain.util.CheckSumUtils.*;
+
+/**
+ * Tests for the check sum algorithms and the prefixed check sum format.
+ */
+public class CheckSumUtilsTest {
+
+    @Test
+    public void murmur3ReferenceValues() throws Exception {
+        assertEquals("00000000000000000000000000000000", getMurmur3Hash(""));
+        assertEquals("6c1b07bc7bbc4be347939ac4a93c437a", getMurmur3Hash("The quick brown fox jumps over the lazy dog"));
+    }
+
+    @Test
+    public void murmur3UpdatedInPieces() throws Exception {
+        byte[] content = "The quick brown fox jumps over the lazy dog, twice: the quick brown fox jumps over the lazy dog".getBytes("ISO-8859-1");
+        MessageDigest referenceDigest = createMessageDigest(MURMUR3_128_ALGORITHM);
+        referenceDigest.update(content);
+        String reference = getHexPresentation(referenceDigest.digest());
+
+        MessageDigest digest = createMessageDigest(MURMUR3_128_ALGORITHM);
+        for (int pieceSize = 1; pieceSize < 40; pieceSize++) {
+            for (int i = 0; i < content.length; i += pieceSize) {
+                if (pieceSize == 3) {
+                    for (int j = i; j < Math.min(i + pieceSize, content.length); j++) {
+                        digest.update(content[j]);
+                    }
+                } else {
+                    digest.update(content, i, Math.min(pieceSize, content.length - i));
+                }
+            }
+            assertEquals("piece size " + pieceSize, reference, getHexPresentation(digest.digest()));
+        }
+    }
+
+    @Test
+    public void checkSumFormat() {
+        byte[] digest = new byte[]{0x01, (byte) 0xab};
+        assertEquals("01ab", toCheckSum("MD5", digest));
+        assertEquals("SHA-256:01ab", toCheckSum("sha-256", digest));
+        assertEquals("MURMUR3-128:01ab", toCheckSum(MURMUR3_128_ALGORITHM, digest));
+    }
+
+    @Test
+    public void algorithmOfCheckSum() {
+        assertEquals("MD5", getCheckSumAlgorithm("01ab"));
+        assertEquals("SHA-256", getCheckSumAlgorithm("SHA-256:01ab"));
+        assertEquals("MURMUR3-128", getCheckSumAlgorithm("MURMUR3-128:01ab"));
+    }
+
+    @Test
+    public void validCheckSumAlgorithm() {
+        assertEquals("SHA-256", getValidCheckSumAlgorithm(" sha-256"));
+        assertEquals("MURMUR3-128", getValidCheckSumAlgorithm("murmur3-128"));
+    }
+
+    @Test
+    public void checkSumLength() {
+        assertEquals(32, getCheckSumLength("MD5"));
+        assertEquals(44, getCheckSumLength(MURMUR3_128_ALGORITHM));
+        assertEquals(72, getCheckSumLength("SHA-256"));
+    }
+
+    @Test(expected = DbMaintainException.class)
+    public void unsupportedCheckSumAlgorithm() {
+        getValidCheckSumAlgorithm("xxx");
+    }
+
+
+    private String getMurmur3Hash(String content) throws Exception {
+        MessageDigest digest = createMessageDigest(MURMUR3_128_ALGORITHM);
+        digest.update(content.getBytes("ISO-8859-1"));
+        return getHexPresentation(digest.digest());
+    }
+}
@@ -75,11 +75,19 @@ public abstract class TestUtils {
     }
 
     public static DefaultExecutedScriptInfoSource getDefaultExecutedScriptInfoSource(Database database, boolean autoCreateExecutedScriptsTable, ScriptIndexes baselineRevision) {
+        return getDefaultExecutedScriptInfoSource(database, autoCreateExecutedScriptsTable, baselineRevision, 1);
+    }
+
+    public static DefaultExecutedScriptInfoSource getDefaultExecutedScriptInfoSource(Database database, boolean autoCreateExecutedScriptsTable, ScriptIndexes baselineRevision, int executedScriptsTableVersion) {
+        return getDefaultExecutedScriptInfoSource(database, autoCreateExecutedScriptsTable, baselineRevision, executedScriptsTableVersion, null);
+    }
+
+    public static DefaultExecutedScriptInfoSource getDefaultExecutedScriptInfoSource(Database database, boolean autoCreateExecutedScriptsTable, ScriptIndexes baselineRevision, int executedScriptsTableVersion, String changeCounterTableName) {
         ScriptFactory scriptFactory = new ScriptFactory("^([0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", Collections.<Qualifier>emptySet(),
                 asSet(new Qualifier("patch")), "postprocessing", baselineRevision);
         return new DefaultExecutedScriptInfoSource(autoCreateExecutedScriptsTable,
                 "dbmaintain_scripts", "file_name", 150, "file_last_modified_at", "checksum", 50, "executed_at", 50, "succeeded",
-                new SimpleDateFormat("dd/MM/yyyy"), database, new DefaultSQLHandler(), scriptFactory);
+                "execution_time", executedScriptsTableVersion, changeCounterTableName, 1000, new SimpleDateFormat("dd/MM/yyyy"), database, new DefaultSQLHandler(), scriptFactory);
     }
 
     public static Script createScript(String fileName) {
@@ -100,6 +108,11 @@ public abstract class TestUtils {
         return scriptFactory.createScriptWithContent(fileName, 0L, new ScriptContentHandle.StringScriptContentHandle(scriptContent, "ISO-8859-1", false));
     }
 
+    public static Script createScriptWithContent(String fileName, String scriptContent, String checkSumAlgorithm) {
+        ScriptFactory scriptFactory = createScriptFactory();
+        return scriptFactory.createScriptWithContent(fileName, 0L, new ScriptContentHandle.StringScriptContentHandle(scriptContent, "ISO-8859-1", false, checkSumAlgorithm));
+    }
+
     public static ScriptFactory createScriptFactory() {
         return createScriptFactory(null);
     }
@@ -109,16 +122,20 @@ public abstract class TestUtils {
     }
 
     public static FileSystemScriptLocation createFileSystemLocation(File scriptRootLocation) {
+        return createFileSystemLocation(scriptRootLocation, 1);
+    }
+
+    public static FileSystemScriptLocation createFileSystemLocation(File scriptRootLocation, int scanParallelism) {
         return new FileSystemScriptLocation(scriptRootLocation, "ISO-8859-1", "postprocessing", Collections.<Qualifier>emptySet(),
-                asSet(new Qualifier("patch")), "^([0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", asSet("sql"), null, false);
+                asSet(new Qualifier("patch")), "^([0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", asSet("sql"), null, false, "MD5", false, scanParallelism);
     }
 
     public static ArchiveScriptLocation createArchiveScriptLocation(SortedSet<Script> scripts, ScriptIndexes baseLineRevision) {
-        return new ArchiveScriptLocation(scripts, null, null, null, null, "^([0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", null, baseLineRevision, false);
+        return new ArchiveScriptLocation(scripts, null, null, null, null, "^([0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", null, baseLineRevision, false, "MD5");
     }
 
     public static ScriptRepository getScriptRepository(SortedSet<Script> scriptsToReturn) {
-        ScriptLocation scriptLocation = new ArchiveScriptLocation(scriptsToReturn, null, null, null, null, "^([0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", null, null, false);
+        ScriptLocation scriptLocation = new ArchiveScriptLocation(scriptsToReturn, null, null, null, null, "^([0-9]+)_", "(?:\\\\G|_)@([a-zA-Z0-9]+)_", "(?:\\\\G|_)#([a-zA-Z0-9]+)_", null, null, false, "MD5");
         QualifierEvaluator qualifierEvaluator = getTrivialQualifierEvaluator();
         return new ScriptRepository(asSet(scriptLocation), qualifierEvaluator);
     }
@@ -150,6 +167,9 @@ public abstract class TestUtils {
             public void updateExecutedScript(ExecutedScript executedScript) {
             }
 
+            public void updateExecutedScripts(Collection<ExecutedScript> executedScripts) {
+            }
+
             public void clearAllExecutedScripts() {
             }
 
@@ -159,6 +179,31 @@ public abstract class TestUtils {
             public void renameExecutedScript(ExecutedScript executedScript, Script renamedToScript) {
             }
 
+            public void registerExecutedScripts(Collection<ExecutedScript> executedScripts) {
+            }
+
+            public void setRepositoryScripts(Collection<Script> scripts) {
+            }
+
+            public boolean resetCachedStateIfChanged() {
+                return false;
+            }
+
+            public boolean isScriptsFingerprintSupported() {
+                return false;
+            }
+
+            public String getScriptsFingerprint() {
+                return null;
+            }
+
+            public boolean registerScriptsFingerprint(String scriptsFingerprint) {
+                return false;
+            }
+
+            public void deleteAndRenameExecutedScripts(Collection<ExecutedScript> deletedExecutedScripts, Map<ExecutedScript, Script> renamedExecutedScripts) {
+            }
+
             public void deleteAllExecutedPostprocessingScripts() {
             }
 